@@ -0,0 +1,247 @@
+package com.drivelocker.DriveLocker.cloudinary;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.ParseException;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import javax.net.ssl.SSLContext;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The HTTP connection pool shared by every Cloudinary call.
+ *
+ * The SDK's own strategies build a new client, and so a new pool, for every uploader() and
+ * api() call, so each upload paid for a fresh TCP and TLS handshake. Here connections are
+ * kept alive and reused across calls, idle ones are evicted before the server drops them,
+ * and all TLS sessions come from one SSLContext so reconnects can resume a session instead
+ * of doing a full handshake.
+ */
+public class CloudinaryTransport implements Closeable, MeterBinder {
+
+    /**
+     * Pool, timeout and retry settings. The defaults are the ones used when a property is unset.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Settings {
+
+        @Builder.Default
+        private int maxPerRoute = 20; // Uploads and admin calls each go to a single host
+
+        @Builder.Default
+        private int maxTotal = 50;
+
+        @Builder.Default
+        private long connectTimeoutMs = 5_000;
+
+        @Builder.Default
+        private long poolTimeoutMs = 10_000; // Wait for a free connection before failing
+
+        @Builder.Default
+        private long uploadTimeoutMs = 120_000; // Per upload request, i.e. per chunk of a large upload
+
+        @Builder.Default
+        private long apiTimeoutMs = 15_000;
+
+        @Builder.Default
+        private long idleEvictMs = 30_000;
+
+        @Builder.Default
+        private long timeToLiveMs = 300_000;
+
+        @Builder.Default
+        private int tlsSessionCacheSize = 256;
+
+        @Builder.Default
+        private int tlsSessionTimeoutSeconds = 3_600;
+
+        @Builder.Default
+        private int apiMaxAttempts = 3;
+
+        @Builder.Default
+        private long retryBaseMs = 200;
+
+        @Builder.Default
+        private long retryMaxMs = 2_000;
+    }
+
+    private final Settings settings;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+    private final RequestConfig uploadConfig;
+    private final RequestConfig apiConfig;
+
+    public CloudinaryTransport(Settings settings) {
+        this.settings = settings;
+
+        SSLContext sslContext;
+        try {
+            sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, null, null);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("TLS not available", e);
+        }
+        sslContext.getClientSessionContext().setSessionCacheSize(settings.getTlsSessionCacheSize());
+        sslContext.getClientSessionContext().setSessionTimeout(settings.getTlsSessionTimeoutSeconds());
+
+        this.connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setTlsSocketStrategy(new DefaultClientTlsStrategy(sslContext))
+                .setMaxConnPerRoute(settings.getMaxPerRoute())
+                .setMaxConnTotal(settings.getMaxTotal())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(settings.getConnectTimeoutMs()))
+                        .setTimeToLive(TimeValue.ofMilliseconds(settings.getTimeToLiveMs()))
+                        // A connection idle this long may have been closed by the server; check before reuse
+                        .setValidateAfterInactivity(TimeValue.ofMilliseconds(settings.getIdleEvictMs() / 2))
+                        .build())
+                .build();
+
+        this.client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .evictIdleConnections(TimeValue.ofMilliseconds(settings.getIdleEvictMs()))
+                .evictExpiredConnections()
+                // Retries are decided per operation by execute(), which knows what is idempotent
+                .disableAutomaticRetries()
+                .disableCookieManagement()
+                .build();
+
+        this.uploadConfig = requestConfig(settings.getUploadTimeoutMs());
+        this.apiConfig = requestConfig(settings.getApiTimeoutMs());
+    }
+
+    private RequestConfig requestConfig(long responseTimeoutMs) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(settings.getPoolTimeoutMs()))
+                .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                .build();
+    }
+
+    /**
+     * Timeouts for upload API calls.
+     */
+    public RequestConfig uploadConfig() {
+        return uploadConfig;
+    }
+
+    /**
+     * Timeouts for admin API calls.
+     */
+    public RequestConfig apiConfig() {
+        return apiConfig;
+    }
+
+    /**
+     * Sends a request and reads the whole response body, which hands the connection back to
+     * the pool. Idempotent requests are retried with exponential backoff and jitter after
+     * I/O errors, rate limiting and server errors, up to cloudinary.http.api-max-attempts
+     * times; the last response is returned as is.
+     * @param idempotent Whether the request may safely be sent more than once. Its entity,
+     *                   if any, must then be repeatable.
+     */
+    public Response execute(HttpUriRequestBase request, boolean idempotent) throws IOException {
+        int maxAttempts = idempotent ? Math.max(1, settings.getApiMaxAttempts()) : 1;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Response response = client.execute(request, CloudinaryTransport::read);
+                if (attempt < maxAttempts && isRetryable(response.code())) {
+                    pause(attempt);
+                    continue;
+                }
+                return response;
+            } catch (IOException e) {
+                if (attempt >= maxAttempts || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+            }
+            pause(attempt);
+        }
+    }
+
+    /**
+     * Reads the whole body while the connection is leased; the client releases it afterwards.
+     */
+    private static Response read(ClassicHttpResponse response) throws IOException {
+        try {
+            String body = response.getEntity() == null ? null : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+            return new Response(response.getCode(), body, response);
+        } catch (ParseException e) {
+            throw new IOException("Unreadable response from Cloudinary: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isRetryable(int code) {
+        // Cloudinary signals rate limiting with 420 as well as 429
+        return code == 420 || code == 429 || code >= 500;
+    }
+
+    /**
+     * Sleeps somewhere between half and all of base * 2^(attempt - 1), capped at
+     * cloudinary.http.retry-max-ms.
+     */
+    private void pause(int attempt) throws IOException {
+        long delay = settings.getRetryBaseMs();
+        for (int i = 1; i < attempt && delay < settings.getRetryMaxMs(); i++) {
+            delay *= 2;
+        }
+        delay = Math.min(delay, settings.getRetryMaxMs());
+        try {
+            Thread.sleep(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "leased", "Connections in use", PoolStats::getLeased);
+        gauge(registry, "available", "Idle connections kept alive for reuse", PoolStats::getAvailable);
+        gauge(registry, "pending", "Requests waiting for a connection", PoolStats::getPending);
+    }
+
+    private void gauge(MeterRegistry registry, String state, String description, ToDoubleFunction<PoolStats> value) {
+        Gauge.builder("drivelocker.cloudinary.connections", connectionManager,
+                        manager -> value.applyAsDouble(manager.getTotalStats()))
+                .tag("state", state)
+                .description(description)
+                .register(registry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.close();
+    }
+
+    /**
+     * A fully read response. The raw response is kept for its headers only.
+     */
+    public record Response(int code, String body, HttpResponse raw) {
+    }
+}
@@ -0,0 +1,117 @@
+package com.drivelocker.DriveLocker.cloudinary;
+
+import com.cloudinary.Api;
+import com.cloudinary.api.ApiResponse;
+import com.cloudinary.api.exceptions.GeneralError;
+import com.cloudinary.http5.ApiUtils;
+import com.cloudinary.http5.api.Response;
+import com.cloudinary.strategies.AbstractApiStrategy;
+import com.cloudinary.utils.ObjectUtils;
+import org.apache.hc.client5.http.classic.methods.HttpDelete;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpPut;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
+import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.net.URIBuilder;
+import org.cloudinary.json.JSONException;
+import org.cloudinary.json.JSONObject;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Sends admin API calls over the shared {@link CloudinaryTransport} with the admin timeouts.
+ * GET and DELETE calls are idempotent and so are retried; POST and PUT are sent once. The
+ * request encoding and error mapping match the SDK's own Apache HttpClient 5 strategy.
+ */
+public class PooledApiStrategy extends AbstractApiStrategy {
+
+    private final CloudinaryTransport transport;
+
+    public PooledApiStrategy(CloudinaryTransport transport) {
+        this.transport = transport;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public ApiResponse callApi(Api.HttpMethod method, String apiUrl, Map<String, ?> params, Map options,
+                               String authorizationHeader) throws Exception {
+        HttpUriRequestBase request = prepareRequest(method, apiUrl, params, options);
+        request.setHeader("Authorization", authorizationHeader);
+        return getApiResponse(request, method == Api.HttpMethod.GET || method == Api.HttpMethod.DELETE);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public ApiResponse callAccountApi(Api.HttpMethod method, String apiUrl, Map<String, ?> params, Map options,
+                                      String authorizationHeader) throws Exception {
+        return callApi(method, apiUrl, params, options, authorizationHeader);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private HttpUriRequestBase prepareRequest(Api.HttpMethod method, String apiUrl, Map<String, ?> params,
+                                              Map options) throws URISyntaxException {
+        String contentType = ObjectUtils.asString(options.get("content_type"), "urlencoded");
+        HttpUriRequestBase request = switch (method) {
+            case GET -> {
+                URIBuilder uri = new URIBuilder(apiUrl);
+                for (NameValuePair param : ApiUtils.prepareParams(params)) {
+                    uri.addParameter(param.getName(), param.getValue());
+                }
+                yield new HttpGet(uri.toString());
+            }
+            case POST -> withEntity(new HttpPost(apiUrl), params, contentType);
+            case PUT -> withEntity(new HttpPut(apiUrl), params, contentType);
+            case DELETE -> withEntity(new HttpDelete(apiUrl), params, contentType);
+        };
+        request.setConfig(transport.apiConfig());
+        // Still honours per-call "timeout" and "connect_timeout" options
+        ApiUtils.setTimeouts(request, (Map<String, ?>) options);
+        return request;
+    }
+
+    private HttpUriRequestBase withEntity(HttpUriRequestBase request, Map<String, ?> params, String contentType) {
+        if ("json".equals(contentType)) {
+            request.setEntity(new StringEntity(ObjectUtils.toJSON(params).toString(), StandardCharsets.UTF_8));
+            request.setHeader("Content-Type", "application/json");
+        } else {
+            request.setEntity(new UrlEncodedFormEntity(ApiUtils.prepareParams(params), StandardCharsets.UTF_8));
+        }
+        return request;
+    }
+
+    private ApiResponse getApiResponse(HttpUriRequestBase request, boolean idempotent) throws Exception {
+        CloudinaryTransport.Response response;
+        try {
+            response = transport.execute(request, idempotent);
+        } catch (IOException e) {
+            throw new GeneralError("Error executing request: " + e.getMessage());
+        }
+
+        Map<String, Object> result = parse(response.body());
+        if (response.code() != 200) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> error = (Map<String, Object>) result.get("error");
+            String message = error == null ? null : (String) error.get("message");
+            Class<? extends Exception> errorClass = Api.CLOUDINARY_API_ERROR_CLASSES.get(response.code());
+            if (errorClass != null) {
+                throw errorClass.getConstructor(String.class).newInstance(message);
+            }
+            throw new GeneralError("Server returned unexpected status code - " + response.code() + " - " + message);
+        }
+        return new Response(response.raw(), result);
+    }
+
+    private static Map<String, Object> parse(String body) {
+        try {
+            return ObjectUtils.toMap(new JSONObject(body));
+        } catch (JSONException e) {
+            throw new RuntimeException("Invalid JSON response from server " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.drivelocker.DriveLocker.cloudinary;
+
+import com.cloudinary.ProgressCallback;
+import com.cloudinary.Util;
+import com.cloudinary.strategies.AbstractUploaderStrategy;
+import com.cloudinary.utils.ObjectUtils;
+import com.cloudinary.utils.StringUtils;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.entity.mime.ByteArrayBody;
+import org.apache.hc.client5.http.entity.mime.FileBody;
+import org.apache.hc.client5.http.entity.mime.HttpMultipartMode;
+import org.apache.hc.client5.http.entity.mime.MultipartEntityBuilder;
+import org.apache.hc.core5.http.ContentType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Sends upload API calls over the shared {@link CloudinaryTransport} with the upload
+ * timeouts. The request encoding matches the SDK's own Apache HttpClient 5 strategy.
+ * Uploads are never retried, since a repeated upload would create a second resource.
+ */
+public class PooledUploaderStrategy extends AbstractUploaderStrategy {
+
+    private static final ContentType TEXT_UTF8 = ContentType.TEXT_PLAIN.withCharset(StandardCharsets.UTF_8);
+
+    private final CloudinaryTransport transport;
+
+    public PooledUploaderStrategy(CloudinaryTransport transport) {
+        this.transport = transport;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Map callApi(String action, Map<String, Object> params, Map options, Object file,
+                       ProgressCallback progressCallback) throws IOException {
+        if (progressCallback != null) {
+            throw new IllegalArgumentException("Progress callback is not supported");
+        }
+        if (options == null) {
+            options = ObjectUtils.emptyMap();
+        }
+        boolean returnError = ObjectUtils.asBoolean(options.get("return_error"), false);
+
+        if (requiresSigning(action, options)) {
+            uploader.signRequestParams(params, options);
+        } else {
+            Util.clearEmpty(params);
+        }
+
+        HttpPost request = prepareRequest(buildUploadUrl(action, options), params, options, file);
+        CloudinaryTransport.Response response = transport.execute(request, false);
+        return processResponse(returnError, response.code(), response.body());
+    }
+
+    private HttpPost prepareRequest(String url, Map<String, Object> params, Map<?, ?> options, Object file)
+            throws IOException {
+        HttpPost request = new HttpPost(url);
+        request.setConfig(transport.uploadConfig());
+
+        MultipartEntityBuilder multipart = MultipartEntityBuilder.create()
+                .setCharset(StandardCharsets.UTF_8)
+                .setMode(HttpMultipartMode.LEGACY);
+        for (Map.Entry<String, Object> param : params.entrySet()) {
+            if (param.getValue() instanceof Collection<?> values) {
+                for (Object value : values) {
+                    multipart.addTextBody(param.getKey() + "[]", ObjectUtils.asString(value), TEXT_UTF8);
+                }
+            } else {
+                String value = param.getValue().toString();
+                if (StringUtils.isNotBlank(value)) {
+                    multipart.addTextBody(param.getKey(), value, TEXT_UTF8);
+                }
+            }
+        }
+        addFilePart(multipart, file, (String) options.get("filename"));
+        request.setEntity(multipart.build());
+
+        if (options.get("extra_headers") instanceof Map<?, ?> extraHeaders) {
+            extraHeaders.forEach((name, value) -> request.addHeader(String.valueOf(name), value));
+        }
+        return request;
+    }
+
+    private void addFilePart(MultipartEntityBuilder multipart, Object file, String filename) throws IOException {
+        if (file instanceof String path && !StringUtils.isRemoteUrl(path)) {
+            File local = new File(path);
+            if (!local.isFile() || !local.canRead()) {
+                throw new IOException("File not found or unreadable: " + file);
+            }
+            file = local;
+        }
+
+        if (file instanceof File local) {
+            String name = filename == null ? local.getName() : filename;
+            multipart.addPart("file", new FileBody(local, ContentType.APPLICATION_OCTET_STREAM, name));
+        } else if (file instanceof String remoteUrl) {
+            multipart.addTextBody("file", remoteUrl, ContentType.TEXT_PLAIN);
+        } else if (file instanceof byte[] bytes) {
+            multipart.addPart("file", new ByteArrayBody(bytes, ContentType.APPLICATION_OCTET_STREAM,
+                    filename == null ? "file" : filename));
+        } else if (file != null) {
+            throw new IOException("Unrecognized file parameter " + file);
+        }
+    }
+}
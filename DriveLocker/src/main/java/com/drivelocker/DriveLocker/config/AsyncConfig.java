@@ -0,0 +1,111 @@
+package com.drivelocker.DriveLocker.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Bounded worker pools for work that runs off the request thread.
+ */
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * Runs async MVC return values, e.g. the StreamingResponseBody of ZIP downloads. Boot only
+     * creates its own applicationTaskExecutor when no other Executor bean exists, which the
+     * pools below prevent, and MVC would otherwise fall back to a new thread per request.
+     */
+    @Bean(name = {"applicationTaskExecutor", "taskExecutor"})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(@Value("${mvc.async.workers:16}") int workers,
+                                                          @Value("${mvc.async.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        return executor;
+    }
+
+    /**
+     * Runs asynchronous uploads. When every worker is busy and the queue is full, new jobs
+     * are rejected rather than queued without limit.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor uploadExecutor(@Value("${uploads.async.workers:4}") int workers,
+                                                 @Value("${uploads.async.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("upload-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+
+    /**
+     * Pushes the parts of batch uploads to storage. The pool size is the global cap on
+     * concurrent pushes across all batch requests.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor batchUploadExecutor(@Value("${uploads.batch.global-concurrency:8}") int workers,
+                                                      @Value("${uploads.batch.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("batch-upload-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+
+    /**
+     * Runs chunks of storage deletions drained from the outbox in parallel.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor storageDeletionExecutor(@Value("${storage.deletions.parallelism:4}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        // The drainer waits for its chunks, so at most batch-size / chunk-size tasks are ever queued
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("storage-delete-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        return executor;
+    }
+
+    /**
+     * Opens and prefetches the files of ZIP downloads. When the queue is full the writing
+     * thread fetches the file itself instead of failing the download.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor zipPrefetchExecutor(@Value("${downloads.zip.fetch-workers:8}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(256);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("zip-prefetch-");
+        return executor;
+    }
+
+    /**
+     * Generates thumbnails and previews after upload. Jobs beyond the queue capacity are
+     * dropped; the file then simply has no derivatives.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor derivativeExecutor(@Value("${derivatives.workers:2}") int workers,
+                                                     @Value("${derivatives.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("derivative-");
+        return executor;
+    }
+}
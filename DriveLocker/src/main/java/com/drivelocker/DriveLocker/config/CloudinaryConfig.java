@@ -0,0 +1,48 @@
+package com.drivelocker.DriveLocker.config;
+
+import com.drivelocker.DriveLocker.cloudinary.CloudinaryTransport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * HTTP transport for the Cloudinary client.
+ */
+@Configuration
+public class CloudinaryConfig {
+
+    /**
+     * One connection pool for all Cloudinary calls, closed on shutdown.
+     */
+    @Bean
+    public CloudinaryTransport cloudinaryTransport(
+            @Value("${cloudinary.http.max-per-route:20}") int maxPerRoute,
+            @Value("${cloudinary.http.max-total:50}") int maxTotal,
+            @Value("${cloudinary.http.connect-timeout-ms:5000}") long connectTimeoutMs,
+            @Value("${cloudinary.http.pool-timeout-ms:10000}") long poolTimeoutMs,
+            @Value("${cloudinary.http.upload-timeout-ms:120000}") long uploadTimeoutMs,
+            @Value("${cloudinary.http.api-timeout-ms:15000}") long apiTimeoutMs,
+            @Value("${cloudinary.http.idle-evict-ms:30000}") long idleEvictMs,
+            @Value("${cloudinary.http.time-to-live-ms:300000}") long timeToLiveMs,
+            @Value("${cloudinary.http.tls-session-cache-size:256}") int tlsSessionCacheSize,
+            @Value("${cloudinary.http.tls-session-timeout-seconds:3600}") int tlsSessionTimeoutSeconds,
+            @Value("${cloudinary.http.api-max-attempts:3}") int apiMaxAttempts,
+            @Value("${cloudinary.http.retry-base-ms:200}") long retryBaseMs,
+            @Value("${cloudinary.http.retry-max-ms:2000}") long retryMaxMs) {
+        return new CloudinaryTransport(CloudinaryTransport.Settings.builder()
+                .maxPerRoute(maxPerRoute)
+                .maxTotal(maxTotal)
+                .connectTimeoutMs(connectTimeoutMs)
+                .poolTimeoutMs(poolTimeoutMs)
+                .uploadTimeoutMs(uploadTimeoutMs)
+                .apiTimeoutMs(apiTimeoutMs)
+                .idleEvictMs(idleEvictMs)
+                .timeToLiveMs(timeToLiveMs)
+                .tlsSessionCacheSize(tlsSessionCacheSize)
+                .tlsSessionTimeoutSeconds(tlsSessionTimeoutSeconds)
+                .apiMaxAttempts(apiMaxAttempts)
+                .retryBaseMs(retryBaseMs)
+                .retryMaxMs(retryMaxMs)
+                .build());
+    }
+}
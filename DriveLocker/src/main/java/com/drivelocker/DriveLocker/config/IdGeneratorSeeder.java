@@ -0,0 +1,45 @@
+package com.drivelocker.DriveLocker.config;
+
+import com.drivelocker.DriveLocker.models.IdGenerators;
+import com.drivelocker.DriveLocker.repository.FileRepository;
+import com.drivelocker.DriveLocker.repository.NoteRevisionRepository;
+import com.drivelocker.DriveLocker.repository.NotesRepository;
+import com.drivelocker.DriveLocker.repository.SyncTombstoneRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves each generator in {@link IdGenerators#TABLE} past the largest id already in its
+ * table, so ids handed out from it never collide with rows inserted under AUTO_INCREMENT.
+ * Runs before the web server starts, so before any id is generated.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdGeneratorSeeder {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotesRepository notesRepository;
+    private final SyncTombstoneRepository syncTombstoneRepository;
+    private final NoteRevisionRepository noteRevisionRepository;
+    private final FileRepository fileRepository;
+
+    @PostConstruct
+    public void seed() {
+        seed(IdGenerators.NOTES, notesRepository.findMaxId());
+        seed(IdGenerators.SYNC_TOMBSTONES, syncTombstoneRepository.findMaxId());
+        seed(IdGenerators.NOTE_REVISIONS, noteRevisionRepository.findMaxId());
+        seed(IdGenerators.FILES, fileRepository.findMaxId());
+    }
+
+    private void seed(String generator, long maxId) {
+        // The pooled optimizer hands out the block ending at the stored value, so the first id is maxId + 1
+        long value = maxId + IdGenerators.ALLOCATION_SIZE;
+        jdbcTemplate.update("INSERT INTO " + IdGenerators.TABLE
+                        + " (" + IdGenerators.NAME_COLUMN + ", " + IdGenerators.VALUE_COLUMN + ") VALUES (?, ?)"
+                        + " ON DUPLICATE KEY UPDATE " + IdGenerators.VALUE_COLUMN
+                        + " = GREATEST(" + IdGenerators.VALUE_COLUMN + ", VALUES(" + IdGenerators.VALUE_COLUMN + "))",
+                generator, value);
+    }
+}
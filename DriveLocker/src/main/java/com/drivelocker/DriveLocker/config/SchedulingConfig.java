@@ -0,0 +1,12 @@
+package com.drivelocker.DriveLocker.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the background housekeeping jobs (@Scheduled methods).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -5,6 +5,7 @@ import com.drivelocker.DriveLocker.io.AuthRequest;
 import com.drivelocker.DriveLocker.io.AuthResponse;
 import com.drivelocker.DriveLocker.io.ResetPassRequest;
 import com.drivelocker.DriveLocker.service.AppUserDetailService;
+import com.drivelocker.DriveLocker.service.PasskeyUnlockService;
 import com.drivelocker.DriveLocker.service.ProfileService;
 import com.drivelocker.DriveLocker.utilities.JwtUtil;
 import io.swagger.v3.oas.annotations.Operation;
@@ -49,6 +50,7 @@ public class AuthController {
     @Value("${java.environment}")
     private String javaEnvironment;
     private final AppUserDetailService userDetailService;
+    private final PasskeyUnlockService passkeyUnlockService;
 
     @Operation(summary = "User login", description = "Authenticates a user and returns a JWT token in an HTTP-only cookie.")
     @ApiResponses(value = {
@@ -188,6 +190,7 @@ public class AuthController {
         if (email.equals("anonymousUser") || email==null){
             throw new NotLoggedInException("You are not currently logged in.");
         }
+        passkeyUnlockService.revokeAll(email);
 
         ResponseCookie cookie=ResponseCookie.from("jwt","")
                 .httpOnly(true)
@@ -1,22 +1,64 @@
 package com.drivelocker.DriveLocker.controller;
 
+import com.drivelocker.DriveLocker.io.BatchFileRequest;
+import com.drivelocker.DriveLocker.io.BatchUploadResponse;
+import com.drivelocker.DriveLocker.io.FilePage;
 import com.drivelocker.DriveLocker.io.FileRequest;
-import com.drivelocker.DriveLocker.models.File;
+import com.drivelocker.DriveLocker.io.FileSearchHit;
+import com.drivelocker.DriveLocker.io.FileSummary;
+import com.drivelocker.DriveLocker.io.UnlockRequest;
+import com.drivelocker.DriveLocker.io.UnlockResponse;
+import com.drivelocker.DriveLocker.io.UploadJobResponse;
+import com.drivelocker.DriveLocker.io.UploadSessionRequest;
+import com.drivelocker.DriveLocker.io.UploadSessionResponse;
+import com.drivelocker.DriveLocker.io.UsageResponse;
+import com.drivelocker.DriveLocker.service.BatchUploadService;
+import com.drivelocker.DriveLocker.service.FileContent;
+import com.drivelocker.DriveLocker.service.FileContentService;
+import com.drivelocker.DriveLocker.service.FileSearchService;
 import com.drivelocker.DriveLocker.service.FileService;
+import com.drivelocker.DriveLocker.service.PasskeyUnlockService;
+import com.drivelocker.DriveLocker.service.ResumableUploadService;
+import com.drivelocker.DriveLocker.service.UploadJobService;
+import com.drivelocker.DriveLocker.service.UsageService;
+import com.drivelocker.DriveLocker.service.ZipDownloadService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
-
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.CurrentSecurityContext;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Optional;
 
 
 @Tag(name = "File Management", description = "Endpoints for file upload, retrieval, and deletion.")
@@ -26,6 +68,53 @@ import java.util.List;
 public class FilesController {
 
     private final FileService fileService;
+    private final BatchUploadService batchUploadService;
+    private final ResumableUploadService resumableUploadService;
+    private final UploadJobService uploadJobService;
+    private final FileContentService fileContentService;
+    private final ZipDownloadService zipDownloadService;
+    private final UsageService usageService;
+    private final FileSearchService fileSearchService;
+    private final PasskeyUnlockService passkeyUnlockService;
+
+    // Tomcat request attributes for handing a file to the connector's sendfile support
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Operation(summary = "Unlock the locker", description = "Verifies the passkey once and returns a short-lived token. Send it in X-Unlock-Token instead of the passkey on uploads and downloads until it expires.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Unlock token issued",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = UnlockResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Passkey missing"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access or invalid passkey")
+    })
+    @PostMapping("/unlock")
+    public ResponseEntity<UnlockResponse> unlock(
+            @Valid @RequestBody UnlockRequest request,
+            @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        return ResponseEntity.ok(fileService.unlock(email, request.getPasskey()));
+    }
+
+    @Operation(summary = "Lock the locker", description = "Revokes the unlock token in X-Unlock-Token, or every token of the user with all=true.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Token revoked"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    @DeleteMapping("/unlock")
+    public ResponseEntity<Void> lock(
+            @RequestParam(defaultValue = "false") boolean all,
+            @RequestHeader(value = "X-Unlock-Token", required = false) String unlockToken,
+            @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        if (all) {
+            passkeyUnlockService.revokeAll(email);
+        } else if (unlockToken != null) {
+            passkeyUnlockService.revoke(email, unlockToken);
+        }
+        return ResponseEntity.noContent().build();
+    }
 
     @Operation(summary = "Upload a file", description = "Uploads and secures a file with a passkey.")
     @ApiResponses(value = {
@@ -33,18 +122,84 @@ public class FilesController {
                     content = @Content(mediaType = "text/plain")),
             @ApiResponse(responseCode = "400", description = "Bad request (e.g., file validation failed)"),
             @ApiResponse(responseCode = "401", description = "Unauthorized access"),
+            @ApiResponse(responseCode = "413", description = "Storage quota exceeded"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PostMapping(value = "/upload-file", consumes = {"multipart/form-data"})
     public ResponseEntity<String> fileUpload(
             // ✅ This is the correct way to handle multipart form data
             @Validated @ModelAttribute FileRequest fileRequest,
+            @RequestHeader(value = "X-Unlock-Token", required = false) String unlockToken,
             @CurrentSecurityContext(expression = "authentication?.name") String email) {
 
-        String response = fileService.fileUpload(email, fileRequest.getPasskey(), fileRequest.getFile());
+        String response = fileService.fileUpload(email, fileRequest.getPasskey(), unlockToken, fileRequest.getFile());
         return ResponseEntity.ok(response);
     }
 
+    @Operation(summary = "Upload several files", description = "Checks the passkey once and uploads every part concurrently. Each part gets its own result, so partial failures are reported.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed; see the per-file results",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = BatchUploadResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Bad request (e.g., too many files)"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access or invalid passkey")
+    })
+    @PostMapping(value = "/upload-files", consumes = {"multipart/form-data"})
+    public ResponseEntity<BatchUploadResponse> batchUpload(
+            @Validated @ModelAttribute BatchFileRequest batchFileRequest,
+            @RequestHeader(value = "X-Unlock-Token", required = false) String unlockToken,
+            @CurrentSecurityContext(expression = "authentication?.name") String email) {
+
+        BatchUploadResponse response = batchUploadService.upload(email, batchFileRequest.getPasskey(), unlockToken, batchFileRequest.getFiles());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "Upload a file asynchronously", description = "Checks the passkey, accepts the file and stores it in the background. Poll the returned job for the outcome.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Upload accepted",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = UploadJobResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access or invalid passkey"),
+            @ApiResponse(responseCode = "503", description = "Upload queue is full")
+    })
+    @PostMapping(value = "/upload-file-async", consumes = {"multipart/form-data"})
+    public ResponseEntity<UploadJobResponse> fileUploadAsync(
+            @Validated @ModelAttribute FileRequest fileRequest,
+            @RequestHeader(value = "X-Unlock-Token", required = false) String unlockToken,
+            @CurrentSecurityContext(expression = "authentication?.name") String email) {
+
+        UploadJobResponse job = uploadJobService.submit(email, fileRequest.getPasskey(), unlockToken, fileRequest.getFile());
+        return ResponseEntity.accepted()
+                .location(URI.create("jobs/" + job.getJobId()))
+                .body(job);
+    }
+
+    @Operation(summary = "Get upload job status", description = "Reports the status of an asynchronous upload.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Job status",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = UploadJobResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Job not found or expired")
+    })
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<UploadJobResponse> getUploadJob(
+            @PathVariable String jobId,
+            @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        return ResponseEntity.ok(uploadJobService.getJob(email, jobId));
+    }
+
+    @Operation(summary = "Follow upload job progress", description = "Streams status changes of an asynchronous upload as server-sent events.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Event stream of job status updates"),
+            @ApiResponse(responseCode = "404", description = "Job not found or expired")
+    })
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter followUploadJob(
+            @PathVariable String jobId,
+            @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        return uploadJobService.subscribe(email, jobId);
+    }
+
     @Operation(summary = "Get user files", description = "Retrieves a list of all files for the authenticated user.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Files retrieved successfully",
@@ -54,11 +209,219 @@ public class FilesController {
             @ApiResponse(responseCode = "401", description = "Unauthorized access")
     })
     @GetMapping("/")
-    public ResponseEntity<List<File>> getUserFiles(@CurrentSecurityContext(expression = "authentication?.name") String email) {
-        List<File> fileList = fileService.getUserFiles(email);
+    public ResponseEntity<List<FileSummary>> getUserFiles(@CurrentSecurityContext(expression = "authentication?.name") String email) {
+        List<FileSummary> fileList = fileService.getUserFiles(email);
         return ResponseEntity.ok(fileList);
     }
 
+    @Operation(summary = "Search user files", description = "Finds files whose name starts with or contains the query, ignoring case. Prefix matches are listed first.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Matching files",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = List.class))),
+            @ApiResponse(responseCode = "400", description = "Missing query"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    @GetMapping("/search")
+    public ResponseEntity<List<FileSearchHit>> searchFiles(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit,
+            @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        return ResponseEntity.ok(fileSearchService.search(email, q, limit));
+    }
+
+    @Operation(summary = "Get storage usage", description = "Reports the bytes and number of files the user stores, and their quota.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Usage retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = UsageResponse.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    @GetMapping("/usage")
+    public ResponseEntity<UsageResponse> getUsage(@CurrentSecurityContext(expression = "authentication?.name") String email) {
+        return ResponseEntity.ok(usageService.getUsage(email));
+    }
+
+    @Operation(summary = "Get a page of user files", description = "Retrieves the user's files one page at a time, ordered by creation time. Pass the returned nextCursor back as cursor for the following page.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = FilePage.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or sort"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    @GetMapping("/page")
+    public ResponseEntity<FilePage> getUserFilesPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "desc") String sort,
+            @RequestParam(required = false) String fileType,
+            @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        return ResponseEntity.ok(fileService.getUserFilesPage(email, cursor, limit, sort, fileType));
+    }
+
+    @Operation(summary = "Download file content", description = "Streams a file's content, honouring Range, If-Range, If-None-Match and If-Modified-Since. Encrypted files need the passkey in X-Passkey or an unlock token in X-Unlock-Token.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Full content"),
+            @ApiResponse(responseCode = "401", description = "X-Passkey missing or invalid for an encrypted file"),
+            @ApiResponse(responseCode = "206", description = "Requested byte range"),
+            @ApiResponse(responseCode = "304", description = "Client copy is still current"),
+            @ApiResponse(responseCode = "404", description = "File not found"),
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable")
+    })
+    @GetMapping("/{publicId}/content")
+    public void downloadFile(@PathVariable String publicId,
+                             @RequestParam(defaultValue = "false") boolean download,
+                             @RequestHeader(value = "X-Passkey", required = false) String passkey,
+                             @RequestHeader(value = "X-Unlock-Token", required = false) String unlockToken,
+                             HttpServletRequest request,
+                             HttpServletResponse response,
+                             @CurrentSecurityContext(expression = "authentication?.name") String email) throws IOException {
+        FileContent content = fileContentService.resolve(email, publicId, passkey, unlockToken);
+
+        long lastModified = content.getLastModified() == null ? -1 : content.getLastModified().toEpochMilli();
+        if (new ServletWebRequest(request, response).checkNotModified(content.getEtag(), lastModified)) {
+            return;
+        }
+
+        response.setContentType(content.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.builder(download ? "attachment" : "inline")
+                        .filename(content.getFileName(), StandardCharsets.UTF_8)
+                        .build().toString());
+
+        Long size = content.getSize();
+        if (size == null) {
+            // Unknown length: no ranges, just stream everything
+            if (!HttpMethod.HEAD.matches(request.getMethod())) {
+                fileContentService.write(content, 0, -1, response.getOutputStream());
+            }
+            return;
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long start = 0;
+        long length = size;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), content)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of(); // Malformed ranges are ignored
+            }
+            // Multiple ranges are answered with the full content, which RFC 9110 allows
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(size);
+                    length = ranges.get(0).getRangeEnd(size) - start + 1;
+                } catch (IllegalArgumentException e) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + (start + length - 1) + "/" + size);
+            }
+        }
+        response.setContentLengthLong(length);
+
+        if (HttpMethod.HEAD.matches(request.getMethod()) || length == 0) {
+            return;
+        }
+
+        Optional<Path> localPath = fileContentService.localPath(content);
+        if (localPath.isPresent()) {
+            sendLocalFile(localPath.get(), start, length, request, response);
+            return;
+        }
+        Optional<FileChannel> cached = fileContentService.openCached(content);
+        if (cached.isPresent()) {
+            // Not handed to sendfile: that opens the file by name after this method returns
+            try (FileChannel channel = cached.get()) {
+                transfer(channel, start, length, response);
+            }
+        } else {
+            fileContentService.write(content, start, length, response.getOutputStream());
+        }
+    }
+
+    /**
+     * An If-Range validator only keeps the Range in effect if it still matches the current
+     * representation; otherwise the full content is sent.
+     */
+    private boolean ifRangeMatches(String ifRange, FileContent content) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range requires a strong comparison, so weak validators never match
+            return ifRange.equals(content.getEtag());
+        }
+        try {
+            long since = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return content.getLastModified() != null
+                    && content.getLastModified().toEpochMilli() / 1000 == since / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sends a local file without copying it through user space: Tomcat's sendfile when the
+     * connector supports it, otherwise a FileChannel transfer.
+     */
+    private void sendLocalFile(Path path, long start, long length,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + length);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            transfer(channel, start, length, response);
+        }
+    }
+
+    private void transfer(FileChannel channel, long start, long length, HttpServletResponse response) throws IOException {
+        WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        long position = start;
+        long remaining = length;
+        while (remaining > 0) {
+            long n = channel.transferTo(position, remaining, out);
+            if (n <= 0) {
+                break;
+            }
+            position += n;
+            remaining -= n;
+        }
+    }
+
+    @Operation(summary = "Download files as a ZIP", description = "Streams a ZIP archive of the given files. Files that cannot be fetched are listed in an ERRORS.txt entry.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "ZIP archive",
+                    content = @Content(mediaType = "application/zip")),
+            @ApiResponse(responseCode = "400", description = "Missing or too many file IDs"),
+            @ApiResponse(responseCode = "404", description = "A file was not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access, or X-Passkey missing or invalid for encrypted files")
+    })
+    @PostMapping(value = "/download-zip", produces = "application/zip")
+    public ResponseEntity<StreamingResponseBody> downloadZip(
+            @RequestBody List<String> publicIds,
+            @RequestHeader(value = "X-Passkey", required = false) String passkey,
+            @RequestHeader(value = "X-Unlock-Token", required = false) String unlockToken,
+            @CurrentSecurityContext(expression = "authentication?.name") String email) {
+
+        StreamingResponseBody body = zipDownloadService.archive(email, publicIds, passkey, unlockToken);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("files.zip").build().toString())
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
+    }
+
     @Operation(summary = "Delete user files", description = "Deletes one or more files based on their public IDs.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Files deleted successfully",
@@ -74,4 +437,84 @@ public class FilesController {
         return ResponseEntity.ok("Files deleted successfully");
     }
 
+    @Operation(summary = "Start a resumable upload", description = "Verifies the passkey and opens an upload session that accepts chunks in any order.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Upload session created",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = UploadSessionResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid file details"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access or invalid passkey")
+    })
+    @PostMapping("/uploads")
+    public ResponseEntity<UploadSessionResponse> createUploadSession(
+            @Valid @RequestBody UploadSessionRequest request,
+            @RequestHeader(value = "X-Unlock-Token", required = false) String unlockToken,
+            @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        UploadSessionResponse response = resumableUploadService.createSession(email, request, unlockToken);
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
+    @Operation(summary = "Upload a chunk", description = "Writes the raw request body at the given byte offset of the upload.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Chunk stored; returns the ranges received so far",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = UploadSessionResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Chunk outside the file, too large or truncated"),
+            @ApiResponse(responseCode = "404", description = "Upload session not found")
+    })
+    @PutMapping(value = "/uploads/{sessionId}", consumes = "application/octet-stream")
+    public ResponseEntity<UploadSessionResponse> uploadChunk(
+            @PathVariable String sessionId,
+            @RequestParam long offset,
+            HttpServletRequest request,
+            @CurrentSecurityContext(expression = "authentication?.name") String email) throws IOException {
+        UploadSessionResponse response = resumableUploadService.writeChunk(
+                email, sessionId, offset, request.getContentLengthLong(), request.getInputStream());
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(summary = "Get upload progress", description = "Returns the byte ranges received so far, so a client can resume.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Upload session status",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = UploadSessionResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Upload session not found")
+    })
+    @GetMapping("/uploads/{sessionId}")
+    public ResponseEntity<UploadSessionResponse> getUploadSession(
+            @PathVariable String sessionId,
+            @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        return ResponseEntity.ok(resumableUploadService.getStatus(email, sessionId));
+    }
+
+    @Operation(summary = "Finish a resumable upload", description = "Stores the assembled file once every byte has been received. With encryption enabled the passkey must be sent again in X-Passkey, or an unlock token in X-Unlock-Token.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "File uploaded successfully",
+                    content = @Content(mediaType = "text/plain")),
+            @ApiResponse(responseCode = "400", description = "Upload is incomplete or expired"),
+            @ApiResponse(responseCode = "401", description = "X-Passkey missing or invalid"),
+            @ApiResponse(responseCode = "404", description = "Upload session not found")
+    })
+    @PostMapping("/uploads/{sessionId}/complete")
+    public ResponseEntity<String> completeUploadSession(
+            @PathVariable String sessionId,
+            @RequestHeader(value = "X-Passkey", required = false) String passkey,
+            @RequestHeader(value = "X-Unlock-Token", required = false) String unlockToken,
+            @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        return ResponseEntity.ok(resumableUploadService.complete(email, sessionId, passkey, unlockToken));
+    }
+
+    @Operation(summary = "Abort a resumable upload", description = "Discards an upload session and the bytes received so far.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204", description = "Upload session discarded"),
+            @ApiResponse(responseCode = "404", description = "Upload session not found")
+    })
+    @DeleteMapping("/uploads/{sessionId}")
+    public ResponseEntity<Void> abortUploadSession(
+            @PathVariable String sessionId,
+            @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        resumableUploadService.abort(email, sessionId);
+        return ResponseEntity.noContent().build();
+    }
+
 }
\ No newline at end of file
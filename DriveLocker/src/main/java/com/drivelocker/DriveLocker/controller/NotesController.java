@@ -1,7 +1,16 @@
 package com.drivelocker.DriveLocker.controller;
 
+import com.drivelocker.DriveLocker.exceptions.PreconditionFailedException;
+import com.drivelocker.DriveLocker.io.NotePage;
+import com.drivelocker.DriveLocker.io.NoteRevisionContent;
+import com.drivelocker.DriveLocker.io.NoteRevisionSummary;
+import com.drivelocker.DriveLocker.io.NoteSearchHit;
+import com.drivelocker.DriveLocker.io.NotesBulkRequest;
+import com.drivelocker.DriveLocker.io.NotesBulkResponse;
 import com.drivelocker.DriveLocker.models.Notes;
 import com.drivelocker.DriveLocker.service.INotesService;
+import com.drivelocker.DriveLocker.service.NoteRevisionService;
+import com.drivelocker.DriveLocker.service.NotesSearchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -12,6 +21,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.CurrentSecurityContext;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Map;
@@ -23,6 +33,8 @@ import java.util.Map;
 public class NotesController {
 
     private final INotesService notesService;
+    private final NotesSearchService notesSearchService;
+    private final NoteRevisionService noteRevisionService;
 
     @Operation(summary = "Create a new note", description = "Creates a new note for the authenticated user.")
     @ApiResponses(value = {
@@ -38,41 +50,152 @@ public class NotesController {
         String title = map.get("title");
         String notesContent = map.get("notes");
         Notes createdNote = notesService.createNotes(email, title, notesContent);
-        return ResponseEntity.ok(createdNote);
+        return ResponseEntity.ok().eTag(etagOf(createdNote)).body(createdNote);
     }
 
-    @Operation(summary = "Get all notes", description = "Retrieves all notes belonging to the authenticated user.")
+    @Operation(summary = "Get all notes", description = "Retrieves all notes belonging to the authenticated user. The ETag changes whenever any of the user's notes or files does; send it back as If-None-Match to get a 304 without the notes being loaded.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Notes retrieved successfully",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = List.class))),
+            @ApiResponse(responseCode = "304", description = "Notes not modified since the given ETag"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "404", description = "No notes found"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @GetMapping("/get-notes")
-    public ResponseEntity<List<Notes>> getUserNotes(@CurrentSecurityContext(expression = "authentication?.name") String email) {
+    public ResponseEntity<List<Notes>> getUserNotes(WebRequest webRequest,
+                                                    @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        // Taken before the read, so a write in between only costs the client one more full response
+        String etag = listEtag(email);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        // An empty list never gets here: getNotes throws NoteNotFoundException, answered with a 404
         List<Notes> userNotes = notesService.getNotes(email);
-        if (userNotes.isEmpty()) {
-            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok().eTag(etag).body(userNotes);
+    }
+
+    @Operation(summary = "Get a page of note summaries", description = "Retrieves summaries of the user's notes one page at a time, ordered by last update, each with the start of the note. Pass the returned nextCursor back as cursor for the following page, and fetch a note by id for its full content. Supports If-None-Match like get-notes.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Page retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = NotePage.class))),
+            @ApiResponse(responseCode = "304", description = "Page not modified since the given ETag"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or sort"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/page")
+    public ResponseEntity<NotePage> getUserNotesPage(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer limit,
+                                                     @RequestParam(defaultValue = "desc") String sort,
+                                                     @RequestParam(required = false) Boolean favourite,
+                                                     WebRequest webRequest,
+                                                     @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        String etag = listEtag(email);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(notesService.getNotesPage(email, cursor, limit, sort, favourite));
+    }
+
+    @Operation(summary = "Get a note", description = "Retrieves one of the user's notes with its full content. The ETag is the note's version; send it back as If-None-Match to get a 304, or as If-Match when updating the note.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Note retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Notes.class))),
+            @ApiResponse(responseCode = "304", description = "Note not modified since the given ETag"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Note not found")
+    })
+    @GetMapping("/{id:\\d+}")
+    public ResponseEntity<Notes> getUserNote(@PathVariable Integer id,
+                                             WebRequest webRequest,
+                                             @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        Notes note = notesService.getNote(email, id);
+        String etag = etagOf(note);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
         }
-        return ResponseEntity.ok(userNotes);
+        return ResponseEntity.ok().eTag(etag).body(note);
+    }
+
+    @Operation(summary = "List a note's revisions", description = "Lists the saved revisions of one of the user's notes, newest first, without their content. Revisions older than the retention period are removed, except the one current at that point.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Revisions retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = List.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Note not found")
+    })
+    @GetMapping("/{id:\\d+}/revisions")
+    public ResponseEntity<List<NoteRevisionSummary>> getNoteRevisions(@PathVariable Integer id,
+                                                                      @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        return ResponseEntity.ok(noteRevisionService.listRevisions(email, id));
+    }
+
+    @Operation(summary = "Get a note revision", description = "Rebuilds the title and content of one of the user's notes as they were at the given revision.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Revision retrieved successfully",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = NoteRevisionContent.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "404", description = "Note or revision not found")
+    })
+    @GetMapping("/{id:\\d+}/revisions/{revision:\\d+}")
+    public ResponseEntity<NoteRevisionContent> getNoteRevision(@PathVariable Integer id,
+                                                               @PathVariable Integer revision,
+                                                               @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        return ResponseEntity.ok(noteRevisionService.getRevision(email, id, revision));
+    }
+
+    @Operation(summary = "Search notes", description = "Full-text search over note titles and contents, best matches first. The last term also matches as a prefix unless the query ends with a space. Hits carry the matches' offsets in the title and in a snippet of the note.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Matching notes",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = List.class))),
+            @ApiResponse(responseCode = "400", description = "Missing query"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @GetMapping("/search")
+    public ResponseEntity<List<NoteSearchHit>> searchNotes(@RequestParam String q,
+                                                           @RequestParam(required = false) Integer limit,
+                                                           @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        return ResponseEntity.ok(notesSearchService.search(email, q, limit));
     }
 
-    @Operation(summary = "Update an existing note", description = "Updates the content of an existing note for the authenticated user.")
+    @Operation(summary = "Update an existing note", description = "Updates the content of an existing note for the authenticated user. With If-Match, the update only applies if the note is still at that version.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Note updated successfully",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = Notes.class))),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "404", description = "Note not found"),
+            @ApiResponse(responseCode = "412", description = "Note modified since the version in If-Match"),
             @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     @PutMapping("/update-notes")
     public ResponseEntity<Notes> updateUserNotes(@RequestBody Notes notes,
+                                                 @RequestHeader(value = "If-Match", required = false) String ifMatch,
                                                  @CurrentSecurityContext(expression = "authentication?.name") String email) {
-        Notes updatedNote = notesService.updateNotes(email, notes);
-        return ResponseEntity.ok(updatedNote);
+        Notes updatedNote = notesService.updateNotes(email, notes, parseVersion(ifMatch));
+        return ResponseEntity.ok().eTag(etagOf(updatedNote)).body(updatedNote);
+    }
+
+    @Operation(summary = "Create, update and delete notes in bulk", description = "Applies many note changes in one transaction: either all of them succeed or none do. Deletes are applied first, so a deleted note's title can be reused. Fields left null in an update keep their value; a version in an update makes it fail if the note has changed since.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Changes applied",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = NotesBulkResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Empty or too large request, or missing details"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized or duplicate title"),
+            @ApiResponse(responseCode = "404", description = "Note to update not found"),
+            @ApiResponse(responseCode = "412", description = "Note to update modified since the version given")
+    })
+    @PostMapping("/bulk")
+    public ResponseEntity<NotesBulkResponse> bulkUserNotes(@RequestBody NotesBulkRequest request,
+                                                           @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        return ResponseEntity.ok(notesService.bulkNotes(email, request));
     }
 
     @Operation(summary = "Delete notes", description = "Deletes one or more notes by their IDs for the authenticated user.")
@@ -90,4 +213,36 @@ public class NotesController {
         Boolean deleted = notesService.deleteNotes(email, ids);
         return ResponseEntity.ok(deleted);
     }
+
+    private String listEtag(String email) {
+        return "\"" + notesService.getNotesVersion(email) + "\"";
+    }
+
+    private static String etagOf(Notes note) {
+        return "\"" + note.getVersion() + "\"";
+    }
+
+    /**
+     * Reads the note version out of an If-Match header.
+     * @return The version, or null when there is no header or it is "*".
+     * @throws PreconditionFailedException if the header holds no version of a note, which
+     *                                     can then never match.
+     */
+    private static Long parseVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String etag = ifMatch.trim();
+        if (etag.startsWith("W/")) {
+            etag = etag.substring(2);
+        }
+        if (etag.length() >= 2 && etag.startsWith("\"") && etag.endsWith("\"")) {
+            etag = etag.substring(1, etag.length() - 1);
+        }
+        try {
+            return Long.parseLong(etag);
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match does not match the note's current version.");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.drivelocker.DriveLocker.controller;
+
+import com.drivelocker.DriveLocker.io.SyncResponse;
+import com.drivelocker.DriveLocker.service.SyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.CurrentSecurityContext;
+import org.springframework.web.bind.annotation.*;
+
+@Tag(name = "Sync", description = "Incremental sync of notes and files.")
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/sync")
+public class SyncController {
+
+    private final SyncService syncService;
+
+    @Operation(summary = "Sync notes and files", description = "Returns the notes and files created or updated since the token, and the ids of those deleted since. Without a token, returns every note and file. Keep the returned nextToken for the next sync; while hasMore is true, sync again with it straight away.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Changes since the token",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = SyncResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid token"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "410", description = "Token too old; sync again without a token")
+    })
+    @GetMapping
+    public ResponseEntity<SyncResponse> sync(@RequestParam(required = false) String token,
+                                             @RequestParam(required = false) Integer limit,
+                                             @CurrentSecurityContext(expression = "authentication?.name") String email) {
+        return ResponseEntity.ok(syncService.changesSince(email, token, limit));
+    }
+}
@@ -0,0 +1,152 @@
+package com.drivelocker.DriveLocker.crypto;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+
+/**
+ * Reads content sealed in the {@link SegmentedGcm} layout and yields the plaintext, checking
+ * every segment's tag before releasing any of its bytes. Either reads a whole object, finding
+ * the last segment by reading ahead, or a run of segments out of an object whose segment
+ * count is known, as needed to serve a byte range.
+ */
+public class DecryptingInputStream extends InputStream {
+
+    private final InputStream in;
+    private final SecretKey key;
+    private final byte[] noncePrefix;
+    private final int segmentSize;
+    private final BufferPool pool;
+    private final Cipher cipher = SegmentedGcm.newCipher();
+    private final long endSegment; // Exclusive; -1 when reading a whole object of unknown length
+    private final long segmentCount; // -1 when unknown
+
+    private byte[] sealed;
+    private byte[] plain;
+    private int plainPos;
+    private int plainLen;
+    private long index;
+    private int carry = -1;
+    private boolean done;
+    private boolean closed;
+
+    private DecryptingInputStream(InputStream in, SecretKey key, byte[] noncePrefix, int segmentSize, BufferPool pool,
+                                  long firstSegment, long endSegment, long segmentCount) {
+        if (pool.bufferSize() < segmentSize + SegmentedGcm.TAG_BYTES) {
+            throw new IllegalArgumentException("Pooled buffers are too small for the segment size");
+        }
+        this.in = in;
+        this.key = key;
+        this.noncePrefix = noncePrefix;
+        this.segmentSize = segmentSize;
+        this.pool = pool;
+        this.index = firstSegment;
+        this.endSegment = endSegment;
+        this.segmentCount = segmentCount;
+        this.sealed = pool.acquire();
+        this.plain = pool.acquire();
+    }
+
+    /**
+     * Decrypts a whole object.
+     */
+    public static DecryptingInputStream whole(InputStream in, SecretKey key, byte[] noncePrefix,
+                                              int segmentSize, BufferPool pool) {
+        return new DecryptingInputStream(in, key, noncePrefix, segmentSize, pool, 0, -1, -1);
+    }
+
+    /**
+     * Decrypts segments [firstSegment, endSegment) of an object with segmentCount segments.
+     * The stream must start at the first byte of firstSegment.
+     */
+    public static DecryptingInputStream segments(InputStream in, SecretKey key, byte[] noncePrefix, int segmentSize,
+                                                 BufferPool pool, long firstSegment, long endSegment, long segmentCount) {
+        return new DecryptingInputStream(in, key, noncePrefix, segmentSize, pool, firstSegment, endSegment, segmentCount);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (plainPos == plainLen) {
+            if (!open()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, plainLen - plainPos);
+        System.arraycopy(plain, plainPos, b, off, n);
+        plainPos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pool.release(sealed);
+        pool.release(plain);
+        sealed = null;
+        plain = null;
+        in.close();
+    }
+
+    private boolean open() throws IOException {
+        if (done || (endSegment >= 0 && index >= endSegment)) {
+            return false;
+        }
+        int sealedSize = segmentSize + SegmentedGcm.TAG_BYTES;
+        int have = 0;
+        if (carry >= 0) {
+            sealed[0] = (byte) carry;
+            carry = -1;
+            have = 1;
+        }
+        have += in.readNBytes(sealed, have, sealedSize - have);
+
+        boolean last;
+        if (segmentCount >= 0) {
+            last = index == segmentCount - 1;
+            if (!last && have < sealedSize) {
+                throw new IOException("Encrypted content is truncated");
+            }
+        } else {
+            last = have < sealedSize;
+            if (!last) {
+                int next = in.read();
+                last = next == -1;
+                carry = next;
+            }
+        }
+        if (have < SegmentedGcm.TAG_BYTES) {
+            throw new IOException("Encrypted content is truncated");
+        }
+
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key, SegmentedGcm.nonce(noncePrefix, index++, last));
+            plainLen = cipher.doFinal(sealed, 0, have, plain, 0);
+        } catch (AEADBadTagException e) {
+            throw new IOException("Encrypted content failed authentication", e);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Decryption failed: " + e.getMessage(), e);
+        }
+        plainPos = 0;
+        done = last;
+        return true;
+    }
+}
@@ -0,0 +1,116 @@
+package com.drivelocker.DriveLocker.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+
+/**
+ * Reads plaintext from another stream and yields it sealed in the {@link SegmentedGcm}
+ * layout, one segment at a time. Only one segment of plaintext and one of ciphertext are
+ * held, both taken from a {@link BufferPool} and given back on close.
+ */
+public class EncryptingInputStream extends InputStream {
+
+    private final InputStream in;
+    private final SecretKey key;
+    private final byte[] noncePrefix;
+    private final int segmentSize;
+    private final BufferPool pool;
+    private final Cipher cipher = SegmentedGcm.newCipher();
+
+    private byte[] plain;
+    private byte[] sealed;
+    private int sealedPos;
+    private int sealedLen;
+    private long index;
+    private int carry = -1; // Byte read ahead to find out whether the current segment is the last
+    private boolean done;
+    private boolean closed;
+
+    /**
+     * @param pool Supplies buffers of at least segmentSize + {@link SegmentedGcm#TAG_BYTES} bytes.
+     */
+    public EncryptingInputStream(InputStream in, SecretKey key, byte[] noncePrefix, int segmentSize, BufferPool pool) {
+        if (pool.bufferSize() < segmentSize + SegmentedGcm.TAG_BYTES) {
+            throw new IllegalArgumentException("Pooled buffers are too small for the segment size");
+        }
+        this.in = in;
+        this.key = key;
+        this.noncePrefix = noncePrefix;
+        this.segmentSize = segmentSize;
+        this.pool = pool;
+        this.plain = pool.acquire();
+        this.sealed = pool.acquire();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (sealedPos == sealedLen) {
+            if (!seal()) {
+                return -1;
+            }
+        }
+        int n = Math.min(len, sealedLen - sealedPos);
+        System.arraycopy(sealed, sealedPos, b, off, n);
+        sealedPos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pool.release(plain);
+        pool.release(sealed);
+        plain = null;
+        sealed = null;
+        in.close();
+    }
+
+    private boolean seal() throws IOException {
+        if (done) {
+            return false;
+        }
+        int have = 0;
+        if (carry >= 0) {
+            plain[0] = (byte) carry;
+            carry = -1;
+            have = 1;
+        }
+        have += in.readNBytes(plain, have, segmentSize - have);
+
+        boolean last = have < segmentSize;
+        if (!last) {
+            int next = in.read();
+            last = next == -1;
+            carry = next;
+        }
+
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key, SegmentedGcm.nonce(noncePrefix, index++, last));
+            sealedLen = cipher.doFinal(plain, 0, have, sealed, 0);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Encryption failed: " + e.getMessage(), e);
+        }
+        sealedPos = 0;
+        done = last;
+        return true;
+    }
+}
@@ -0,0 +1,67 @@
+package com.drivelocker.DriveLocker.crypto;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.GCMParameterSpec;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Layout of segmented AES-GCM content.
+ *
+ * The plaintext is cut into segments of a fixed size (the last one may be shorter, or empty
+ * for empty content) and each segment is sealed on its own, so it carries its own 16-byte
+ * tag. The 12-byte nonce of a segment is a random 7-byte prefix chosen per object, the
+ * 4-byte big-endian segment index and a final byte that is 1 only for the last segment.
+ * Binding the index stops segments from being reordered and the last-segment flag stops the
+ * content from being truncated at a segment boundary.
+ *
+ * Because every segment has the same ciphertext size, a byte range of the plaintext maps to
+ * a known range of whole segments that can be fetched and decrypted on their own.
+ */
+public final class SegmentedGcm {
+
+    public static final int TAG_BYTES = 16;
+
+    public static final int NONCE_PREFIX_BYTES = 7;
+
+    private static final int NONCE_BYTES = 12;
+
+    private SegmentedGcm() {
+    }
+
+    /**
+     * Number of segments holding the given amount of plaintext; at least one.
+     */
+    public static long segmentCount(long plainLength, int segmentSize) {
+        return Math.max(1, (plainLength + segmentSize - 1) / segmentSize);
+    }
+
+    /**
+     * Length of the sealed form of the given amount of plaintext.
+     */
+    public static long cipherLength(long plainLength, int segmentSize) {
+        return plainLength + segmentCount(plainLength, segmentSize) * TAG_BYTES;
+    }
+
+    static GCMParameterSpec nonce(byte[] prefix, long index, boolean last) {
+        if (index > 0xffffffffL) {
+            throw new IllegalStateException("Content has too many segments");
+        }
+        byte[] nonce = new byte[NONCE_BYTES];
+        System.arraycopy(prefix, 0, nonce, 0, NONCE_PREFIX_BYTES);
+        nonce[7] = (byte) (index >>> 24);
+        nonce[8] = (byte) (index >>> 16);
+        nonce[9] = (byte) (index >>> 8);
+        nonce[10] = (byte) index;
+        nonce[11] = (byte) (last ? 1 : 0);
+        return new GCMParameterSpec(TAG_BYTES * 8, nonce);
+    }
+
+    static Cipher newCipher() {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new IllegalStateException("AES/GCM not available", e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.drivelocker.DriveLocker.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class UploadQueueFullException extends RuntimeException {
+    public UploadQueueFullException(String message) {
+        super(message);
+    }
+}
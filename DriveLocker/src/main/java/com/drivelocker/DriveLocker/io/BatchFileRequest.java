@@ -0,0 +1,22 @@
+package com.drivelocker.DriveLocker.io;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchFileRequest {
+
+    @NotEmpty(message = "At least one file must be provided")
+    private List<MultipartFile> files;
+
+    private String passkey; // May be left out when an X-Unlock-Token header is sent
+}
@@ -0,0 +1,18 @@
+package com.drivelocker.DriveLocker.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchUploadResponse {
+    private int succeeded;
+    private int failed;
+    private List<BatchUploadResult> results; // In the same order as the uploaded parts
+}
@@ -0,0 +1,18 @@
+package com.drivelocker.DriveLocker.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchUploadResult {
+    private String fileName;
+    private String status; // SUCCEEDED or FAILED
+    private String publicId; // Set once SUCCEEDED
+    private String fileUrl; // Set once SUCCEEDED
+    private String error; // Failure reason once FAILED
+}
@@ -0,0 +1,16 @@
+package com.drivelocker.DriveLocker.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A contiguous byte range; start is inclusive, end is exclusive.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ByteRange {
+    private long start;
+    private long end;
+}
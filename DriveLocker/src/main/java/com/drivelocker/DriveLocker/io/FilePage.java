@@ -0,0 +1,17 @@
+package com.drivelocker.DriveLocker.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FilePage {
+    private List<FileSummary> items;
+    private String nextCursor; // Pass back as "cursor" to get the next page; null on the last page
+}
@@ -1,6 +1,5 @@
 package com.drivelocker.DriveLocker.io;
 
-import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -17,6 +16,5 @@ public class FileRequest {
     @NotNull(message = "File cannot be null")
     private MultipartFile file;
 
-    @NotBlank(message = "Passkey cannot be blank")
-    private String passkey;
+    private String passkey; // May be left out when an X-Unlock-Token header is sent
 }
\ No newline at end of file
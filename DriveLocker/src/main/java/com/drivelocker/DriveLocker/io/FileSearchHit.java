@@ -0,0 +1,20 @@
+package com.drivelocker.DriveLocker.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FileSearchHit {
+    private Long id;
+    private String publicId;
+    private String fileName;
+    private String fileType;
+    private LocalDateTime createdAt;
+}
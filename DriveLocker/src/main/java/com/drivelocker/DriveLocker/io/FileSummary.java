@@ -0,0 +1,18 @@
+package com.drivelocker.DriveLocker.io;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a File row used for listings, so pages are built straight
+ * from the query result without loading managed entities.
+ */
+public interface FileSummary {
+    Long getId();
+    String getPublicId();
+    String getFileName();
+    String getFileUrl();
+    String getFileType();
+    LocalDateTime getCreatedAt();
+    String getThumbnailUrl(); // Null until the thumbnail has been generated
+    String getPreviewUrl();
+}
@@ -0,0 +1,22 @@
+package com.drivelocker.DriveLocker.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One note to create or update in a bulk request. On update, fields left null keep their
+ * current value.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class NoteChange {
+    private Integer id; // Required on update, ignored on create
+    private String title;
+    private String notes;
+    private Boolean isFavourate;
+    private Long version; // On update, the version the client last saw; the update fails if the note has moved on
+}
@@ -0,0 +1,17 @@
+package com.drivelocker.DriveLocker.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class NotePage {
+    private List<NoteSummary> items;
+    private String nextCursor; // Pass back as "cursor" to get the next page; null on the last page
+}
@@ -0,0 +1,20 @@
+package com.drivelocker.DriveLocker.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class NoteRevisionContent {
+    private Integer noteId;
+    private Integer revision;
+    private String title;
+    private String notes;
+    private LocalDateTime createdAt;
+}
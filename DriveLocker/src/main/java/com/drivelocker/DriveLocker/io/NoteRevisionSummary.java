@@ -0,0 +1,14 @@
+package com.drivelocker.DriveLocker.io;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a note revision for listings, without its content.
+ */
+public interface NoteRevisionSummary {
+    Integer getRevision();
+    String getTitle();
+    Boolean getSnapshot(); // Whether the full text is stored, rather than a delta
+    Integer getStoredSize(); // Characters stored for this revision
+    LocalDateTime getCreatedAt();
+}
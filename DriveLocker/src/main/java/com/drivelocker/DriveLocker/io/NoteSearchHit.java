@@ -0,0 +1,25 @@
+package com.drivelocker.DriveLocker.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class NoteSearchHit {
+    private Integer id;
+    private String title;
+    private Boolean isFavourate;
+    private LocalDateTime lastUpdatedAt;
+    private double score;
+    private List<TextSpan> titleHighlights;
+    // The part of the note around the best matches, with the matches marked
+    private String snippet;
+    private List<TextSpan> snippetHighlights;
+}
@@ -0,0 +1,15 @@
+package com.drivelocker.DriveLocker.io;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a note used for listings, so the sidebar gets the first few
+ * characters of each note instead of its whole body.
+ */
+public interface NoteSummary {
+    Integer getId();
+    String getTitle();
+    Boolean getIsFavourate();
+    LocalDateTime getLastUpdatedAt();
+    String getSnippet(); // The start of the note; fetch the note itself for the rest
+}
@@ -0,0 +1,18 @@
+package com.drivelocker.DriveLocker.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class NotesBulkRequest {
+    private List<NoteChange> create;
+    private List<NoteChange> update;
+    private List<Integer> delete;
+}
@@ -0,0 +1,19 @@
+package com.drivelocker.DriveLocker.io;
+
+import com.drivelocker.DriveLocker.models.Notes;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class NotesBulkResponse {
+    private List<Notes> created;
+    private List<Notes> updated;
+    private List<Integer> deleted; // Ids that were deleted; ids the user does not own are left out
+}
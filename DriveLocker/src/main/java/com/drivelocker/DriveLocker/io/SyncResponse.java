@@ -0,0 +1,22 @@
+package com.drivelocker.DriveLocker.io;
+
+import com.drivelocker.DriveLocker.models.Notes;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SyncResponse {
+    private List<Notes> notes; // Created or updated since the token
+    private List<SyncedFile> files;
+    private List<Integer> deletedNoteIds;
+    private List<String> deletedFileIds; // Public ids
+    private String nextToken; // Pass back as "token" on the next sync
+    private boolean hasMore; // Sync again with nextToken right away for the rest
+}
@@ -0,0 +1,8 @@
+package com.drivelocker.DriveLocker.io;
+
+/**
+ * A file listed by a sync, with the sequence number of its last change.
+ */
+public interface SyncedFile extends FileSummary {
+    Long getChangeSeq();
+}
@@ -0,0 +1,17 @@
+package com.drivelocker.DriveLocker.io;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UnlockRequest {
+
+    @NotBlank(message = "Passkey cannot be blank")
+    private String passkey;
+}
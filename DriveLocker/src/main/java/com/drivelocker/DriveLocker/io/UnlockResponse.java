@@ -0,0 +1,17 @@
+package com.drivelocker.DriveLocker.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UnlockResponse {
+    private String token; // Send as X-Unlock-Token in place of the passkey
+    private Instant expiresAt;
+}
@@ -0,0 +1,22 @@
+package com.drivelocker.DriveLocker.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UploadJobResponse {
+    private String jobId;
+    private String fileName;
+    private String status; // QUEUED, RUNNING, SUCCEEDED or FAILED
+    private String result; // Upload result once SUCCEEDED
+    private String error; // Failure reason once FAILED
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,25 @@
+package com.drivelocker.DriveLocker.io;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UploadSessionRequest {
+
+    @NotBlank(message = "File name cannot be blank")
+    private String fileName;
+
+    @NotNull(message = "Total size is required")
+    @Positive(message = "Total size must be positive")
+    private Long totalBytes;
+
+    private String passkey; // May be left out when an X-Unlock-Token header is sent
+}
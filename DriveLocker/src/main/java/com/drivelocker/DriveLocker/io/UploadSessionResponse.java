@@ -0,0 +1,23 @@
+package com.drivelocker.DriveLocker.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UploadSessionResponse {
+    private String sessionId;
+    private String fileName;
+    private Long totalBytes;
+    private Long receivedBytes;
+    private List<ByteRange> receivedRanges;
+    private Long maxChunkBytes;
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,17 @@
+package com.drivelocker.DriveLocker.io;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UsageResponse {
+    private long usedBytes;
+    private long quotaBytes;
+    private long remainingBytes;
+    private long fileCount;
+}
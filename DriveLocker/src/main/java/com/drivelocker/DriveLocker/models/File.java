@@ -10,7 +10,12 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tbl_files")
+@Table(name = "tbl_files",
+        indexes = {
+                // Serves the keyset-paginated listing: equality on the owner, then (createdAt, id) order
+                @Index(name = "idx_files_user_created", columnList = "userEmail, createdAt, id"),
+                // Serves delta sync
+                @Index(name = "idx_files_user_change", columnList = "userEmail, changeSeq")})
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
@@ -18,7 +23,10 @@ import java.time.LocalDateTime;
 public class File {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "files_ids")
+    @TableGenerator(name = "files_ids", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.FILES, allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Long id; // Corrected to Long
 
     // Correctly defines the many-to-one relationship
@@ -39,7 +47,20 @@ public class File {
     @Column(nullable = false)
     private String fileType; // Stores the file format (e.g., pdf, png)
 
+    private Long bytes; // Size of the content; null for files uploaded before usage tracking
+
+    @Column(length = 16)
+    private String codec; // Compression of the stored object (e.g. deflate); null when stored as is
+
+    // The stored object holding the bytes; shared by duplicate uploads. Null for files uploaded before deduplication.
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "contentId")
+    @JsonIgnore
+    private StoredContent content;
+
 
 
     private LocalDateTime createdAt; // Stores the creation date and time
+
+    private Long changeSeq; // Position in the owner's change sequence, for delta sync
 }
@@ -0,0 +1,24 @@
+package com.drivelocker.DriveLocker.models;
+
+/**
+ * Names of the shared id generator table. Entities that are inserted many at a time take
+ * their ids from it in blocks of {@link #ALLOCATION_SIZE} instead of from AUTO_INCREMENT,
+ * which lets Hibernate batch their inserts: with IDENTITY every row has to be inserted on
+ * its own to learn its id.
+ */
+public final class IdGenerators {
+
+    public static final String TABLE = "tbl_id_generators";
+    public static final String NAME_COLUMN = "name";
+    public static final String VALUE_COLUMN = "next_val";
+
+    public static final int ALLOCATION_SIZE = 50;
+
+    public static final String NOTES = "notes";
+    public static final String SYNC_TOMBSTONES = "sync_tombstones";
+    public static final String NOTE_REVISIONS = "note_revisions";
+    public static final String FILES = "files";
+
+    private IdGenerators() {
+    }
+}
@@ -0,0 +1,56 @@
+package com.drivelocker.DriveLocker.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One saved version of a note. Every notes.revisions.snapshot-interval revisions, and whenever
+ * a delta would not be smaller, the full text is stored; in between, only the forward delta
+ * from the previous revision. A revision is rebuilt from its chain's snapshot (baseRevision)
+ * forwards.
+ */
+@Entity
+@Table(name = "tbl_note_revisions",
+        uniqueConstraints = @UniqueConstraint(name = "uk_note_revisions_note_revision", columnNames = {"noteId", "revision"}),
+        indexes = @Index(name = "idx_note_revisions_created", columnList = "createdAt"))
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class NoteRevision {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "note_revision_ids")
+    @TableGenerator(name = "note_revision_ids", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.NOTE_REVISIONS, allocationSize = IdGenerators.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(nullable = false)
+    private Integer noteId;
+
+    // Numbered from 1 per note
+    @Column(nullable = false)
+    private Integer revision;
+
+    // The snapshot this revision is rebuilt from; its own number if it is a snapshot
+    @Column(nullable = false)
+    private Integer baseRevision;
+
+    @Column(nullable = false)
+    private Boolean snapshot;
+
+    private String title;
+
+    // The full text for a snapshot, otherwise the delta from the previous revision
+    @Column(columnDefinition = "mediumtext")
+    private String content;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -11,6 +11,11 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(indexes = {
+        // Serve the keyset-paginated listing, with and without the favourite filter
+        @Index(name = "idx_notes_user_updated", columnList = "userEmail, lastUpdatedAt, id"),
+        @Index(name = "idx_notes_user_favourite_updated", columnList = "userEmail, isFavourate, lastUpdatedAt, id"),
+        @Index(name = "idx_notes_user_change", columnList = "userEmail, changeSeq")})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -18,7 +23,10 @@ import java.time.LocalDateTime;
 public class Notes {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "notes_ids")
+    @TableGenerator(name = "notes_ids", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.NOTES, allocationSize = IdGenerators.ALLOCATION_SIZE)
     private Integer id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -36,4 +44,12 @@ public class Notes {
 
     private String notes;
 
+    // Optimistic lock, also the note's ETag; the default fills in rows created before it existed
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
+
+    // Position in the owner's change sequence of the last create or update, for delta sync
+    private Long changeSeq;
+
 }
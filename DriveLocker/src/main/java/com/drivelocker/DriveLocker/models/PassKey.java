@@ -20,4 +20,7 @@ public class PassKey {
     private User user;
 
     private String passKey;
+
+    // Base64 PBKDF2 salt for deriving the key that wraps this user's file keys; set once on first use
+    private String keySalt;
 }
\ No newline at end of file
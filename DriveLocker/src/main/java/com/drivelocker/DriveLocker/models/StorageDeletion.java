@@ -0,0 +1,47 @@
+package com.drivelocker.DriveLocker.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox entry for an object that must be removed from the storage backend. It is written in
+ * the same transaction that drops the last reference to the object and is removed once the
+ * backend confirms the delete.
+ */
+@Entity
+@Table(name = "tbl_storage_deletions", indexes = @Index(columnList = "status, nextAttemptAt"))
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class StorageDeletion {
+
+    public static final String PENDING = "PENDING";
+    public static final String DEAD = "DEAD"; // Gave up after storage.deletions.max-attempts
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String objectId;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt; // Also serves as the lease while a worker holds the entry
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+}
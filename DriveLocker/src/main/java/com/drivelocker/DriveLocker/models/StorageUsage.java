@@ -0,0 +1,31 @@
+package com.drivelocker.DriveLocker.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Running totals of a user's files, kept in step with tbl_files on every upload and delete
+ * so usage can be read without aggregating over the user's files.
+ */
+@Entity
+@Table(name = "tbl_storage_usage")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class StorageUsage {
+
+    @Id
+    private String userEmail;
+
+    @Column(nullable = false)
+    private Long usedBytes;
+
+    @Column(nullable = false)
+    private Long fileCount;
+
+    private Long quotaBytes; // Per-user override; null means storage.quota.default-bytes
+}
@@ -0,0 +1,73 @@
+package com.drivelocker.DriveLocker.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stored object in the storage backend, shared by every File row of the same
+ * user that has identical content.
+ */
+@Entity
+@Table(name = "tbl_stored_content",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"userEmail", "contentHash"}))
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class StoredContent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "userEmail", referencedColumnName = "email")
+    @JsonIgnore
+    private User user;
+
+    @Column(nullable = false, length = 64)
+    private String contentHash; // Hex-encoded SHA-256 of the content
+
+    @Column(nullable = false)
+    private String objectId; // Id of the object in the storage backend
+
+    @Column(nullable = false)
+    private String fileUrl;
+
+    @Column(nullable = false)
+    private String fileType;
+
+    private Long bytes; // Length of the original content, before any compression
+
+    @Column(length = 16)
+    private String codec; // Compression the object is stored with; null when stored as is
+
+    // Encryption of the object; all null when it is stored in plaintext
+    @Column(length = 128)
+    private String wrappedKey; // Base64 data key, sealed with the owner's passkey-derived key
+
+    @Column(length = 16)
+    private String noncePrefix; // Base64
+
+    private Integer segmentSize;
+
+    @Column(nullable = false)
+    private Long refCount; // Number of File rows pointing at this object
+
+    private LocalDateTime createdAt;
+
+    // Derivatives made in the background after upload; null until generated or if the type has none
+    private String thumbnailObjectId;
+
+    private String thumbnailUrl;
+
+    private String previewObjectId;
+
+    private String previewUrl;
+}
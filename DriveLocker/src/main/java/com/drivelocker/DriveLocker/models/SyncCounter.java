@@ -0,0 +1,31 @@
+package com.drivelocker.DriveLocker.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A user's change sequence. Every note and file write takes the next numbers in the same
+ * transaction, so the row lock orders commits by sequence number and a sync token never
+ * skips a change that commits later.
+ */
+@Entity
+@Table(name = "tbl_sync_counters")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class SyncCounter {
+
+    @Id
+    private String userEmail;
+
+    @Column(nullable = false)
+    private Long lastSeq;
+
+    // Tombstones up to here have been purged; older tokens need a full resync
+    @Column(nullable = false)
+    private Long purgedSeq;
+}
@@ -0,0 +1,51 @@
+package com.drivelocker.DriveLocker.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records that a note or file was deleted, so clients syncing from an older token learn to
+ * drop it. Kept for sync.tombstones.retention-days.
+ */
+@Entity
+@Table(name = "tbl_sync_tombstones",
+        indexes = {
+                @Index(name = "idx_tombstones_user_seq", columnList = "userEmail, changeSeq"),
+                @Index(name = "idx_tombstones_deleted", columnList = "deletedAt")})
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class SyncTombstone {
+
+    public static final String NOTE = "NOTE";
+    public static final String FILE = "FILE";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "sync_tombstone_ids")
+    @TableGenerator(name = "sync_tombstone_ids", table = IdGenerators.TABLE,
+            pkColumnName = IdGenerators.NAME_COLUMN, valueColumnName = IdGenerators.VALUE_COLUMN,
+            pkColumnValue = IdGenerators.SYNC_TOMBSTONES, allocationSize = IdGenerators.ALLOCATION_SIZE)
+    private Long id;
+
+    @Column(nullable = false)
+    private String userEmail;
+
+    @Column(nullable = false, length = 8)
+    private String kind;
+
+    // The note id, or the file's public id
+    @Column(nullable = false)
+    private String itemId;
+
+    @Column(nullable = false)
+    private Long changeSeq;
+
+    @Column(nullable = false)
+    private LocalDateTime deletedAt;
+}
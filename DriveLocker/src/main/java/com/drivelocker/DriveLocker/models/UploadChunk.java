@@ -0,0 +1,32 @@
+package com.drivelocker.DriveLocker.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A byte range of an upload session that has been fully written to its part file.
+ */
+@Entity
+@Table(name = "tbl_upload_chunks", indexes = @Index(columnList = "sessionId, chunkOffset"))
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class UploadChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String sessionId;
+
+    @Column(nullable = false)
+    private Long chunkOffset;
+
+    @Column(nullable = false)
+    private Long chunkLength;
+}
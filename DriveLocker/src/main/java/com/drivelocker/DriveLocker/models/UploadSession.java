@@ -0,0 +1,45 @@
+package com.drivelocker.DriveLocker.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A resumable upload in progress. The received bytes live in a part file on local disk
+ * until the session is completed.
+ */
+@Entity
+@Table(name = "tbl_upload_sessions")
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+public class UploadSession {
+
+    @Id
+    private String id; // Random UUID handed to the client
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "userEmail", referencedColumnName = "email")
+    @JsonIgnore
+    private User user;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    @Column(nullable = false)
+    private Long totalBytes;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime expiresAt;
+
+    // Set while a complete request is storing the file, so a second one does not store it again
+    @Column(columnDefinition = "bit default 0")
+    private Boolean completing;
+}
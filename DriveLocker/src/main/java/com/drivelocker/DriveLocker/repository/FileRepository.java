@@ -1,6 +1,9 @@
 package com.drivelocker.DriveLocker.repository;
 
+import com.drivelocker.DriveLocker.io.FileSummary;
+import com.drivelocker.DriveLocker.io.SyncedFile;
 import com.drivelocker.DriveLocker.models.File;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,12 +11,92 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface FileRepository extends JpaRepository<File, Long> {
 
-    List<File> findByUserEmail(String email);
+    /**
+     * The URL handed out in listings, as FileLinkService.urlFor decides it: sealed or
+     * compressed content and unservable local:// objects are linked to the content endpoint,
+     * everything else to its raw storage URL.
+     */
+    String FILE_URL = "CASE WHEN c.wrappedKey IS NOT NULL OR c.codec IS NOT NULL OR f.fileUrl LIKE 'local://%' "
+            + "THEN CONCAT(:contentUrlPrefix, f.publicId, '/content') ELSE f.fileUrl END AS fileUrl, ";
+
+    @Query("SELECT COALESCE(MAX(f.id), 0) FROM File f")
+    long findMaxId();
+
+    /**
+     * One page of a user's files, newest first, strictly after the (createdAt, id) cursor.
+     */
+    @Query("SELECT f.id AS id, f.publicId AS publicId, f.fileName AS fileName, " + FILE_URL
+            + "f.fileType AS fileType, f.createdAt AS createdAt, "
+            + "c.thumbnailUrl AS thumbnailUrl, c.previewUrl AS previewUrl FROM File f LEFT JOIN f.content c "
+            + "WHERE f.user.email = :email AND (:fileType IS NULL OR f.fileType = :fileType) "
+            + "AND (f.createdAt < :createdAt OR (f.createdAt = :createdAt AND f.id < :id)) "
+            + "ORDER BY f.createdAt DESC, f.id DESC")
+    List<FileSummary> findPageDesc(@Param("email") String email,
+                                   @Param("contentUrlPrefix") String contentUrlPrefix,
+                                   @Param("fileType") String fileType,
+                                   @Param("createdAt") LocalDateTime createdAt,
+                                   @Param("id") Long id,
+                                   Limit limit);
+
+    /**
+     * One page of a user's files, oldest first, strictly after the (createdAt, id) cursor.
+     */
+    @Query("SELECT f.id AS id, f.publicId AS publicId, f.fileName AS fileName, " + FILE_URL
+            + "f.fileType AS fileType, f.createdAt AS createdAt, "
+            + "c.thumbnailUrl AS thumbnailUrl, c.previewUrl AS previewUrl FROM File f LEFT JOIN f.content c "
+            + "WHERE f.user.email = :email AND (:fileType IS NULL OR f.fileType = :fileType) "
+            + "AND (f.createdAt > :createdAt OR (f.createdAt = :createdAt AND f.id > :id)) "
+            + "ORDER BY f.createdAt ASC, f.id ASC")
+    List<FileSummary> findPageAsc(@Param("email") String email,
+                                  @Param("contentUrlPrefix") String contentUrlPrefix,
+                                  @Param("fileType") String fileType,
+                                  @Param("createdAt") LocalDateTime createdAt,
+                                  @Param("id") Long id,
+                                  Limit limit);
+
+    List<File> findByPublicIdInAndUserEmail(List<String> publicIds, String email);
+
+    /**
+     * A user's files changed after the given sequence number, oldest change first.
+     */
+    @Query("SELECT f.id AS id, f.publicId AS publicId, f.fileName AS fileName, " + FILE_URL
+            + "f.fileType AS fileType, f.createdAt AS createdAt, "
+            + "c.thumbnailUrl AS thumbnailUrl, c.previewUrl AS previewUrl, f.changeSeq AS changeSeq "
+            + "FROM File f LEFT JOIN f.content c "
+            + "WHERE f.user.email = :email AND f.changeSeq > :since ORDER BY f.changeSeq ASC")
+    List<SyncedFile> findChangedSince(@Param("email") String email, @Param("since") long since,
+                                      @Param("contentUrlPrefix") String contentUrlPrefix, Limit limit);
+
+    @Query("SELECT COALESCE(MAX(f.id), 0) FROM File f WHERE f.user.email = :email AND f.changeSeq IS NULL")
+    long findMaxUnsequencedId(@Param("email") String email);
+
+    /**
+     * Numbers files saved before the change sequence existed, offset by their ids.
+     */
+    @Modifying
+    @Query("UPDATE File f SET f.changeSeq = f.id + :offset WHERE f.user.email = :email AND f.changeSeq IS NULL")
+    int assignSequence(@Param("email") String email, @Param("offset") long offset);
+
+    /**
+     * Total bytes and number of a user's files; only used to seed the usage counter.
+     */
+    @Query("SELECT COALESCE(SUM(f.bytes), 0), COUNT(f) FROM File f WHERE f.user.email = :email")
+    List<Object[]> sumUsageByUserEmail(@Param("email") String email);
+
+    @Query("SELECT f FROM File f LEFT JOIN FETCH f.content WHERE f.publicId = :publicId AND f.user.email = :email")
+    Optional<File> findWithContentByPublicIdAndUserEmail(@Param("publicId") String publicId,
+                                                         @Param("email") String email);
+
+    @Query("SELECT f FROM File f LEFT JOIN FETCH f.content WHERE f.publicId IN :publicIds AND f.user.email = :email")
+    List<File> findWithContentByPublicIdInAndUserEmail(@Param("publicIds") List<String> publicIds,
+                                                       @Param("email") String email);
 
 
 
@@ -0,0 +1,61 @@
+package com.drivelocker.DriveLocker.repository;
+
+import com.drivelocker.DriveLocker.io.NoteRevisionSummary;
+import com.drivelocker.DriveLocker.models.NoteRevision;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface NoteRevisionRepository extends JpaRepository<NoteRevision, Long> {
+
+    Optional<NoteRevision> findByNoteIdAndRevision(Integer noteId, Integer revision);
+
+    List<NoteRevision> findByNoteIdAndRevisionBetweenOrderByRevisionAsc(Integer noteId, Integer from, Integer to);
+
+    @Query("SELECT r.revision AS revision, r.title AS title, r.snapshot AS snapshot, "
+            + "LENGTH(r.content) AS storedSize, r.createdAt AS createdAt FROM NoteRevision r "
+            + "WHERE r.noteId = :noteId ORDER BY r.revision DESC")
+    List<NoteRevisionSummary> findSummaries(@Param("noteId") Integer noteId);
+
+    /**
+     * The newest revision of each of the notes.
+     */
+    @Query("SELECT r FROM NoteRevision r WHERE r.noteId IN :noteIds AND r.revision = "
+            + "(SELECT MAX(r2.revision) FROM NoteRevision r2 WHERE r2.noteId = r.noteId)")
+    List<NoteRevision> findLatest(@Param("noteIds") Collection<Integer> noteIds);
+
+    /**
+     * Per note, the oldest and newest revision created before the cutoff, for notes with more
+     * than one such revision.
+     */
+    @Query("SELECT r.noteId, MIN(r.revision), MAX(r.revision) FROM NoteRevision r WHERE r.createdAt < :cutoff "
+            + "GROUP BY r.noteId HAVING MIN(r.revision) < MAX(r.revision)")
+    List<Object[]> findCompactionMarks(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Points the deltas after a revision that was turned into a snapshot at it.
+     */
+    @Modifying
+    @Query("UPDATE NoteRevision r SET r.baseRevision = :revision "
+            + "WHERE r.noteId = :noteId AND r.baseRevision = :oldBase AND r.revision > :revision")
+    int rebase(@Param("noteId") Integer noteId, @Param("oldBase") Integer oldBase, @Param("revision") Integer revision);
+
+    @Modifying
+    @Query("DELETE FROM NoteRevision r WHERE r.noteId = :noteId AND r.revision < :revision")
+    int deleteOlderThan(@Param("noteId") Integer noteId, @Param("revision") Integer revision);
+
+    @Modifying
+    @Query("DELETE FROM NoteRevision r WHERE r.noteId IN :noteIds")
+    int deleteByNoteIds(@Param("noteIds") Collection<Integer> noteIds);
+
+    @Query("SELECT COALESCE(MAX(r.id), 0) FROM NoteRevision r")
+    long findMaxId();
+}
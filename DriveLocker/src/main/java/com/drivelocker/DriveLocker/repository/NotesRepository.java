@@ -1,11 +1,19 @@
 package com.drivelocker.DriveLocker.repository;
 
+import com.drivelocker.DriveLocker.io.NoteSummary;
 import com.drivelocker.DriveLocker.models.Notes;
+import org.springframework.data.domain.Limit;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,10 +22,90 @@ public interface NotesRepository extends JpaRepository<Notes, Integer> {
 
     List<Notes> findByUserEmail(String email);
 
+    Optional<Notes> findByIdAndUserEmail(Integer id, String email);
+
+    boolean existsByIdAndUserEmail(Integer id, String email);
+
+    List<Notes> findByIdInAndUserEmail(Collection<Integer> ids, String email);
+
+    /**
+     * Loads a note and locks its row until the transaction ends, so that concurrent edits of
+     * the note (and the revisions they record) happen one after another.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT n FROM Notes n WHERE n.id = :id")
+    Optional<Notes> findByIdForUpdate(@Param("id") Integer id);
+
+    /**
+     * Loads the user's notes with these ids and locks their rows until the transaction ends.
+     * Rows are locked in id order, so two bulk edits of overlapping notes cannot deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT n FROM Notes n WHERE n.id IN :ids AND n.user.email = :email ORDER BY n.id")
+    List<Notes> findByIdInAndUserEmailForUpdate(@Param("ids") Collection<Integer> ids, @Param("email") String email);
+
+    List<Notes> findByUserEmailAndTitleIn(String email, Collection<String> titles);
+
+    @Query("SELECT COALESCE(MAX(n.id), 0) FROM Notes n")
+    long findMaxId();
+
+    List<Notes> findByUserEmailAndChangeSeqGreaterThanOrderByChangeSeqAsc(String email, Long changeSeq, Limit limit);
+
+    @Query("SELECT COALESCE(MAX(n.id), 0) FROM Notes n WHERE n.user.email = :email AND n.changeSeq IS NULL")
+    long findMaxUnsequencedId(@Param("email") String email);
+
+    /**
+     * Numbers notes saved before the change sequence existed, offset by their ids.
+     */
+    @Modifying
+    @Query("UPDATE Notes n SET n.changeSeq = n.id + :offset WHERE n.user.email = :email AND n.changeSeq IS NULL")
+    int assignSequence(@Param("email") String email, @Param("offset") long offset);
+
+    /**
+     * One page of a user's note summaries, most recently updated first, strictly after the
+     * (lastUpdatedAt, id) cursor.
+     */
+    @Query("SELECT n.id AS id, n.title AS title, n.isFavourate AS isFavourate, n.lastUpdatedAt AS lastUpdatedAt, "
+            + "SUBSTRING(n.notes, 1, 120) AS snippet FROM Notes n "
+            + "WHERE n.user.email = :email AND (:favourite IS NULL OR n.isFavourate = :favourite) "
+            + "AND (n.lastUpdatedAt < :updatedAt OR (n.lastUpdatedAt = :updatedAt AND n.id < :id)) "
+            + "ORDER BY n.lastUpdatedAt DESC, n.id DESC")
+    List<NoteSummary> findPageDesc(@Param("email") String email,
+                                   @Param("favourite") Boolean favourite,
+                                   @Param("updatedAt") LocalDateTime updatedAt,
+                                   @Param("id") Integer id,
+                                   Limit limit);
+
+    /**
+     * One page of a user's note summaries, least recently updated first, strictly after the
+     * (lastUpdatedAt, id) cursor.
+     */
+    @Query("SELECT n.id AS id, n.title AS title, n.isFavourate AS isFavourate, n.lastUpdatedAt AS lastUpdatedAt, "
+            + "SUBSTRING(n.notes, 1, 120) AS snippet FROM Notes n "
+            + "WHERE n.user.email = :email AND (:favourite IS NULL OR n.isFavourate = :favourite) "
+            + "AND (n.lastUpdatedAt > :updatedAt OR (n.lastUpdatedAt = :updatedAt AND n.id > :id)) "
+            + "ORDER BY n.lastUpdatedAt ASC, n.id ASC")
+    List<NoteSummary> findPageAsc(@Param("email") String email,
+                                  @Param("favourite") Boolean favourite,
+                                  @Param("updatedAt") LocalDateTime updatedAt,
+                                  @Param("id") Integer id,
+                                  Limit limit);
+
     @Transactional
     @Modifying
     void deleteByIdInAndUserEmail(List<Integer> ids, String email);
 
+    /**
+     * Deletes notes in one statement, without loading them first. The ids must already be
+     * checked to belong to the user.
+     */
+    @Modifying
+    @Query("DELETE FROM Notes n WHERE n.id IN :ids")
+    int deleteAllByIdInBulk(@Param("ids") List<Integer> ids);
+
+    @Query("SELECT n.id FROM Notes n WHERE n.id IN :ids AND n.user.email = :email")
+    List<Integer> findIdsByIdInAndUserEmail(@Param("ids") List<Integer> ids, @Param("email") String email);
+
     /**
      * Finds a note by its title and the associated user's email.
      * This is used to check for duplicate titles for a specific user.
@@ -27,4 +115,10 @@ public interface NotesRepository extends JpaRepository<Notes, Integer> {
      * @return An Optional containing the note if found, otherwise an empty Optional.
      */
     Optional<Notes> findByTitleAndUserEmail(String title, String userEmail);
+
+    /**
+     * The emails of all users who have at least one note, for rebuilding the search index.
+     */
+    @Query("select distinct n.user.email from Notes n")
+    List<String> findDistinctUserEmails();
 }
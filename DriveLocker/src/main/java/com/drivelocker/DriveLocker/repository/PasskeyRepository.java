@@ -2,7 +2,11 @@ package com.drivelocker.DriveLocker.repository;
 
 import com.drivelocker.DriveLocker.models.PassKey;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -10,4 +14,15 @@ import java.util.Optional;
 public interface PasskeyRepository extends JpaRepository<PassKey,Integer> {
 
     Optional<PassKey> findByUserEmail(String email);
+
+    /**
+     * Sets the key salt only if none is set yet, so concurrent first uploads agree on one salt.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE PassKey p SET p.keySalt = :salt WHERE p.id = :id AND p.keySalt IS NULL")
+    int initKeySalt(@Param("id") Integer id, @Param("salt") String salt);
+
+    @Query("SELECT p.keySalt FROM PassKey p WHERE p.id = :id")
+    String findKeySaltById(@Param("id") Integer id);
 }
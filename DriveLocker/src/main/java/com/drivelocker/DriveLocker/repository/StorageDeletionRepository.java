@@ -0,0 +1,32 @@
+package com.drivelocker.DriveLocker.repository;
+
+import com.drivelocker.DriveLocker.models.StorageDeletion;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StorageDeletionRepository extends JpaRepository<StorageDeletion, Long> {
+
+    /**
+     * Locks pending deletions that are due, skipping rows another node has locked, so
+     * concurrent workers claim disjoint sets.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    // -2 is Hibernate's SKIP LOCKED timeout
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT d FROM StorageDeletion d WHERE d.status = 'PENDING' AND d.nextAttemptAt <= :now "
+            + "ORDER BY d.nextAttemptAt")
+    List<StorageDeletion> lockDue(@Param("now") LocalDateTime now, Limit limit);
+
+    long countByStatus(String status);
+}
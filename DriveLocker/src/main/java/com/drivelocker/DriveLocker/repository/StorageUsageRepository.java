@@ -0,0 +1,33 @@
+package com.drivelocker.DriveLocker.repository;
+
+import com.drivelocker.DriveLocker.models.StorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface StorageUsageRepository extends JpaRepository<StorageUsage, String> {
+
+    /**
+     * Adds to a user's usage only if the result stays within the quota. The check and the
+     * increment are one statement, so concurrent uploads cannot overshoot together.
+     * @return 1 if reserved, 0 if the quota would be exceeded.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE StorageUsage u SET u.usedBytes = u.usedBytes + :bytes, u.fileCount = u.fileCount + :files "
+            + "WHERE u.userEmail = :email AND u.usedBytes + :bytes <= COALESCE(u.quotaBytes, :defaultQuota)")
+    int reserve(@Param("email") String email,
+                @Param("bytes") long bytes,
+                @Param("files") long files,
+                @Param("defaultQuota") long defaultQuota);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE StorageUsage u SET u.usedBytes = u.usedBytes - :bytes, u.fileCount = u.fileCount - :files "
+            + "WHERE u.userEmail = :email")
+    int release(@Param("email") String email, @Param("bytes") long bytes, @Param("files") long files);
+}
@@ -0,0 +1,46 @@
+package com.drivelocker.DriveLocker.repository;
+
+import com.drivelocker.DriveLocker.models.StoredContent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredContentRepository extends JpaRepository<StoredContent, Long> {
+
+    /**
+     * Finds and row-locks the stored object for a user's content hash, so the reference
+     * count can be changed without racing a concurrent upload or delete.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<StoredContent> findByUserEmailAndContentHash(String email, String contentHash);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM StoredContent c WHERE c.id IN :ids")
+    List<StoredContent> lockAllByIdIn(@Param("ids") List<Long> ids);
+
+    /**
+     * Records generated derivatives, unless the content was deleted or another worker got
+     * there first. Only touches the derivative columns so concurrent reference count
+     * changes are not overwritten.
+     * @return 1 if recorded, 0 otherwise.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE StoredContent c SET c.thumbnailObjectId = :thumbnailObjectId, c.thumbnailUrl = :thumbnailUrl, "
+            + "c.previewObjectId = :previewObjectId, c.previewUrl = :previewUrl "
+            + "WHERE c.id = :id AND c.thumbnailObjectId IS NULL")
+    int setDerivatives(@Param("id") Long id,
+                       @Param("thumbnailObjectId") String thumbnailObjectId,
+                       @Param("thumbnailUrl") String thumbnailUrl,
+                       @Param("previewObjectId") String previewObjectId,
+                       @Param("previewUrl") String previewUrl);
+}
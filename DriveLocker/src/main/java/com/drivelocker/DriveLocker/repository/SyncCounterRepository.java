@@ -0,0 +1,29 @@
+package com.drivelocker.DriveLocker.repository;
+
+import com.drivelocker.DriveLocker.models.SyncCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SyncCounterRepository extends JpaRepository<SyncCounter, String> {
+
+    /**
+     * Advances a user's sequence, locking the row until the calling transaction ends.
+     * @return 1 if advanced, 0 if the user has no counter yet.
+     */
+    @Modifying
+    @Query("UPDATE SyncCounter c SET c.lastSeq = c.lastSeq + :count WHERE c.userEmail = :email")
+    int advance(@Param("email") String email, @Param("count") long count);
+
+    @Query("SELECT c.lastSeq FROM SyncCounter c WHERE c.userEmail = :email")
+    Optional<Long> findLastSeq(@Param("email") String email);
+
+    @Modifying
+    @Query("UPDATE SyncCounter c SET c.purgedSeq = :seq WHERE c.userEmail = :email AND c.purgedSeq < :seq")
+    int markPurged(@Param("email") String email, @Param("seq") long seq);
+}
@@ -0,0 +1,32 @@
+package com.drivelocker.DriveLocker.repository;
+
+import com.drivelocker.DriveLocker.models.SyncTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SyncTombstoneRepository extends JpaRepository<SyncTombstone, Long> {
+
+    List<SyncTombstone> findByUserEmailAndChangeSeqGreaterThanOrderByChangeSeqAsc(String userEmail, Long changeSeq,
+                                                                                  Limit limit);
+
+    /**
+     * The newest tombstone per user among those about to be purged.
+     */
+    @Query("SELECT t.userEmail, MAX(t.changeSeq) FROM SyncTombstone t WHERE t.deletedAt < :cutoff GROUP BY t.userEmail")
+    List<Object[]> findPurgeMarks(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("DELETE FROM SyncTombstone t WHERE t.deletedAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT COALESCE(MAX(t.id), 0) FROM SyncTombstone t")
+    long findMaxId();
+}
@@ -0,0 +1,47 @@
+package com.drivelocker.DriveLocker.repository;
+
+import com.drivelocker.DriveLocker.models.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    Optional<UploadSession> findByIdAndUserEmail(String id, String email);
+
+    List<UploadSession> findByExpiresAtBefore(LocalDateTime time);
+
+    /**
+     * Claims a session for completing or aborting it, unless another request already has,
+     * and moves its expiry out so the purge leaves it alone meanwhile.
+     * @return 1 if this caller claimed the session, 0 if another one got there first.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.completing = true, s.expiresAt = :expiresAt "
+            + "WHERE s.id = :id AND (s.completing IS NULL OR s.completing = false)")
+    int claim(@Param("id") String id, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Claims a session for discarding it if it has expired. A session claimed by a complete
+     * only matches once its extended expiry has passed too, i.e. the complete never finished.
+     * @return 1 if this caller claimed the session, 0 if it is not expired.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.completing = true WHERE s.id = :id AND s.expiresAt < :now")
+    int claimExpired(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.completing = false WHERE s.id = :id")
+    int releaseCompletion(@Param("id") String id);
+}
@@ -0,0 +1,128 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.InvalidUploadException;
+import com.drivelocker.DriveLocker.exceptions.UploadQueueFullException;
+import com.drivelocker.DriveLocker.io.BatchUploadResponse;
+import com.drivelocker.DriveLocker.io.BatchUploadResult;
+import com.drivelocker.DriveLocker.models.File;
+import com.drivelocker.DriveLocker.models.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Batch uploads: the passkey is checked once for the whole request, the parts are pushed to
+ * storage concurrently, and every part that was stored is saved in one transaction.
+ *
+ * Concurrency is capped twice: a per-request semaphore keeps one large batch from taking the
+ * whole pool, and the size of the shared batch pool bounds pushes across all requests.
+ */
+@Service
+@RequiredArgsConstructor
+public class BatchUploadService {
+
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+
+    private final FileService fileService;
+    private final FileLinkService fileLinkService;
+    private final ThreadPoolTaskExecutor batchUploadExecutor;
+
+    @Value("${uploads.batch.per-request-concurrency:4}")
+    private int perRequestConcurrency;
+
+    @Value("${uploads.batch.max-files:500}")
+    private int maxFiles;
+
+    /**
+     * Checks the passkey or unlock token once and uploads every part, reporting the outcome of each one.
+     * @return One result per part, in request order.
+     * @throws InvalidUploadException if the batch has more parts than uploads.batch.max-files.
+     */
+    public BatchUploadResponse upload(String email, String passkey, String unlockToken, List<MultipartFile> files) {
+        if (files.size() > maxFiles) {
+            throw new InvalidUploadException("A batch may contain at most " + maxFiles + " files.");
+        }
+        Unlocked unlocked = fileService.authorize(email, passkey, unlockToken);
+        User user = unlocked.user();
+        SecretKey key = unlocked.key();
+
+        Semaphore permits = new Semaphore(Math.max(1, perRequestConcurrency));
+        List<CompletableFuture<File>> pushes = new ArrayList<>(files.size());
+        for (MultipartFile file : files) {
+            permits.acquireUninterruptibly();
+            try {
+                pushes.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return fileService.storeUpload(user, key, file.getOriginalFilename(), file, file.getSize());
+                    } finally {
+                        permits.release();
+                    }
+                }, batchUploadExecutor));
+            } catch (TaskRejectedException e) {
+                permits.release();
+                pushes.add(CompletableFuture.failedFuture(
+                        new UploadQueueFullException("Upload queue is full, please retry shortly.")));
+            }
+        }
+
+        // Wait for every push, even after failures, so no stored content is left unaccounted for
+        BatchUploadResult[] results = new BatchUploadResult[files.size()];
+        List<File> stored = new ArrayList<>();
+        List<Integer> storedIndexes = new ArrayList<>();
+        for (int i = 0; i < pushes.size(); i++) {
+            try {
+                stored.add(pushes.get(i).join());
+                storedIndexes.add(i);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() == null ? e : e.getCause();
+                results[i] = failed(files.get(i).getOriginalFilename(), cause.getMessage());
+            }
+        }
+
+        if (!stored.isEmpty()) {
+            try {
+                List<File> saved = fileService.saveUploads(stored);
+                for (int j = 0; j < saved.size(); j++) {
+                    File file = saved.get(j);
+                    results[storedIndexes.get(j)] = BatchUploadResult.builder()
+                            .fileName(file.getFileName())
+                            .status(SUCCEEDED)
+                            .publicId(file.getPublicId())
+                            .fileUrl(fileLinkService.urlFor(file))
+                            .build();
+                }
+            } catch (RuntimeException e) {
+                for (int index : storedIndexes) {
+                    results[index] = failed(files.get(index).getOriginalFilename(), e.getMessage());
+                }
+            }
+        }
+
+        List<BatchUploadResult> resultList = List.of(results);
+        int succeeded = (int) resultList.stream().filter(result -> SUCCEEDED.equals(result.getStatus())).count();
+        return BatchUploadResponse.builder()
+                .succeeded(succeeded)
+                .failed(resultList.size() - succeeded)
+                .results(resultList)
+                .build();
+    }
+
+    private static BatchUploadResult failed(String fileName, String error) {
+        return BatchUploadResult.builder()
+                .fileName(fileName)
+                .status(FAILED)
+                .error(error)
+                .build();
+    }
+}
@@ -1,8 +1,13 @@
 // CloudinaryService.java
 package com.drivelocker.DriveLocker.service;
 
+import com.cloudinary.Api;
 import com.cloudinary.Cloudinary;
+import com.cloudinary.Uploader;
 import com.cloudinary.utils.ObjectUtils;
+import com.drivelocker.DriveLocker.cloudinary.CloudinaryTransport;
+import com.drivelocker.DriveLocker.cloudinary.PooledApiStrategy;
+import com.drivelocker.DriveLocker.cloudinary.PooledUploaderStrategy;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -11,8 +16,9 @@ import com.cloudinary.api.ApiResponse;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -21,32 +27,97 @@ import java.util.Objects;
 
 public class CloudinaryService {
 
-    @Value("${cloudinary.url}")
-    private String cloudinaryUrl;
+    /**
+     * How {@link #uploadFile(MultipartFile)} hands the multipart body to Cloudinary.
+     * TEMP_FILE copies the part to a local temp file first; STREAMING pipes the part's
+     * InputStream through Cloudinary's chunked uploader without touching local disk.
+     */
+    public enum UploadMode {
+        TEMP_FILE,
+        STREAMING
+    }
+
+    // Cloudinary rejects chunks smaller than 5 MB (except the last one)
+    private static final int MIN_CHUNK_SIZE = 5 * 1024 * 1024;
+
+    // Built once over the shared transport; Cloudinary.uploader() and api() would build a new client per call
+    private final Uploader uploader;
+
+    private final Api api;
 
-    private final Cloudinary cloudinary;
+    private final UploadMode uploadMode;
 
-    public CloudinaryService(@Value("${cloudinary.url}") String cloudinaryUrl) {
+    private final int chunkSize;
 
-        this.cloudinary = new Cloudinary(cloudinaryUrl);
+    public CloudinaryService(@Value("${cloudinary.url}") String cloudinaryUrl,
+                             @Value("${cloudinary.upload.mode:streaming}") UploadMode uploadMode,
+                             @Value("${cloudinary.upload.chunk-size:6291456}") int chunkSize,
+                             CloudinaryTransport cloudinaryTransport) {
+
+        Cloudinary cloudinary = new Cloudinary(cloudinaryUrl);
+        this.uploader = new Uploader(cloudinary, new PooledUploaderStrategy(cloudinaryTransport));
+        this.api = new Api(cloudinary, new PooledApiStrategy(cloudinaryTransport));
+        this.uploadMode = uploadMode;
+        this.chunkSize = Math.max(chunkSize, MIN_CHUNK_SIZE);
     }
 
     /**
-     * Uploads a single MultipartFile to Cloudinary.
+     * Uploads a single MultipartFile to Cloudinary using the configured upload mode.
      *
      * @param file The MultipartFile to upload.
      * @return A Map containing the upload result from Cloudinary (e.g., public_id, secure_url).
      * @throws IOException if an I/O error occurs.
      */
     public Map<String, Object> uploadFile(@NotNull MultipartFile file) throws IOException {
-        String originalFilename=file.getOriginalFilename();
+        return uploadFile(file, uploadMode);
+    }
+
+    /**
+     * Uploads a single MultipartFile to Cloudinary using the given upload mode.
+     *
+     * @param file The MultipartFile to upload.
+     * @param mode Whether to stage the file on local disk or stream it straight through.
+     * @return A Map containing the upload result from Cloudinary (e.g., public_id, secure_url).
+     * @throws IOException if an I/O error occurs.
+     */
+    public Map<String, Object> uploadFile(@NotNull MultipartFile file, UploadMode mode) throws IOException {
+        if (mode == UploadMode.STREAMING) {
+            try (InputStream in = file.getInputStream()) {
+                return uploadStream(in, file.getOriginalFilename());
+            }
+        }
+        return uploadViaTempFile(file);
+    }
+
+    /**
+     * Streams content to Cloudinary through the chunked upload API. At most two
+     * chunk-sized buffers are held at a time and they are reused for every chunk,
+     * so memory stays bounded regardless of the content length.
+     *
+     * @param in The content to upload. The caller owns and closes the stream.
+     * @param originalFilename The client-side name, used as the Cloudinary filename hint.
+     * @return A Map containing the upload result from Cloudinary (e.g., public_id, secure_url).
+     * @throws IOException if an I/O error occurs.
+     */
+    public Map<String, Object> uploadStream(@NotNull InputStream in, String originalFilename) throws IOException {
+        Map<String, Object> options = new HashMap<>();
+        options.put("resource_type", "auto");
+        if (originalFilename != null) {
+            options.put("filename", originalFilename);
+        }
+        try {
+            return typed(uploader.uploadLarge(in, options, chunkSize));
+        } catch (IOException e) {
+            System.err.println("Failed to stream file to Cloudinary: " + e.getMessage());
+            throw new RuntimeException("Failed to upload file", e);
+        }
+    }
+
+    private Map<String, Object> uploadViaTempFile(MultipartFile file) throws IOException {
         File tempFile = Files.createTempFile("temp", Objects.requireNonNull(file.getOriginalFilename())).toFile();
-//        tempFile.set=originalFilename;
         try {
             file.transferTo(tempFile);
-            Map<String, Object> uploadResult = cloudinary.uploader().upload(tempFile, ObjectUtils.emptyMap());
-
-            return uploadResult;
+            return typed(uploader.upload(tempFile, ObjectUtils.emptyMap()));
         } catch (IOException e) {
             System.err.println("Failed to upload file to Cloudinary: " + e.getMessage());
             throw new RuntimeException("Failed to upload file", e);
@@ -56,23 +127,46 @@ public class CloudinaryService {
     }
 
     /**
-     * Deletes multiple files from Cloudinary using their public IDs.
+     * Deletes multiple files of one resource type from Cloudinary using their public IDs.
      *
      * @param publicIds A List of public IDs of the files to delete.
+     * @param resourceType The Cloudinary resource type (image, raw or video).
      * @return A Map containing the deletion result from Cloudinary.
      * @throws Exception if a Cloudinary API error occurs.
      */
-    public Map<String, Object> deleteFiles(List<String> publicIds) throws Exception {
+    public Map<String, Object> deleteFiles(List<String> publicIds, String resourceType) throws Exception {
         try {
-//            List<String> publicIds = Collections.singletonList(publicId);
-            ApiResponse apiResponse = cloudinary.api().deleteResources(publicIds, ObjectUtils.emptyMap());
-            return apiResponse;
+            ApiResponse apiResponse = api.deleteResources(publicIds,
+                    ObjectUtils.asMap("resource_type", resourceType));
+            return typed(apiResponse);
         } catch (Exception e) {
             System.err.println("Failed to delete file from Cloudinary: " + e.getMessage());
             throw new RuntimeException("Failed to delete file", e);
         }
     }
 
+    /**
+     * Retrieves the details of a single resource from Cloudinary.
+     *
+     * @param publicId The public ID of the resource.
+     * @param resourceType The Cloudinary resource type (image, raw or video).
+     * @return A Map containing the resource details (e.g., secure_url, bytes, format).
+     * @throws com.cloudinary.api.exceptions.NotFound if no such resource exists.
+     * @throws Exception if a Cloudinary API error occurs.
+     */
+    public Map<String, Object> getResource(String publicId, String resourceType) throws Exception {
+        return typed(api.resource(publicId, ObjectUtils.asMap("resource_type", resourceType)));
+    }
+
+    /**
+     * Copies a result from the Cloudinary SDK, which returns raw maps, into a typed one.
+     */
+    private static Map<String, Object> typed(Map<?, ?> result) {
+        Map<String, Object> typed = new HashMap<>();
+        result.forEach((key, value) -> typed.put(String.valueOf(key), value));
+        return typed;
+    }
+
     /**
      * Retrieves file resources from Cloudinary using their public IDs.
      *
@@ -0,0 +1,144 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.FileStorageException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Optional compression of stored content. Uploads that look like text and are large enough
+ * are deflated on the way to storage and inflated again on the way out, both as streams, so a
+ * file is never held in memory as a whole.
+ *
+ * zlib (java.util.zip) is used rather than zstd so no native library is needed; the codec is
+ * recorded per object, so another one can be added later without touching existing files.
+ */
+@Service
+public class CompressionService {
+
+    public static final String DEFLATE = "deflate";
+
+    private static final int SNIFF_BYTES = 8 * 1024;
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    // Text formats that are worth compressing even if the sniffed head looks unusual
+    private static final Set<String> TEXT_TYPES = Set.of(
+            "txt", "csv", "tsv", "json", "ndjson", "log", "xml", "html", "htm", "md", "yaml", "yml",
+            "js", "css", "svg", "sql", "ini", "conf", "properties");
+
+    // Compressed files are linked to /files/{publicId}/content rather than their raw fileUrl
+    // (see FileLinkService), since the stored object is no longer the file itself
+    @Value("${compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${compression.min-bytes:4096}")
+    private long minBytes;
+
+    @Value("${compression.level:6}")
+    private int level;
+
+    /**
+     * Picks the codec for new content from its name, size and first few kilobytes.
+     * @return The codec to store the content with, or null to store it as is.
+     */
+    public String choose(InputStreamSource source, String originalName, long size) throws IOException {
+        if (!enabled || size < minBytes) {
+            return null;
+        }
+        if (TEXT_TYPES.contains(extensionOf(originalName))) {
+            return DEFLATE;
+        }
+        byte[] head;
+        try (InputStream in = source.getInputStream()) {
+            head = in.readNBytes(SNIFF_BYTES);
+        }
+        return looksLikeText(head) ? DEFLATE : null;
+    }
+
+    /**
+     * Wraps content so it is compressed with the given codec while being read.
+     */
+    public InputStreamSource compress(InputStreamSource source, String codec) {
+        requireKnown(codec);
+        return () -> {
+            Deflater deflater = new Deflater(level);
+            InputStream in = source.getInputStream();
+            return new DeflaterInputStream(in, deflater, STREAM_BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        // Free the native zlib state right away instead of waiting for GC
+                        deflater.end();
+                    }
+                }
+            };
+        };
+    }
+
+    /**
+     * Wraps a stored stream so it yields the original content.
+     */
+    public InputStream decompress(InputStream in, String codec) {
+        requireKnown(codec);
+        Inflater inflater = new Inflater();
+        return new InflaterInputStream(in, inflater, STREAM_BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Text if there are no NUL bytes and almost everything is printable ASCII, whitespace or
+     * part of a multi-byte UTF-8 sequence. Compressed formats (images, archives, PDFs' binary
+     * streams) fail this quickly.
+     */
+    private static boolean looksLikeText(byte[] head) {
+        if (head.length == 0) {
+            return false;
+        }
+        int suspicious = 0;
+        for (byte b : head) {
+            int c = b & 0xff;
+            if (c == 0) {
+                return false;
+            }
+            boolean text = (c >= 0x20 && c != 0x7f) || c == '\n' || c == '\r' || c == '\t' || c == '\f';
+            if (!text) {
+                suspicious++;
+            }
+        }
+        return suspicious * 100 < head.length;
+    }
+
+    private static void requireKnown(String codec) {
+        if (!DEFLATE.equals(codec)) {
+            throw new FileStorageException("Unsupported compression codec: " + codec);
+        }
+    }
+
+    private static String extensionOf(String name) {
+        if (name == null) {
+            return "";
+        }
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,9 @@
+package com.drivelocker.DriveLocker.service;
+
+/**
+ * Published once a File row pointing at some stored content has been saved.
+ *
+ * @param contentId The id of the StoredContent the new file uses.
+ */
+public record ContentStoredEvent(Long contentId) {
+}
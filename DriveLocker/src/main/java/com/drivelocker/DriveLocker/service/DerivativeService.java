@@ -0,0 +1,191 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.models.StoredContent;
+import com.drivelocker.DriveLocker.repository.StoredContentRepository;
+import com.drivelocker.DriveLocker.storage.StorageBackend;
+import com.drivelocker.DriveLocker.storage.StoredObject;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Makes thumbnails and previews of uploaded images in the background. Uploads only publish
+ * an event; the work runs after commit on a bounded pool, and the results are stored through
+ * the storage backend next to the original and shared by every file with that content.
+ *
+ * Only formats ImageIO can decode get derivatives. Documents such as PDFs would need a page
+ * renderer, which is not among the application's dependencies, so they are skipped.
+ */
+@Service
+@RequiredArgsConstructor
+public class DerivativeService {
+
+    private static final Set<String> SUPPORTED_TYPES = Set.of(ImageIO.getReaderFileSuffixes());
+
+    private final StoredContentRepository storedContentRepository;
+    private final StorageBackend storageBackend;
+    private final StorageDeletionService storageDeletionService;
+    private final ThreadPoolTaskExecutor derivativeExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${derivatives.enabled:true}")
+    private boolean enabled;
+
+    @Value("${derivatives.thumbnail-size:256}")
+    private int thumbnailSize;
+
+    @Value("${derivatives.preview-size:1024}")
+    private int previewSize;
+
+    @Value("${derivatives.max-source-bytes:52428800}")
+    private long maxSourceBytes;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("drivelocker.derivatives.queue", derivativeExecutor,
+                        executor -> executor.getThreadPoolExecutor().getQueue().size())
+                .description("Derivative jobs waiting for a worker")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues derivative generation for content that does not have any yet.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentStored(ContentStoredEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            derivativeExecutor.execute(() -> generate(event.contentId()));
+        } catch (TaskRejectedException e) {
+            // The upload itself succeeded; the file just keeps showing the original
+            System.err.println("Derivative queue full, skipping content " + event.contentId());
+        }
+    }
+
+    /**
+     * Whether derivatives are ever made for content of this type.
+     */
+    public boolean supports(String fileType) {
+        return fileType != null && SUPPORTED_TYPES.contains(fileType.toLowerCase(Locale.ROOT));
+    }
+
+    private void generate(Long contentId) {
+        StoredContent content = storedContentRepository.findById(contentId).orElse(null);
+        if (content == null || content.getThumbnailObjectId() != null || content.getCodec() != null
+                || content.getWrappedKey() != null
+                || !supports(content.getFileType())
+                || (content.getBytes() != null && content.getBytes() > maxSourceBytes)) {
+            return;
+        }
+
+        List<String> created = new ArrayList<>();
+        try {
+            BufferedImage source = read(content, previewSize);
+            if (source == null) {
+                return;
+            }
+            StoredObject preview = store(scale(source, previewSize), "preview.jpg");
+            created.add(preview.getObjectId());
+            StoredObject thumbnail = store(scale(source, thumbnailSize), "thumbnail.jpg");
+            created.add(thumbnail.getObjectId());
+
+            int updated = storedContentRepository.setDerivatives(contentId,
+                    thumbnail.getObjectId(), thumbnail.getUrl(), preview.getObjectId(), preview.getUrl());
+            if (updated == 0) {
+                // Content deleted meanwhile, or a duplicate upload generated them first
+                storageDeletionService.enqueue(created);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to generate derivatives for content " + contentId + ": " + e.getMessage());
+            if (!created.isEmpty()) {
+                storageDeletionService.enqueue(created);
+            }
+        }
+    }
+
+    /**
+     * Decodes the original, subsampling large images while reading so the decoded bitmap is
+     * not much bigger than the largest derivative.
+     */
+    private BufferedImage read(StoredContent content, int targetSize) throws IOException {
+        StoredObject object = StoredObject.builder()
+                .objectId(content.getObjectId())
+                .url(content.getFileUrl())
+                .size(content.getBytes())
+                .build();
+        try (InputStream in = storageBackend.get(object);
+             ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageIn);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageIn, true, true);
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, longest / (targetSize * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Fits the image into a size x size box, keeping its aspect ratio, on a white background
+     * so transparent images still encode as JPEG.
+     */
+    private static BufferedImage scale(BufferedImage source, int size) {
+        double factor = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * factor));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private StoredObject store(BufferedImage image, String name) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        byte[] bytes = out.toByteArray();
+        return storageBackend.put(new ByteArrayResource(bytes), name, bytes.length);
+    }
+}
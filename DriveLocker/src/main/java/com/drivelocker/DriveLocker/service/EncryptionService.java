@@ -0,0 +1,183 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.crypto.BufferPool;
+import com.drivelocker.DriveLocker.crypto.DecryptingInputStream;
+import com.drivelocker.DriveLocker.crypto.EncryptingInputStream;
+import com.drivelocker.DriveLocker.crypto.SegmentedGcm;
+import com.drivelocker.DriveLocker.exceptions.FileStorageException;
+import com.drivelocker.DriveLocker.exceptions.UserNotFoundException;
+import com.drivelocker.DriveLocker.models.PassKey;
+import com.drivelocker.DriveLocker.repository.PasskeyRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Envelope encryption of stored content.
+ *
+ * Every object is sealed with its own random AES-256 data key in the {@link SegmentedGcm}
+ * layout. The data key is stored wrapped (AES-GCM) under a key derived from the owner's
+ * passkey with PBKDF2, so the stored bytes and the database together are not enough to read
+ * a file without the passkey.
+ */
+@Service
+@RequiredArgsConstructor
+public class EncryptionService {
+
+    private static final int KEY_BYTES = 32;
+    private static final int SALT_BYTES = 16;
+    private static final int WRAP_IV_BYTES = 12;
+
+    private final PasskeyRepository passkeyRepository;
+    private final SecureRandom random = new SecureRandom();
+
+    // Sealed files are linked to the content endpoint rather than their raw fileUrl (see
+    // FileLinkService); they get no thumbnails and bypass the disk cache
+    @Value("${encryption.enabled:true}")
+    private boolean enabled;
+
+    @Value("${encryption.segment-size:65536}")
+    private int segmentSize;
+
+    @Value("${encryption.kdf-iterations:210000}")
+    private int kdfIterations;
+
+    @Value("${encryption.buffer-pool-size:64}")
+    private int bufferPoolSize;
+
+    private BufferPool bufferPool;
+
+    @PostConstruct
+    public void init() {
+        bufferPool = new BufferPool(segmentSize + SegmentedGcm.TAG_BYTES, bufferPoolSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Derives the key that wraps a user's data keys. Call only with a passkey that has been
+     * verified, since any other passkey yields a different, useless key.
+     * @return The key, or null when encryption is disabled.
+     */
+    public SecretKey deriveKey(String email, String passkey) {
+        return enabled ? wrappingKey(email, passkey) : null;
+    }
+
+    /**
+     * Derives the key that wraps a user's data keys whether or not new uploads are encrypted,
+     * so content stored while encryption was enabled stays readable after it is turned off.
+     */
+    public SecretKey wrappingKey(String email, String passkey) {
+        PassKey stored = passkeyRepository.findByUserEmail(email)
+                .orElseThrow(() -> new UserNotFoundException("Passkey not created for " + email));
+        String salt = stored.getKeySalt();
+        if (salt == null) {
+            byte[] fresh = new byte[SALT_BYTES];
+            random.nextBytes(fresh);
+            passkeyRepository.initKeySalt(stored.getId(), Base64.getEncoder().encodeToString(fresh));
+            // Another request may have set its salt first; both then use the winner's
+            salt = passkeyRepository.findKeySaltById(stored.getId());
+        }
+
+        try {
+            PBEKeySpec spec = new PBEKeySpec(passkey.toCharArray(), Base64.getDecoder().decode(salt),
+                    kdfIterations, KEY_BYTES * 8);
+            try {
+                byte[] key = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+                return new SecretKeySpec(key, "AES");
+            } finally {
+                spec.clearPassword();
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 not available", e);
+        }
+    }
+
+    /**
+     * Creates the parameters for a new object: a fresh data key, wrapped under the given key,
+     * and a fresh nonce prefix.
+     */
+    public Envelope newEnvelope(SecretKey wrappingKey) {
+        byte[] dataKey = new byte[KEY_BYTES];
+        random.nextBytes(dataKey);
+        byte[] noncePrefix = new byte[SegmentedGcm.NONCE_PREFIX_BYTES];
+        random.nextBytes(noncePrefix);
+        byte[] iv = new byte[WRAP_IV_BYTES];
+        random.nextBytes(iv);
+
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, wrappingKey, new GCMParameterSpec(128, iv));
+            byte[] sealed = cipher.doFinal(dataKey);
+            byte[] wrapped = ByteBuffer.allocate(iv.length + sealed.length).put(iv).put(sealed).array();
+            return new Envelope(new SecretKeySpec(dataKey, "AES"), Base64.getEncoder().encodeToString(wrapped),
+                    noncePrefix, segmentSize);
+        } catch (GeneralSecurityException e) {
+            throw new FileStorageException("Could not create file key: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Recovers a data key stored by {@link #newEnvelope}.
+     * @throws FileStorageException if the key was wrapped under a different key.
+     */
+    public SecretKey unwrap(String wrappedKey, SecretKey wrappingKey) {
+        byte[] wrapped = Base64.getDecoder().decode(wrappedKey);
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, wrappingKey, new GCMParameterSpec(128, wrapped, 0, WRAP_IV_BYTES));
+            byte[] dataKey = cipher.doFinal(wrapped, WRAP_IV_BYTES, wrapped.length - WRAP_IV_BYTES);
+            return new SecretKeySpec(dataKey, "AES");
+        } catch (GeneralSecurityException e) {
+            throw new FileStorageException("Could not unlock file key: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Wraps content so it is sealed while being read.
+     */
+    public InputStreamSource encrypt(InputStreamSource source, Envelope envelope) {
+        return () -> new EncryptingInputStream(source.getInputStream(), envelope.dataKey(),
+                envelope.noncePrefix(), envelope.segmentSize(), poolFor(envelope.segmentSize()));
+    }
+
+    /**
+     * Decrypts a whole stored object.
+     */
+    public InputStream decrypt(InputStream sealed, SecretKey dataKey, byte[] noncePrefix, int segmentSize) {
+        return DecryptingInputStream.whole(sealed, dataKey, noncePrefix, segmentSize, poolFor(segmentSize));
+    }
+
+    /**
+     * Decrypts the segments [firstSegment, endSegment) read from a stream positioned at the
+     * start of firstSegment.
+     */
+    public InputStream decryptSegments(InputStream sealed, SecretKey dataKey, byte[] noncePrefix, int segmentSize,
+                                       long firstSegment, long endSegment, long segmentCount) {
+        return DecryptingInputStream.segments(sealed, dataKey, noncePrefix, segmentSize, poolFor(segmentSize),
+                firstSegment, endSegment, segmentCount);
+    }
+
+    private BufferPool poolFor(int objectSegmentSize) {
+        // Objects written with an older segment size get unpooled buffers of their own size
+        return objectSegmentSize == segmentSize
+                ? bufferPool
+                : new BufferPool(objectSegmentSize + SegmentedGcm.TAG_BYTES, 0);
+    }
+}
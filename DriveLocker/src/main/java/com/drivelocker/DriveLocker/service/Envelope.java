@@ -0,0 +1,14 @@
+package com.drivelocker.DriveLocker.service;
+
+import javax.crypto.SecretKey;
+
+/**
+ * The per-object encryption parameters of an upload.
+ *
+ * @param dataKey The random key the content is sealed with.
+ * @param wrappedKey The data key sealed with the owner's passkey-derived key, Base64, as stored.
+ * @param noncePrefix The random per-object part of every segment nonce.
+ * @param segmentSize The plaintext size of each sealed segment.
+ */
+public record Envelope(SecretKey dataKey, String wrappedKey, byte[] noncePrefix, int segmentSize) {
+}
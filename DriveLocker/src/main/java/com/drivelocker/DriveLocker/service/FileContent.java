@@ -0,0 +1,40 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.storage.StoredObject;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.crypto.SecretKey;
+import java.time.Instant;
+
+/**
+ * Everything needed to serve a file's content over HTTP.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FileContent {
+
+    private String fileName;
+
+    private String contentType;
+
+    private Long size; // Null when the backend cannot tell, which disables Range support
+
+    private String etag; // Quoted strong validator
+
+    private Instant lastModified;
+
+    private StoredObject object; // Locator handed to the storage backend
+
+    private String codec; // Compression of the stored bytes; null when they are the content itself
+
+    private SecretKey dataKey; // Unwrapped key of encrypted content; null when stored in the clear
+
+    private byte[] noncePrefix;
+
+    private Integer segmentSize;
+}
@@ -0,0 +1,271 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.crypto.SegmentedGcm;
+import com.drivelocker.DriveLocker.exceptions.FileNotFoundException;
+import com.drivelocker.DriveLocker.exceptions.InvalidPasskeyException;
+import com.drivelocker.DriveLocker.models.File;
+import com.drivelocker.DriveLocker.models.StoredContent;
+import com.drivelocker.DriveLocker.repository.FileRepository;
+import com.drivelocker.DriveLocker.storage.BoundedInputStream;
+import com.drivelocker.DriveLocker.storage.ContentCache;
+import com.drivelocker.DriveLocker.storage.StorageBackend;
+import com.drivelocker.DriveLocker.storage.StoredObject;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Resolves and streams file content for downloads served by this service.
+ */
+@Service
+@RequiredArgsConstructor
+public class FileContentService {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final FileRepository fileRepository;
+    private final StorageBackend storageBackend;
+    private final ContentCache contentCache;
+    private final CompressionService compressionService;
+    private final EncryptionService encryptionService;
+    private final FileService fileService;
+
+    /**
+     * Looks up a user's file and the metadata needed for conditional and ranged requests.
+     * @param passkey The owner's passkey; only needed when the content is encrypted and no
+     *                unlock token is given.
+     * @throws FileNotFoundException if the user has no file with this public id.
+     * @throws InvalidPasskeyException if the content is encrypted and neither a valid unlock
+     *                                 token nor the right passkey is given.
+     */
+    public FileContent resolve(String email, String publicId, String passkey, String unlockToken) {
+        File file = fileRepository.findWithContentByPublicIdAndUserEmail(publicId, email)
+                .orElseThrow(() -> new FileNotFoundException("File not found: " + publicId));
+        return toFileContent(file, true, new KeyRing(email, passkey, unlockToken));
+    }
+
+    /**
+     * Looks up several of a user's files at once, in the order of the given ids. Sizes of
+     * files uploaded before content tracking are left unknown rather than looked up.
+     * The credentials are checked at most once, however many of the files are encrypted.
+     * @throws FileNotFoundException if any of the ids is not one of the user's files.
+     * @throws InvalidPasskeyException if any file is encrypted and neither a valid unlock
+     *                                 token nor the right passkey is given.
+     */
+    public List<FileContent> resolveAll(String email, List<String> publicIds, String passkey, String unlockToken) {
+        KeyRing keys = new KeyRing(email, passkey, unlockToken);
+        Map<String, File> files = new HashMap<>();
+        for (File file : fileRepository.findWithContentByPublicIdInAndUserEmail(publicIds, email)) {
+            files.put(file.getPublicId(), file);
+        }
+
+        List<FileContent> contents = new ArrayList<>(publicIds.size());
+        for (String publicId : publicIds) {
+            File file = files.get(publicId);
+            if (file == null) {
+                throw new FileNotFoundException("File not found: " + publicId);
+            }
+            contents.add(toFileContent(file, false, keys));
+        }
+        return contents;
+    }
+
+    private FileContent toFileContent(File file, boolean lookupLegacySize, KeyRing keys) {
+        StoredContent content = file.getContent();
+        StoredObject object;
+        String etag;
+        if (content != null) {
+            object = StoredObject.builder()
+                    .objectId(content.getObjectId())
+                    .url(content.getFileUrl())
+                    // A compressed or encrypted object's stored length is not the content length
+                    .size(content.getCodec() == null && content.getWrappedKey() == null ? content.getBytes() : null)
+                    .build();
+            etag = "\"" + content.getContentHash() + "\"";
+        } else {
+            // Uploaded before content tracking: the public id is the backend id and the size must be looked up
+            Long size = lookupLegacySize
+                    ? storageBackend.stat(file.getPublicId()).map(StoredObject::getSize).orElse(null)
+                    : null;
+            object = StoredObject.builder()
+                    .objectId(file.getPublicId())
+                    .url(file.getFileUrl())
+                    .size(size)
+                    .build();
+            etag = "\"" + file.getPublicId() + "-" + size + "\"";
+        }
+
+        FileContent.FileContentBuilder builder = FileContent.builder();
+        if (content != null && content.getWrappedKey() != null) {
+            builder.dataKey(encryptionService.unwrap(content.getWrappedKey(), keys.get()))
+                    .noncePrefix(Base64.getDecoder().decode(content.getNoncePrefix()))
+                    .segmentSize(content.getSegmentSize());
+        }
+        return builder
+                .fileName(file.getFileName())
+                .contentType(MediaTypeFactory.getMediaType(file.getFileName())
+                        .orElse(MediaType.APPLICATION_OCTET_STREAM).toString())
+                .size(content != null ? content.getBytes() : object.getSize())
+                .etag(etag)
+                .lastModified(file.getCreatedAt() == null ? null
+                        : file.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant())
+                .object(object)
+                .codec(content == null ? null : content.getCodec())
+                .build();
+    }
+
+    /**
+     * Returns the storage backend's own local file holding the content, if it can be sent
+     * with a zero-copy transfer. Compressed or encrypted content has to be transformed on the
+     * way out, so it never has one.
+     */
+    public Optional<Path> localPath(FileContent content) {
+        if (content.getCodec() != null || content.getDataKey() != null) {
+            return Optional.empty();
+        }
+        return storageBackend.localPath(content.getObject().getObjectId());
+    }
+
+    /**
+     * Opens the content cache's copy of remote content that is small enough to be cached,
+     * fetching it on a miss. The channel stays readable even if the entry is evicted while it
+     * is being sent; the caller closes it.
+     */
+    public Optional<FileChannel> openCached(FileContent content) throws IOException {
+        if (content.getCodec() != null || content.getDataKey() != null || !contentCache.accepts(content.getSize())) {
+            return Optional.empty();
+        }
+        StoredObject object = content.getObject();
+        return Optional.of(contentCache.getOrFetch(object.getObjectId(), () -> storageBackend.get(object)));
+    }
+
+    /**
+     * Opens the whole content for reading, from the local copy when there is one.
+     */
+    public InputStream open(FileContent content) throws IOException {
+        Optional<Path> local = storageBackend.localPath(content.getObject().getObjectId());
+        InputStream in = local.isPresent()
+                ? Files.newInputStream(local.get())
+                : storageBackend.get(content.getObject());
+        if (content.getDataKey() != null) {
+            // Encryption is applied last on upload, so it comes off first
+            in = encryptionService.decrypt(in, content.getDataKey(), content.getNoncePrefix(),
+                    content.getSegmentSize());
+        }
+        return content.getCodec() == null ? in : compressionService.decompress(in, content.getCodec());
+    }
+
+    /**
+     * Copies a byte range of the content to the output through a fixed-size buffer, so the
+     * file is never held in memory as a whole. When the size is unknown the whole content
+     * is copied and the range is ignored.
+     */
+    public void write(FileContent content, long offset, long length, OutputStream out) throws IOException {
+        try (InputStream in = open(content, offset, length)) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+        }
+    }
+
+    private InputStream open(FileContent content, long offset, long length) throws IOException {
+        if (content.getCodec() != null) {
+            // Stored offsets do not map to content offsets, so inflate from the start and skip
+            InputStream in = open(content);
+            try {
+                in.skipNBytes(offset);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+            return new BoundedInputStream(in, length);
+        }
+        if (content.getSize() == null || (offset == 0 && length == content.getSize())) {
+            return content.getDataKey() == null ? storageBackend.get(content.getObject()) : open(content);
+        }
+        if (content.getDataKey() != null) {
+            return openEncryptedRange(content, offset, length);
+        }
+        return storageBackend.get(content.getObject(), offset, length);
+    }
+
+    /**
+     * Fetches and opens only the sealed segments that cover the range, then drops the part
+     * of the first segment that precedes it.
+     */
+    private InputStream openEncryptedRange(FileContent content, long offset, long length) throws IOException {
+        int segmentSize = content.getSegmentSize();
+        long plainLength = content.getSize();
+        long first = offset / segmentSize;
+        long last = (offset + length - 1) / segmentSize;
+        long sealedSegment = segmentSize + SegmentedGcm.TAG_BYTES;
+        long start = first * sealedSegment;
+        long end = Math.min(SegmentedGcm.cipherLength(plainLength, segmentSize), (last + 1) * sealedSegment);
+
+        InputStream in = encryptionService.decryptSegments(
+                storageBackend.get(content.getObject(), start, end - start),
+                content.getDataKey(), content.getNoncePrefix(), segmentSize,
+                first, last + 1, SegmentedGcm.segmentCount(plainLength, segmentSize));
+        try {
+            in.skipNBytes(offset - first * segmentSize);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new BoundedInputStream(in, length);
+    }
+
+    /**
+     * Gets the user's wrapping key on first use, so credentials are only checked when
+     * encrypted content is actually being resolved.
+     */
+    private class KeyRing {
+
+        private final String email;
+        private final String passkey;
+        private final String unlockToken;
+        private SecretKey key;
+
+        KeyRing(String email, String passkey, String unlockToken) {
+            this.email = email;
+            this.passkey = passkey;
+            this.unlockToken = unlockToken;
+        }
+
+        SecretKey get() {
+            if (key == null && unlockToken != null) {
+                // Null for tokens issued while encryption was off; the passkey is needed then
+                key = fileService.authorize(email, null, unlockToken).key();
+            }
+            if (key == null) {
+                if (passkey == null) {
+                    throw new InvalidPasskeyException("A passkey is required to read encrypted files.");
+                }
+                // Verified through the cache of recent passkeys; the key is null while encryption is off
+                key = fileService.authorize(email, passkey, null).key();
+                if (key == null) {
+                    key = encryptionService.wrappingKey(email, passkey);
+                }
+            }
+            return key;
+        }
+    }
+}
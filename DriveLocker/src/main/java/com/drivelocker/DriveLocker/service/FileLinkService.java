@@ -0,0 +1,47 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.models.File;
+import com.drivelocker.DriveLocker.models.StoredContent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Decides the URL clients are given for a file. A sealed or compressed object is not the
+ * file itself, so its raw storage URL would serve ciphertext or a deflate stream, and the
+ * local backend's default local:// URLs cannot be fetched at all; such files are linked to
+ * /files/{publicId}/content instead, which opens them on the way out.
+ *
+ * The listing queries in FileRepository apply the same rule in JPQL and take
+ * {@link #contentUrlPrefix()} as a parameter, so the two must be kept in step.
+ */
+@Service
+public class FileLinkService {
+
+    // LocalStorageBackend's default base URL; objects under it are only reachable through the app
+    private static final String LOCAL_SCHEME = "local://";
+
+    @Value("${files.content-url-prefix:/files/}")
+    private String contentUrlPrefix;
+
+    /**
+     * The prefix of the content endpoint, including the context path; the public id and
+     * "/content" follow it.
+     */
+    public String contentUrlPrefix() {
+        return contentUrlPrefix;
+    }
+
+    /**
+     * @param file A file with its stored content loaded.
+     * @return The raw storage URL when it serves the file as uploaded, otherwise the URL of
+     * the content endpoint.
+     */
+    public String urlFor(File file) {
+        StoredContent content = file.getContent();
+        boolean transformed = content != null && (content.getWrappedKey() != null || content.getCodec() != null);
+        if (transformed || (file.getFileUrl() != null && file.getFileUrl().startsWith(LOCAL_SCHEME))) {
+            return contentUrlPrefix + file.getPublicId() + "/content";
+        }
+        return file.getFileUrl();
+    }
+}
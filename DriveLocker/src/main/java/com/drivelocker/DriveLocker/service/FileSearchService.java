@@ -0,0 +1,398 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.MissingDetailsException;
+import com.drivelocker.DriveLocker.io.FileSearchHit;
+import com.drivelocker.DriveLocker.io.FileSummary;
+import com.drivelocker.DriveLocker.models.File;
+import com.drivelocker.DriveLocker.repository.FileRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Searches file names with prefix and substring matching, from an in-memory index per user.
+ *
+ * An index is built from the database the first time a user searches and is then kept up to
+ * date from upload and delete events. Prefix queries walk a sorted map of names; longer
+ * substring queries intersect the posting lists of the query's trigrams and verify the few
+ * remaining candidates. Indexes of users who stop searching are dropped after
+ * search.index.idle-minutes, and the least recently used ones go first when the estimated
+ * size of all indexes exceeds search.index.max-bytes.
+ */
+@Service
+@RequiredArgsConstructor
+public class FileSearchService {
+
+    private static final int BUILD_PAGE_SIZE = 1000;
+
+    private static final LocalDateTime KEYSET_MIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final FileRepository fileRepository;
+    private final FileLinkService fileLinkService;
+
+    private final Map<String, UserIndex> indexes = new ConcurrentHashMap<>();
+
+    @Value("${search.index.max-bytes:268435456}")
+    private long maxBytes;
+
+    @Value("${search.index.idle-minutes:30}")
+    private long idleMinutes;
+
+    @Value("${search.default-limit:50}")
+    private int defaultLimit;
+
+    @Value("${search.max-limit:200}")
+    private int maxLimit;
+
+    /**
+     * Finds the user's files whose name starts with or contains the query, ignoring case.
+     * Prefix matches come first, then other matches, newest first.
+     * @throws MissingDetailsException if the query is blank.
+     */
+    public List<FileSearchHit> search(String email, String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new MissingDetailsException("A search query must be provided.");
+        }
+        int size = limit == null || limit <= 0 ? defaultLimit : Math.min(limit, maxLimit);
+
+        UserIndex index = indexes.computeIfAbsent(email, UserIndex::new);
+        if (index.ensureBuilt(this::load)) {
+            enforceBudget(index);
+        }
+        return index.search(normalize(query), size);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFilesAdded(FilesAddedEvent event) {
+        UserIndex index = indexes.get(event.email());
+        if (index == null) {
+            // Not loaded; a later build reads the committed rows
+            return;
+        }
+        List<Entry> entries = new ArrayList<>();
+        for (File file : event.files()) {
+            entries.add(new Entry(file.getId(), file.getPublicId(), file.getFileName(),
+                    file.getFileType(), file.getCreatedAt()));
+        }
+        index.addAll(entries);
+        enforceBudget(index);
+    }
+
+    @TransactionalEventListener
+    public void onFilesDeleted(FilesDeletedEvent event) {
+        UserIndex index = indexes.get(event.email());
+        if (index != null) {
+            index.removeAll(event.fileIds());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${search.index.cleanup-interval-ms:60000}")
+    public void evictIdle() {
+        long cutoff = System.nanoTime() - TimeUnit.MINUTES.toNanos(idleMinutes);
+        indexes.values().removeIf(index -> index.lastAccess - cutoff < 0);
+    }
+
+    /**
+     * Drops the least recently used indexes, other than the one just grown, until all of
+     * them fit the memory budget again.
+     */
+    private void enforceBudget(UserIndex keep) {
+        long total = indexes.values().stream().mapToLong(UserIndex::bytes).sum();
+        if (total <= maxBytes) {
+            return;
+        }
+        List<UserIndex> leastRecent = indexes.values().stream()
+                .filter(index -> index != keep)
+                .sorted(Comparator.comparingLong(index -> index.lastAccess))
+                .toList();
+        for (UserIndex index : leastRecent) {
+            if (total <= maxBytes) {
+                break;
+            }
+            if (indexes.remove(index.email, index)) {
+                total -= index.bytes();
+            }
+        }
+    }
+
+    private List<Entry> load(String email) {
+        List<Entry> entries = new ArrayList<>();
+        LocalDateTime createdAt = KEYSET_MIN;
+        long id = Long.MIN_VALUE;
+        List<FileSummary> page;
+        do {
+            page = fileRepository.findPageAsc(email, fileLinkService.contentUrlPrefix(), null, createdAt, id,
+                    Limit.of(BUILD_PAGE_SIZE));
+            for (FileSummary file : page) {
+                entries.add(new Entry(file.getId(), file.getPublicId(), file.getFileName(),
+                        file.getFileType(), file.getCreatedAt()));
+            }
+            if (!page.isEmpty()) {
+                FileSummary last = page.get(page.size() - 1);
+                createdAt = last.getCreatedAt();
+                id = last.getId();
+            }
+        } while (page.size() == BUILD_PAGE_SIZE);
+        return entries;
+    }
+
+    private static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Packs three characters into one key.
+     */
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private record Entry(Long id, String publicId, String fileName, String fileType, LocalDateTime createdAt) {
+
+        private FileSearchHit toHit() {
+            return FileSearchHit.builder()
+                    .id(id)
+                    .publicId(publicId)
+                    .fileName(fileName)
+                    .fileType(fileType)
+                    .createdAt(createdAt)
+                    .build();
+        }
+    }
+
+    /**
+     * The index of one user. Entries are numbered by insertion order, so every posting list
+     * is sorted; deletes only mark the number as dead until enough have piled up to compact.
+     */
+    private static final class UserIndex {
+
+        // Rough per-entry cost of the entry, its name keys and map nodes, used for the memory budget
+        private static final long ENTRY_OVERHEAD_BYTES = 240;
+
+        private final String email;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private volatile boolean built;
+        private volatile long lastAccess = System.nanoTime();
+        private volatile long bytes;
+
+        private final List<Entry> entries = new ArrayList<>();
+        private final List<String> names = new ArrayList<>(); // Lower-cased, by entry number
+        private final Map<Long, Integer> numberById = new HashMap<>();
+        private final BitSet dead = new BitSet();
+        private int deadCount;
+        private final TreeMap<String, IntList> byName = new TreeMap<>();
+        private final Map<Long, IntList> postings = new HashMap<>();
+
+        private UserIndex(String email) {
+            this.email = email;
+        }
+
+        private long bytes() {
+            return bytes;
+        }
+
+        /**
+         * Loads the index on first use. Updates arriving meanwhile wait for the lock and are
+         * applied afterwards; adding a file the build already saw is a no-op.
+         * @return Whether this call built the index.
+         */
+        private boolean ensureBuilt(Function<String, List<Entry>> loader) {
+            lastAccess = System.nanoTime();
+            if (built) {
+                return false;
+            }
+            lock.writeLock().lock();
+            try {
+                if (built) {
+                    return false;
+                }
+                clear();
+                loader.apply(email).forEach(this::add);
+                built = true;
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void addAll(List<Entry> added) {
+            lock.writeLock().lock();
+            try {
+                added.forEach(this::add);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void removeAll(List<Long> ids) {
+            lock.writeLock().lock();
+            try {
+                for (Long id : ids) {
+                    Integer number = numberById.remove(id);
+                    if (number != null) {
+                        dead.set(number);
+                        deadCount++;
+                    }
+                }
+                if (deadCount > 1024 && deadCount > entries.size() / 4) {
+                    compact();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private List<FileSearchHit> search(String query, int limit) {
+            lock.readLock().lock();
+            try {
+                List<FileSearchHit> hits = new ArrayList<>();
+                BitSet seen = new BitSet();
+
+                // Names starting with the query, in name order
+                for (Map.Entry<String, IntList> match : byName.tailMap(query, true).entrySet()) {
+                    if (!match.getKey().startsWith(query) || hits.size() >= limit) {
+                        break;
+                    }
+                    IntList numbers = match.getValue();
+                    for (int i = 0; i < numbers.size && hits.size() < limit; i++) {
+                        int number = numbers.data[i];
+                        if (!dead.get(number)) {
+                            seen.set(number);
+                            hits.add(entries.get(number).toHit());
+                        }
+                    }
+                }
+
+                // Names containing the query elsewhere, newest first
+                int[] candidates = query.length() >= 3 ? candidates(query) : null;
+                int count = candidates == null ? entries.size() : candidates.length;
+                for (int i = count - 1; i >= 0 && hits.size() < limit; i--) {
+                    int number = candidates == null ? i : candidates[i];
+                    if (!dead.get(number) && !seen.get(number) && names.get(number).contains(query)) {
+                        hits.add(entries.get(number).toHit());
+                    }
+                }
+                return hits;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Entries containing every trigram of the query, intersecting from the shortest list.
+         */
+        private int[] candidates(String query) {
+            List<IntList> lists = new ArrayList<>();
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                IntList list = postings.get(trigram(query, i));
+                if (list == null) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            int[] result = Arrays.copyOf(lists.get(0).data, lists.get(0).size);
+            for (int l = 1; l < lists.size() && result.length > 0; l++) {
+                IntList other = lists.get(l);
+                int[] next = new int[result.length];
+                int n = 0;
+                int j = 0;
+                for (int value : result) {
+                    while (j < other.size && other.data[j] < value) {
+                        j++;
+                    }
+                    if (j < other.size && other.data[j] == value) {
+                        next[n++] = value;
+                    }
+                }
+                result = Arrays.copyOf(next, n);
+            }
+            return result;
+        }
+
+        private void add(Entry entry) {
+            if (entry.id() == null || numberById.containsKey(entry.id())) {
+                return;
+            }
+            int number = entries.size();
+            String name = normalize(entry.fileName());
+            entries.add(entry);
+            names.add(name);
+            numberById.put(entry.id(), number);
+            byName.computeIfAbsent(name, key -> new IntList()).add(number);
+
+            Set<Long> trigrams = new HashSet<>();
+            for (int i = 0; i + 3 <= name.length(); i++) {
+                trigrams.add(trigram(name, i));
+            }
+            for (Long key : trigrams) {
+                postings.computeIfAbsent(key, k -> new IntList()).add(number);
+            }
+            bytes += ENTRY_OVERHEAD_BYTES + 4L * name.length()
+                    + (entry.publicId() == null ? 0 : entry.publicId().length())
+                    + 4L * trigrams.size();
+        }
+
+        /**
+         * Renumbers the live entries, dropping everything that belonged to deleted ones.
+         */
+        private void compact() {
+            List<Entry> live = new ArrayList<>(entries.size() - deadCount);
+            for (int i = 0; i < entries.size(); i++) {
+                if (!dead.get(i)) {
+                    live.add(entries.get(i));
+                }
+            }
+            clear();
+            live.forEach(this::add);
+        }
+
+        private void clear() {
+            entries.clear();
+            names.clear();
+            numberById.clear();
+            dead.clear();
+            deadCount = 0;
+            byName.clear();
+            postings.clear();
+            bytes = 0;
+        }
+    }
+
+    /**
+     * Growable array of entry numbers, much smaller than a list of boxed integers.
+     */
+    private static final class IntList {
+        private int[] data = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+    }
+}
@@ -4,35 +4,78 @@ import com.drivelocker.DriveLocker.exceptions.FileNotFoundException;
 import com.drivelocker.DriveLocker.exceptions.FileStorageException;
 import com.drivelocker.DriveLocker.exceptions.InvalidCredentialsException;
 import com.drivelocker.DriveLocker.exceptions.InvalidPasskeyException;
+import com.drivelocker.DriveLocker.exceptions.InvalidUploadException;
 import com.drivelocker.DriveLocker.exceptions.MissingDetailsException;
+import com.drivelocker.DriveLocker.exceptions.QuotaExceededException;
 import com.drivelocker.DriveLocker.exceptions.UserNotFoundException;
+import com.drivelocker.DriveLocker.io.FilePage;
+import com.drivelocker.DriveLocker.io.FileSummary;
+import com.drivelocker.DriveLocker.io.UnlockResponse;
 import com.drivelocker.DriveLocker.models.File;
 import com.drivelocker.DriveLocker.models.PassKey;
+import com.drivelocker.DriveLocker.models.StoredContent;
+import com.drivelocker.DriveLocker.models.SyncTombstone;
 import com.drivelocker.DriveLocker.models.User;
 import com.drivelocker.DriveLocker.repository.FileRepository;
 import com.drivelocker.DriveLocker.repository.PasskeyRepository;
 import com.drivelocker.DriveLocker.repository.UserRepository;
+import com.drivelocker.DriveLocker.storage.StorageBackend;
+import com.drivelocker.DriveLocker.storage.StoredObject;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.time.Instant;
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class FileService implements IFileService {
 
     private final PasskeyRepository passkeyRepository;
-    private final CloudinaryService cloudinaryService;
+    private final StorageBackend storageBackend;
+    private final StoredContentService storedContentService;
+    private final StorageDeletionService storageDeletionService;
+    private final DerivativeService derivativeService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UsageService usageService;
+    private final CompressionService compressionService;
+    private final EncryptionService encryptionService;
+    private final PasskeyUnlockService passkeyUnlockService;
+    private final UploadValidationService uploadValidationService;
+    private final SyncService syncService;
+    private final FileLinkService fileLinkService;
+    private final TransactionTemplate transactionTemplate;
     private final PasswordEncoder passwordEncoder;
     private final FileRepository fileRepository;
     private final UserRepository userRepository;
 
+    // Bounds for the first keyset page; rows are always created well inside them
+    private static final LocalDateTime KEYSET_MIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime KEYSET_MAX = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    @Value("${files.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${files.page.max-size:200}")
+    private int maxPageSize;
+
     /**
      * A private helper method to fetch a user by email and verify if their account is active.
      * Throws exceptions if the user is not found or the account is not verified.
@@ -55,54 +98,303 @@ public class FileService implements IFileService {
     }
 
 
-    @Override
-    public String fileUpload(String email, String passkey, MultipartFile file) {
+    /**
+     * Verifies the user's account and passkey before any content is accepted.
+     * @param email The email of the user uploading.
+     * @param passkey The passkey supplied with the request.
+     * @return The verified User object.
+     * @throws UserNotFoundException if the user or their passkey does not exist.
+     * @throws InvalidPasskeyException if the passkey does not match.
+     */
+    public User verifyPasskey(String email, String passkey) {
         // Fetch and verify the user first
         User user = getAndVerifyUser(email);
 
         PassKey userPasskey = passkeyRepository.findByUserEmail(email)
                 .orElseThrow(() -> new UserNotFoundException("Passkey not created for " + email));
 
+        if (passkey == null) {
+            throw new InvalidPasskeyException("A passkey is required.");
+        }
         boolean isMatched = passwordEncoder.matches(passkey, userPasskey.getPassKey());
 
         if (!isMatched) {
             throw new InvalidPasskeyException("Invalid passkey provided.");
         }
+        return user;
+    }
 
-        try {
-            String originalName = file.getOriginalFilename();
-            Map<String, Object> fileData = cloudinaryService.uploadFile(file);
+    /**
+     * Verifies the passkey once and issues an unlock token that stands in for it until it
+     * expires, so later requests skip both the passkey hash and the key derivation.
+     * @throws InvalidPasskeyException if the passkey does not match.
+     */
+    public UnlockResponse unlock(String email, String passkey) {
+        verifyPasskey(email, passkey);
+        return passkeyUnlockService.issue(email, encryptionService.deriveKey(email, passkey));
+    }
+
+    /**
+     * Checks the credentials sent with a request: the unlock token when there is one,
+     * otherwise the passkey, which is verified and its key derived unless the same passkey
+     * was verified within the unlock token lifetime.
+     * @throws InvalidPasskeyException if the token is invalid or expired, or the passkey does not match.
+     */
+    public Unlocked authorize(String email, String passkey, String unlockToken) {
+        if (unlockToken != null) {
+            PasskeyUnlockService.Unlock unlock = passkeyUnlockService.resolve(email, unlockToken)
+                    .orElseThrow(() -> new InvalidPasskeyException("Unlock token is invalid or has expired."));
+            return new Unlocked(getAndVerifyUser(email), unlock.key());
+        }
+        if (passkey != null) {
+            Optional<PasskeyUnlockService.Unlock> recalled = passkeyUnlockService.recall(email, passkey);
+            if (recalled.isPresent()) {
+                return new Unlocked(getAndVerifyUser(email), recalled.get().key());
+            }
+        }
+        User user = verifyPasskey(email, passkey);
+        SecretKey key = encryptionService.deriveKey(email, passkey);
+        passkeyUnlockService.remember(email, passkey, key);
+        return new Unlocked(user, key);
+    }
 
-            if (fileData != null && fileData.containsKey("secure_url")) {
-                File newFile = new File();
-                newFile.setPublicId((String) fileData.get("public_id"));
-                newFile.setFileName(originalName);
-                newFile.setFileUrl((String) fileData.get("secure_url"));
-                newFile.setFileType((String) fileData.get("format"));
+    @Override
+    public String fileUpload(String email, String passkey, String unlockToken, MultipartFile file) {
+        Unlocked unlocked = authorize(email, passkey, unlockToken);
+        return saveUpload(unlocked.user(), unlocked.key(), file.getOriginalFilename(), file, file.getSize());
+    }
 
-                String createdAtString = (String) fileData.get("created_at");
-                LocalDateTime createdAt = Instant.parse(createdAtString).atZone(ZoneId.systemDefault()).toLocalDateTime();
-                newFile.setCreatedAt(createdAt);
+    /**
+     * Stores already received content for a verified user and records it as a new File.
+     * Every upload path ends here so they all produce identical File rows.
+     * @param user The verified owner of the file.
+     * @param key The user's key from {@link #authorize}; null stores the content unencrypted.
+     * @param originalName The client-side filename.
+     * @param source The content; it may be read more than once.
+     * @param size The content length in bytes, or -1 if unknown.
+     * @return A description of the stored file.
+     * @throws InvalidUploadException if the content fails upload validation.
+     * @throws QuotaExceededException if the file does not fit in the user's quota.
+     */
+    public String saveUpload(User user, SecretKey key, String originalName, InputStreamSource source, long size) {
+        String detectedType = validate(originalName, source, size);
+        long bytes = Math.max(size, 0);
+        // Rejects over-quota uploads before anything is pushed
+        usageService.reserve(user.getEmail(), bytes);
 
-                // Set the user object that was already fetched and verified
-                newFile.setUser(user);
+        File newFile;
+        try {
+            newFile = storeContent(user, key, originalName, source, size, detectedType);
+            newFile.setBytes(bytes);
+        } catch (Exception e) {
+            usageService.release(user.getEmail(), bytes, 1);
+            throw new FileStorageException("File upload failed: " + e.getMessage(), e);
+        }
 
+        try {
+            syncService.prepare(user.getEmail());
+            transactionTemplate.executeWithoutResult(status -> {
+                newFile.setChangeSeq(syncService.next(user.getEmail(), 1));
                 fileRepository.save(newFile);
-                return fileData.toString();
-            } else {
-                throw new FileStorageException("File upload successful, but URL not found from cloud service.");
-            }
+            });
         } catch (Exception e) {
+            releaseQuietly(newFile.getContent());
+            usageService.release(user.getEmail(), bytes, 1);
+            throw new FileStorageException("File upload failed: " + e.getMessage(), e);
+        }
+        publishStored(newFile);
+        eventPublisher.publishEvent(new FilesAddedEvent(user.getEmail(), List.of(newFile)));
+        return describe(newFile).toString();
+    }
+
+    /**
+     * Stores content like {@link #saveUpload} but leaves the File unsaved, so callers can
+     * persist many at once with {@link #saveUploads}.
+     * @return A new, unsaved File pointing at the stored object.
+     * @throws InvalidUploadException if the content fails upload validation.
+     * @throws QuotaExceededException if the file does not fit in the user's quota.
+     */
+    public File storeUpload(User user, SecretKey key, String originalName, InputStreamSource source, long size) {
+        String detectedType = validate(originalName, source, size);
+        long bytes = Math.max(size, 0);
+        usageService.reserve(user.getEmail(), bytes);
+        try {
+            File newFile = storeContent(user, key, originalName, source, size, detectedType);
+            newFile.setBytes(bytes);
+            return newFile;
+        } catch (Exception e) {
+            usageService.release(user.getEmail(), bytes, 1);
+            throw new FileStorageException("File upload failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Saves Files prepared by {@link #storeUpload} in a single transaction. If the save fails,
+     * the content references they hold are given back.
+     */
+    public List<File> saveUploads(List<File> files) {
+        try {
+            files.stream().map(file -> file.getUser().getEmail()).distinct().forEach(syncService::prepare);
+            List<File> saved = transactionTemplate.execute(status -> {
+                files.stream()
+                        .collect(Collectors.groupingBy(file -> file.getUser().getEmail()))
+                        .forEach((email, owned) -> {
+                            long seq = syncService.next(email, owned.size());
+                            for (File file : owned) {
+                                file.setChangeSeq(seq++);
+                            }
+                        });
+                return fileRepository.saveAll(files);
+            });
+            saved.forEach(this::publishStored);
+            saved.stream()
+                    .collect(Collectors.groupingBy(file -> file.getUser().getEmail()))
+                    .forEach((email, owned) -> eventPublisher.publishEvent(new FilesAddedEvent(email, owned)));
+            return saved;
+        } catch (Exception e) {
+            files.forEach(file -> {
+                releaseQuietly(file.getContent());
+                usageService.release(file.getUser().getEmail(), file.getBytes(), 1);
+            });
+            throw new FileStorageException("File upload failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Runs upload validation, which only reads the first few kilobytes of the content.
+     * @return The type detected from the content, or null.
+     */
+    private String validate(String originalName, InputStreamSource source, long size) {
+        try {
+            return uploadValidationService.validate(source, originalName, size);
+        } catch (IOException e) {
             throw new FileStorageException("File upload failed: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Hashes the content and, if the user already stored identical content, takes another
+     * reference to that object instead of pushing the bytes again. Otherwise the content is
+     * sent to the storage backend, compressed if it looks worth it and then encrypted if a
+     * key is given, and indexed under the hash of its original bytes.
+     * @return A new, unsaved File pointing at the stored object.
+     */
+    private File storeContent(User user, SecretKey key, String originalName, InputStreamSource source,
+                              long size, String detectedType) throws IOException {
+        String contentHash = storedContentService.hash(source);
+        StoredContent content = storedContentService.reuse(user.getEmail(), contentHash).orElse(null);
+        boolean reused = content != null;
+
+        if (content == null) {
+            String codec = compressionService.choose(source, originalName, size);
+            Envelope envelope = key == null ? null : encryptionService.newEnvelope(key);
+            InputStreamSource upload = codec == null ? source : compressionService.compress(source, codec);
+            if (envelope != null) {
+                upload = encryptionService.encrypt(upload, envelope);
+            }
+            // The stored length of transformed content is only known once the backend has read it all
+            StoredObject stored = storageBackend.put(upload, originalName, upload == source ? size : -1);
+            try {
+                content = storedContentService.register(user, contentHash, stored,
+                        resolveFileType(stored.getFormat(), detectedType, originalName), codec, envelope, size);
+            } catch (DataIntegrityViolationException e) {
+                // A concurrent upload of the same content won the race; share its object instead
+                storageBackend.delete(stored.getObjectId());
+                content = storedContentService.reuse(user.getEmail(), contentHash)
+                        .orElseThrow(() -> new FileStorageException("Stored content disappeared during upload.", e));
+                reused = true;
+            }
+        }
+
+        File newFile = new File();
+        // The first upload keeps the backend id as its public id; duplicates need their own
+        newFile.setPublicId(reused ? UUID.randomUUID().toString() : content.getObjectId());
+        newFile.setFileName(originalName);
+        newFile.setFileUrl(content.getFileUrl());
+        newFile.setFileType(content.getFileType());
+        newFile.setCodec(content.getCodec());
+        newFile.setCreatedAt(reused ? LocalDateTime.now() : content.getCreatedAt());
+        newFile.setContent(content);
+
+        // Set the user object that was already fetched and verified
+        newFile.setUser(user);
+        return newFile;
+    }
+
+    /**
+     * Asks for thumbnails and previews of newly saved content that can have them.
+     */
+    private void publishStored(File file) {
+        StoredContent content = file.getContent();
+        if (content != null && content.getThumbnailObjectId() == null
+                && derivativeService.supports(content.getFileType())) {
+            eventPublisher.publishEvent(new ContentStoredEvent(content.getId()));
+        }
+    }
+
+    /**
+     * Gives back a reference taken by {@link #storeContent} when the File row could not be saved.
+     */
+    private void releaseQuietly(StoredContent content) {
+        try {
+            List<String> orphaned = storedContentService.release(List.of(content.getId()));
+            if (!orphaned.isEmpty()) {
+                storageDeletionService.enqueue(orphaned);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to release stored content " + content.getId() + ": " + e.getMessage());
+        }
+    }
+
+    private StoredObject describe(File file) {
+        return StoredObject.builder()
+                .objectId(file.getPublicId())
+                .url(fileLinkService.urlFor(file))
+                .format(file.getFileType())
+                .size(file.getContent() == null ? null : file.getContent().getBytes())
+                .createdAt(file.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * Backends may not know the format (Cloudinary omits it for raw resources), so fall
+     * back to the type sniffed during validation, then to the extension of the original filename.
+     */
+    private String resolveFileType(String format, String detectedType, String originalName) {
+        if (format != null && !format.isBlank()) {
+            return format;
+        }
+        if (detectedType != null) {
+            return detectedType;
+        }
+        if (originalName != null) {
+            int dot = originalName.lastIndexOf('.');
+            if (dot >= 0 && dot < originalName.length() - 1) {
+                return originalName.substring(dot + 1).toLowerCase();
+            }
+        }
+        return "unknown";
+    }
+
     @Override
-    public List<File> getUserFiles(String email) {
+    public List<FileSummary> getUserFiles(String email) {
         // Ensures user is valid and verified
         getAndVerifyUser(email);
 
-        List<File> filesList = fileRepository.findByUserEmail(email);
+        // Walks the keyset pages so the full listing never holds managed entities
+        List<FileSummary> filesList = new ArrayList<>();
+        LocalDateTime createdAt = KEYSET_MIN;
+        long id = Long.MIN_VALUE;
+        List<FileSummary> page;
+        do {
+            page = fileRepository.findPageAsc(email, fileLinkService.contentUrlPrefix(), null, createdAt, id, Limit.of(maxPageSize));
+            filesList.addAll(page);
+            if (!page.isEmpty()) {
+                FileSummary last = page.get(page.size() - 1);
+                createdAt = last.getCreatedAt();
+                id = last.getId();
+            }
+        } while (page.size() == maxPageSize);
 
         if (filesList.isEmpty()) {
             throw new FileNotFoundException("No files found for user: " + email);
@@ -110,33 +402,97 @@ public class FileService implements IFileService {
         return filesList;
     }
 
+    /**
+     * Returns one page of the user's files, ordered by (createdAt, id).
+     * @param email The email of the user.
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param limit The page size; capped at files.page.max-size.
+     * @param sort "desc" (newest first, the default) or "asc".
+     * @param fileType Only return files of this type, if given.
+     * @return The page and the cursor for the next one.
+     * @throws MissingDetailsException if the cursor or sort is not valid.
+     */
+    public FilePage getUserFilesPage(String email, String cursor, Integer limit, String sort, String fileType) {
+        getAndVerifyUser(email);
+
+        boolean ascending;
+        if (sort == null || sort.equalsIgnoreCase("desc")) {
+            ascending = false;
+        } else if (sort.equalsIgnoreCase("asc")) {
+            ascending = true;
+        } else {
+            throw new MissingDetailsException("Sort must be 'asc' or 'desc'.");
+        }
+        int size = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+        String type = fileType == null || fileType.isBlank() ? null : fileType.toLowerCase();
+
+        LocalDateTime createdAt;
+        long id;
+        if (cursor == null || cursor.isBlank()) {
+            createdAt = ascending ? KEYSET_MIN : KEYSET_MAX;
+            id = ascending ? Long.MIN_VALUE : Long.MAX_VALUE;
+        } else {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf('|');
+                createdAt = LocalDateTime.parse(decoded.substring(0, separator));
+                id = Long.parseLong(decoded.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new MissingDetailsException("Invalid page cursor.");
+            }
+        }
+
+        List<FileSummary> items = ascending
+                ? fileRepository.findPageAsc(email, fileLinkService.contentUrlPrefix(), type, createdAt, id, Limit.of(size))
+                : fileRepository.findPageDesc(email, fileLinkService.contentUrlPrefix(), type, createdAt, id, Limit.of(size));
 
+        String nextCursor = null;
+        if (items.size() == size) {
+            FileSummary last = items.get(items.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((last.getCreatedAt() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return FilePage.builder().items(items).nextCursor(nextCursor).build();
+    }
 
     @Override
+    @Transactional
     public Boolean deleteFiles(String email, List<String> publicIds) {
         getAndVerifyUser(email);
+        // Before any file is deleted, see SyncService#prepare
+        syncService.prepare(email);
 
         if (publicIds == null || publicIds.isEmpty()) {
             throw new MissingDetailsException("File public IDs must be provided for deletion.");
         }
 
         try {
-            // Delete from cloud first
-            Map<String, Object> result = cloudinaryService.deleteFiles(publicIds);
+            List<File> files = fileRepository.findByPublicIdInAndUserEmail(publicIds, email);
 
-            @SuppressWarnings("unchecked")
-            Map<String, String> deletedFiles = (Map<String, String>) result.get("deleted");
+            // Files uploaded before deduplication own their object outright
+            List<String> orphaned = new ArrayList<>();
+            List<Long> contentIds = new ArrayList<>();
+            for (File file : files) {
+                if (file.getContent() == null) {
+                    orphaned.add(file.getPublicId());
+                } else {
+                    contentIds.add(file.getContent().getId());
+                }
+            }
 
-            // Verify all requested IDs were deleted
-            boolean allDeleted = publicIds.stream()
-                    .allMatch(id -> "deleted".equalsIgnoreCase(deletedFiles.get(id)));
+            // Rows go first so no File still points at content whose last reference is dropped
+            fileRepository.deleteByPublicIdsAndUserEmail(publicIds, email);
+            syncService.recordDeletions(email, SyncTombstone.FILE, files.stream().map(File::getPublicId).toList());
+            orphaned.addAll(storedContentService.release(contentIds));
+            long freedBytes = files.stream().mapToLong(file -> file.getBytes() == null ? 0 : file.getBytes()).sum();
+            usageService.release(email, freedBytes, files.size());
+            eventPublisher.publishEvent(new FilesDeletedEvent(email, files.stream().map(File::getId).toList()));
 
-            if (allDeleted) {
-                fileRepository.deleteByPublicIdsAndUserEmail(publicIds, email);
-                return true;
-            } else {
-                throw new FileStorageException("Some files failed to delete on the cloud service.");
+            // Only objects that lost their last reference are deleted from storage, in the background
+            if (!orphaned.isEmpty()) {
+                storageDeletionService.enqueue(orphaned);
             }
+            return true;
         } catch (Exception e) {
             throw new FileStorageException("File deletion failed: " + e.getMessage(), e);
         }
@@ -0,0 +1,14 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.models.File;
+
+import java.util.List;
+
+/**
+ * Published once new File rows have been saved.
+ *
+ * @param email The owner of the files.
+ * @param files The saved files.
+ */
+public record FilesAddedEvent(String email, List<File> files) {
+}
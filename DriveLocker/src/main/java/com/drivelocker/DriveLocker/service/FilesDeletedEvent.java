@@ -0,0 +1,12 @@
+package com.drivelocker.DriveLocker.service;
+
+import java.util.List;
+
+/**
+ * Published when File rows are deleted; listeners act on it once the transaction commits.
+ *
+ * @param email The owner of the files.
+ * @param fileIds The ids of the deleted rows.
+ */
+public record FilesDeletedEvent(String email, List<Long> fileIds) {
+}
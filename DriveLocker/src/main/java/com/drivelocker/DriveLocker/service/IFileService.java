@@ -1,14 +1,14 @@
 package com.drivelocker.DriveLocker.service;
 
-import com.drivelocker.DriveLocker.models.File;
+import com.drivelocker.DriveLocker.io.FileSummary;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
 
 public interface IFileService {
-    public String fileUpload(String email,String passkey,MultipartFile file);
+    public String fileUpload(String email,String passkey,String unlockToken,MultipartFile file);
 
-    public List<File> getUserFiles(String email) throws Exception;
+    public List<FileSummary> getUserFiles(String email) throws Exception;
 
 
 
@@ -1,5 +1,8 @@
 package com.drivelocker.DriveLocker.service;
 
+import com.drivelocker.DriveLocker.io.NotePage;
+import com.drivelocker.DriveLocker.io.NotesBulkRequest;
+import com.drivelocker.DriveLocker.io.NotesBulkResponse;
 import com.drivelocker.DriveLocker.models.Notes;
 
 import java.util.List;
@@ -10,7 +13,19 @@ public interface INotesService {
 
     Boolean deleteNotes(String email, List<String>ids);
 
+    NotesBulkResponse bulkNotes(String email, NotesBulkRequest request);
+
     List<Notes> getNotes(String email);
 
-    Notes updateNotes(String email,Notes notes);
+    NotePage getNotesPage(String email, String cursor, Integer limit, String sort, Boolean favourite);
+
+    Notes getNote(String email, Integer id);
+
+    default Notes updateNotes(String email, Notes notes) {
+        return updateNotes(email, notes, null);
+    }
+
+    Notes updateNotes(String email, Notes notes, Long expectedVersion);
+
+    long getNotesVersion(String email);
 }
@@ -0,0 +1,232 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.NoteNotFoundException;
+import com.drivelocker.DriveLocker.io.NoteRevisionContent;
+import com.drivelocker.DriveLocker.io.NoteRevisionSummary;
+import com.drivelocker.DriveLocker.models.NoteRevision;
+import com.drivelocker.DriveLocker.models.Notes;
+import com.drivelocker.DriveLocker.repository.NoteRevisionRepository;
+import com.drivelocker.DriveLocker.repository.NotesRepository;
+import com.drivelocker.DriveLocker.utilities.TextDelta;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Revision history of notes. Each create or edit of a note's title or content adds a
+ * revision, stored as a full snapshot every notes.revisions.snapshot-interval revisions and as
+ * a forward delta from the previous revision in between (see {@link TextDelta}), so history
+ * grows with the size of the edits. Rebuilding a revision reads at most one snapshot interval
+ * of rows.
+ *
+ * Revisions older than notes.revisions.retention-days are compacted away, keeping the one
+ * that was current at the cutoff as a snapshot.
+ */
+@Service
+@RequiredArgsConstructor
+public class NoteRevisionService {
+
+    private final NoteRevisionRepository noteRevisionRepository;
+    private final NotesRepository notesRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${notes.revisions.snapshot-interval:20}")
+    private int snapshotInterval;
+
+    @Value("${notes.revisions.retention-days:90}")
+    private long retentionDays;
+
+    /**
+     * A note whose title or content was just changed, with what they were before.
+     * @param previousUpdatedAt When the previous content was saved, for notes that had no
+     *                          history yet.
+     */
+    public record Edit(Notes note, String previousTitle, String previousContent, LocalDateTime previousUpdatedAt) {
+    }
+
+    /**
+     * Records the first revision of new notes, which must already have their ids.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(List<Notes> notes) {
+        LocalDateTime now = LocalDateTime.now();
+        List<NoteRevision> revisions = new ArrayList<>(notes.size());
+        for (Notes note : notes) {
+            revisions.add(snapshot(note.getId(), 1, note.getTitle(), note.getNotes(), now));
+        }
+        noteRevisionRepository.saveAll(revisions);
+    }
+
+    /**
+     * Records a revision for each edit that changed the title or content. A note without
+     * history gets its previous version recorded first, so that it can still be recovered.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordEdits(List<Edit> edits) {
+        List<Edit> changed = edits.stream()
+                .filter(edit -> !Objects.equals(edit.previousTitle(), edit.note().getTitle())
+                        || !Objects.equals(edit.previousContent(), edit.note().getNotes()))
+                .toList();
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, NoteRevision> latest = new HashMap<>();
+        for (NoteRevision revision : noteRevisionRepository.findLatest(changed.stream().map(edit -> edit.note().getId()).toList())) {
+            latest.put(revision.getNoteId(), revision);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<NoteRevision> revisions = new ArrayList<>();
+        for (Edit edit : changed) {
+            Notes note = edit.note();
+            NoteRevision previous = latest.get(note.getId());
+            if (previous == null) {
+                previous = snapshot(note.getId(), 1, edit.previousTitle(), edit.previousContent(),
+                        edit.previousUpdatedAt() != null ? edit.previousUpdatedAt() : now);
+                revisions.add(previous);
+            }
+
+            int number = previous.getRevision() + 1;
+            String content = note.getNotes();
+            if (number - previous.getBaseRevision() >= snapshotInterval) {
+                revisions.add(snapshot(note.getId(), number, note.getTitle(), content, now));
+                continue;
+            }
+            String delta = TextDelta.diff(edit.previousContent(), content);
+            if (delta.length() >= (content == null ? 0 : content.length())) {
+                // Rewritten rather than edited: a copy is no larger, and starts a shorter chain
+                revisions.add(snapshot(note.getId(), number, note.getTitle(), content, now));
+                continue;
+            }
+            revisions.add(NoteRevision.builder()
+                    .noteId(note.getId())
+                    .revision(number)
+                    .baseRevision(previous.getBaseRevision())
+                    .snapshot(false)
+                    .title(note.getTitle())
+                    .content(delta)
+                    .createdAt(now)
+                    .build());
+        }
+        noteRevisionRepository.saveAll(revisions);
+    }
+
+    /**
+     * Drops the history of deleted notes.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteRevisions(Collection<Integer> noteIds) {
+        if (!noteIds.isEmpty()) {
+            noteRevisionRepository.deleteByNoteIds(noteIds);
+        }
+    }
+
+    /**
+     * Lists the revisions of one of the user's notes, newest first.
+     * @throws NoteNotFoundException if the user has no note with this id.
+     */
+    public List<NoteRevisionSummary> listRevisions(String email, Integer noteId) {
+        checkOwner(email, noteId);
+        return noteRevisionRepository.findSummaries(noteId);
+    }
+
+    /**
+     * Rebuilds a revision of one of the user's notes from its snapshot and the deltas after it.
+     * @throws NoteNotFoundException if the user has no note with this id, or it has no such revision.
+     */
+    @Transactional(readOnly = true)
+    public NoteRevisionContent getRevision(String email, Integer noteId, Integer revision) {
+        checkOwner(email, noteId);
+        NoteRevision target = noteRevisionRepository.findByNoteIdAndRevision(noteId, revision)
+                .orElseThrow(() -> new NoteNotFoundException("Revision " + revision + " of note " + noteId + " not found."));
+        return NoteRevisionContent.builder()
+                .noteId(noteId)
+                .revision(revision)
+                .title(target.getTitle())
+                .notes(rebuild(target))
+                .createdAt(target.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * Deletes revisions older than the retention period. For each note, the newest revision
+     * before the cutoff is kept as a snapshot and the deltas after it are chained to it.
+     */
+    @Scheduled(fixedDelayString = "${notes.revisions.cleanup-interval-ms:3600000}")
+    public void compact() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        for (Object[] mark : noteRevisionRepository.findCompactionMarks(cutoff)) {
+            Integer noteId = (Integer) mark[0];
+            Integer keep = (Integer) mark[2];
+            try {
+                // One note per transaction, so a large backlog does not hold locks for long
+                transactionTemplate.executeWithoutResult(status -> compact(noteId, keep));
+            } catch (RuntimeException e) {
+                System.err.println("Failed to compact revisions of note " + noteId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void compact(Integer noteId, Integer keep) {
+        NoteRevision kept = noteRevisionRepository.findByNoteIdAndRevision(noteId, keep).orElse(null);
+        if (kept == null) {
+            return;
+        }
+        if (!kept.getSnapshot()) {
+            Integer oldBase = kept.getBaseRevision();
+            kept.setContent(rebuild(kept));
+            kept.setSnapshot(true);
+            kept.setBaseRevision(keep);
+            noteRevisionRepository.saveAndFlush(kept);
+            noteRevisionRepository.rebase(noteId, oldBase, keep);
+        }
+        noteRevisionRepository.deleteOlderThan(noteId, keep);
+    }
+
+    private String rebuild(NoteRevision target) {
+        if (target.getSnapshot()) {
+            return target.getContent();
+        }
+        List<NoteRevision> chain = noteRevisionRepository.findByNoteIdAndRevisionBetweenOrderByRevisionAsc(
+                target.getNoteId(), target.getBaseRevision(), target.getRevision());
+        if (chain.isEmpty() || !chain.get(0).getSnapshot() || chain.size() != target.getRevision() - target.getBaseRevision() + 1) {
+            throw new IllegalStateException("Revision history of note " + target.getNoteId() + " is incomplete.");
+        }
+        String content = chain.get(0).getContent();
+        for (NoteRevision revision : chain.subList(1, chain.size())) {
+            content = TextDelta.apply(content, revision.getContent());
+        }
+        return content;
+    }
+
+    private void checkOwner(String email, Integer noteId) {
+        if (!notesRepository.existsByIdAndUserEmail(noteId, email)) {
+            throw new NoteNotFoundException("Note not found with ID: " + noteId);
+        }
+    }
+
+    private static NoteRevision snapshot(Integer noteId, int number, String title, String content, LocalDateTime createdAt) {
+        return NoteRevision.builder()
+                .noteId(noteId)
+                .revision(number)
+                .baseRevision(number)
+                .snapshot(true)
+                .title(title)
+                .content(content)
+                .createdAt(createdAt)
+                .build();
+    }
+}
@@ -0,0 +1,12 @@
+package com.drivelocker.DriveLocker.service;
+
+import java.util.List;
+
+/**
+ * Published when notes are deleted; listeners act on it once the transaction commits.
+ *
+ * @param email The owner of the notes.
+ * @param noteIds The ids of the deleted notes.
+ */
+public record NotesDeletedEvent(String email, List<Integer> noteIds) {
+}
@@ -0,0 +1,14 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.models.Notes;
+
+import java.util.List;
+
+/**
+ * Published once notes have been created or updated.
+ *
+ * @param email The owner of the notes.
+ * @param notes The saved notes.
+ */
+public record NotesSavedEvent(String email, List<Notes> notes) {
+}
@@ -0,0 +1,479 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.MissingDetailsException;
+import com.drivelocker.DriveLocker.io.NoteSearchHit;
+import com.drivelocker.DriveLocker.io.TextSpan;
+import com.drivelocker.DriveLocker.models.Notes;
+import com.drivelocker.DriveLocker.repository.NotesRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Full-text search over note titles and bodies, ranked with BM25, from an in-memory inverted
+ * index per user.
+ *
+ * Every index is rebuilt from the database on startup, and an index missing for any other
+ * reason is built the first time its user searches. Indexes are kept up to date from note
+ * save and delete events. Only term statistics are held in memory, not the note bodies, so
+ * snippets are cut from the few top hits, which are loaded again from the database.
+ *
+ * Text is split into runs of letters and digits and lower-cased. Title terms count
+ * notes.search.title-boost times, so a match in the title outranks one in the body. The last
+ * query term also matches as a prefix, so results follow the user while they type.
+ */
+@Service
+@RequiredArgsConstructor
+public class NotesSearchService {
+
+    // Standard BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // Prefix expansions of the last query term that are scored
+    private static final int MAX_EXPANSIONS = 32;
+
+    private static final int SNIPPET_CHARS = 160;
+
+    private final NotesRepository notesRepository;
+
+    private final Map<String, UserIndex> indexes = new ConcurrentHashMap<>();
+
+    @Value("${notes.search.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    @Value("${notes.search.title-boost:3}")
+    private int titleBoost;
+
+    @Value("${notes.search.default-limit:20}")
+    private int defaultLimit;
+
+    @Value("${notes.search.max-limit:100}")
+    private int maxLimit;
+
+    /**
+     * Finds the user's notes matching any of the query's terms, best matches first, with the
+     * matching terms marked in the title and in a snippet of the body.
+     * @throws MissingDetailsException if the query has no searchable terms.
+     */
+    public List<NoteSearchHit> search(String email, String query, Integer limit) {
+        List<String> terms = query == null ? List.of() : tokenize(query).stream().distinct().toList();
+        if (terms.isEmpty()) {
+            throw new MissingDetailsException("A search query must be provided.");
+        }
+        int size = limit == null || limit <= 0 ? defaultLimit : Math.min(limit, maxLimit);
+        // A trailing space means the last term is complete
+        boolean prefixLast = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        UserIndex index = indexes.computeIfAbsent(email, UserIndex::new);
+        index.ensureBuilt(this::load);
+        List<Scored> top = index.search(terms, prefixLast, size);
+        if (top.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Integer, Notes> notes = new HashMap<>();
+        for (Notes note : notesRepository.findAllById(top.stream().map(Scored::noteId).toList())) {
+            notes.put(note.getId(), note);
+        }
+        Predicate<String> matches = matcher(terms, prefixLast);
+        List<NoteSearchHit> hits = new ArrayList<>(top.size());
+        for (Scored scored : top) {
+            Notes note = notes.get(scored.noteId());
+            if (note == null) {
+                // Deleted since the index was read
+                continue;
+            }
+            String body = note.getNotes() == null ? "" : note.getNotes();
+            int[] window = snippetWindow(body, matches);
+            hits.add(NoteSearchHit.builder()
+                    .id(note.getId())
+                    .title(note.getTitle())
+                    .isFavourate(note.getIsFavourate())
+                    .lastUpdatedAt(note.getLastUpdatedAt())
+                    .score(scored.score())
+                    .titleHighlights(highlights(note.getTitle(), 0, note.getTitle() == null ? 0 : note.getTitle().length(), matches))
+                    .snippet(body.substring(window[0], window[1]))
+                    .snippetHighlights(highlights(body, window[0], window[1], matches))
+                    .build());
+        }
+        return hits;
+    }
+
+    /**
+     * Drops every index and builds them again from the database.
+     */
+    public void rebuild() {
+        indexes.clear();
+        for (String email : notesRepository.findDistinctUserEmails()) {
+            indexes.computeIfAbsent(email, UserIndex::new).ensureBuilt(this::load);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (!rebuildOnStartup) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            // Searches still build what they need on first use
+            System.err.println("Rebuilding the notes search index failed: " + e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotesSaved(NotesSavedEvent event) {
+        UserIndex index = indexes.get(event.email());
+        if (index == null) {
+            // Not loaded; a later build reads the committed rows
+            return;
+        }
+        index.putAll(event.notes().stream().map(this::toDoc).toList());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onNotesDeleted(NotesDeletedEvent event) {
+        UserIndex index = indexes.get(event.email());
+        if (index != null) {
+            index.removeAll(event.noteIds());
+        }
+    }
+
+    private List<Doc> load(String email) {
+        return notesRepository.findByUserEmail(email).stream().map(this::toDoc).toList();
+    }
+
+    /**
+     * Counts the terms of a note, title terms counting titleBoost times each.
+     */
+    private Doc toDoc(Notes note) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        for (String term : tokenize(note.getTitle())) {
+            frequencies.merge(term, titleBoost, Integer::sum);
+            length += titleBoost;
+        }
+        for (String term : tokenize(note.getNotes())) {
+            frequencies.merge(term, 1, Integer::sum);
+            length++;
+        }
+        return new Doc(note.getId(), frequencies, length);
+    }
+
+    /**
+     * Splits text into lower-cased runs of letters and digits.
+     */
+    private static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private static Predicate<String> matcher(List<String> terms, boolean prefixLast) {
+        Set<String> exact = new LinkedHashSet<>(terms);
+        String prefix = prefixLast ? terms.get(terms.size() - 1) : null;
+        return term -> exact.contains(term) || (prefix != null && term.startsWith(prefix));
+    }
+
+    /**
+     * Marks the words of text[from, to) that match the query, with offsets relative to from.
+     */
+    private static List<TextSpan> highlights(String text, int from, int to, Predicate<String> matches) {
+        List<TextSpan> spans = new ArrayList<>();
+        if (text == null) {
+            return spans;
+        }
+        int start = -1;
+        for (int i = from; i <= to; i++) {
+            boolean word = i < to && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                if (matches.test(text.substring(start, i).toLowerCase(Locale.ROOT))) {
+                    spans.add(new TextSpan(start - from, i - from));
+                }
+                start = -1;
+            }
+        }
+        return spans;
+    }
+
+    /**
+     * Picks the SNIPPET_CHARS long part of the text holding the most matches, widened to
+     * word boundaries.
+     * @return The start and end offsets of the snippet.
+     */
+    private static int[] snippetWindow(String text, Predicate<String> matches) {
+        if (text.length() <= SNIPPET_CHARS) {
+            return new int[]{0, text.length()};
+        }
+        List<TextSpan> all = highlights(text, 0, text.length(), matches);
+        int bestStart = 0;
+        int bestCount = 0;
+        for (int i = 0, j = 0; i < all.size(); i++) {
+            while (j < all.size() && all.get(j).getEnd() - all.get(i).getStart() <= SNIPPET_CHARS) {
+                j++;
+            }
+            if (j - i > bestCount) {
+                bestCount = j - i;
+                bestStart = all.get(i).getStart();
+            }
+        }
+        // Some context before the first match, then back to the start of a word
+        int start = Math.max(0, Math.min(bestStart - SNIPPET_CHARS / 4, text.length() - SNIPPET_CHARS));
+        while (start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))) {
+            start--;
+        }
+        int end = Math.min(text.length(), start + SNIPPET_CHARS);
+        while (end < text.length() && Character.isLetterOrDigit(text.charAt(end))) {
+            end++;
+        }
+        return new int[]{start, end};
+    }
+
+    /**
+     * A note as the index sees it: its term frequencies and weighted length.
+     */
+    private record Doc(Integer noteId, Map<String, Integer> frequencies, int length) {
+    }
+
+    private record Scored(Integer noteId, double score) {
+    }
+
+    /**
+     * The index of one user. Notes are numbered in insertion order, so posting lists stay
+     * sorted; deletes and updates only mark the old number as dead until enough have piled up
+     * to compact. Document frequencies and lengths are kept for live notes only, so ranking
+     * is not skewed by dead entries.
+     */
+    private static final class UserIndex {
+
+        private final String email;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private volatile boolean built;
+
+        private final List<Doc> docs = new ArrayList<>();
+        private final Map<Integer, Integer> numberById = new HashMap<>();
+        private final BitSet dead = new BitSet();
+        private int deadCount;
+        private long totalLength;
+        // Sorted, so prefixes of the last query term can be expanded
+        private final TreeMap<String, Postings> postings = new TreeMap<>();
+
+        private UserIndex(String email) {
+            this.email = email;
+        }
+
+        /**
+         * Loads the index on first use. Updates arriving meanwhile wait for the lock and are
+         * applied afterwards.
+         */
+        private void ensureBuilt(Function<String, List<Doc>> loader) {
+            if (built) {
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                if (built) {
+                    return;
+                }
+                clear();
+                loader.apply(email).forEach(this::put);
+                built = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void putAll(List<Doc> saved) {
+            lock.writeLock().lock();
+            try {
+                saved.forEach(this::put);
+                compactIfNeeded();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void removeAll(List<Integer> noteIds) {
+            lock.writeLock().lock();
+            try {
+                noteIds.forEach(this::remove);
+                compactIfNeeded();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private List<Scored> search(List<String> terms, boolean prefixLast, int limit) {
+            lock.readLock().lock();
+            try {
+                int live = docs.size() - deadCount;
+                if (live == 0) {
+                    return List.of();
+                }
+                double averageLength = (double) totalLength / live;
+                double[] scores = new double[docs.size()];
+                BitSet matched = new BitSet();
+
+                for (int t = 0; t < terms.size(); t++) {
+                    String term = terms.get(t);
+                    List<Map.Entry<String, Postings>> expansions = new ArrayList<>();
+                    if (prefixLast && t == terms.size() - 1) {
+                        for (Map.Entry<String, Postings> entry : postings.tailMap(term, true).entrySet()) {
+                            if (!entry.getKey().startsWith(term) || expansions.size() >= MAX_EXPANSIONS) {
+                                break;
+                            }
+                            expansions.add(entry);
+                        }
+                    } else if (postings.containsKey(term)) {
+                        expansions.add(Map.entry(term, postings.get(term)));
+                    }
+
+                    // A note scores the best of the expansions it contains, not their sum
+                    double[] termScores = new double[docs.size()];
+                    for (Map.Entry<String, Postings> expansion : expansions) {
+                        Postings list = expansion.getValue();
+                        double idf = Math.log(1 + (live - list.liveCount + 0.5) / (list.liveCount + 0.5));
+                        for (int i = 0; i < list.size; i++) {
+                            int number = list.numbers[i];
+                            if (dead.get(number)) {
+                                continue;
+                            }
+                            int tf = list.frequencies[i];
+                            double norm = K1 * (1 - B + B * docs.get(number).length() / averageLength);
+                            termScores[number] = Math.max(termScores[number], idf * tf * (K1 + 1) / (tf + norm));
+                            matched.set(number);
+                        }
+                    }
+                    for (int number = matched.nextSetBit(0); number >= 0; number = matched.nextSetBit(number + 1)) {
+                        scores[number] += termScores[number];
+                    }
+                }
+
+                PriorityQueue<Scored> top = new PriorityQueue<>(Comparator.comparingDouble(Scored::score));
+                for (int number = matched.nextSetBit(0); number >= 0; number = matched.nextSetBit(number + 1)) {
+                    top.add(new Scored(docs.get(number).noteId(), scores[number]));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+                List<Scored> ranked = new ArrayList<>(top);
+                ranked.sort(Comparator.comparingDouble(Scored::score).reversed());
+                return ranked;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Adds a note, replacing the entry of an earlier version of it.
+         */
+        private void put(Doc doc) {
+            if (doc.noteId() == null) {
+                return;
+            }
+            remove(doc.noteId());
+            int number = docs.size();
+            docs.add(doc);
+            numberById.put(doc.noteId(), number);
+            totalLength += doc.length();
+            doc.frequencies().forEach((term, tf) -> {
+                Postings list = postings.computeIfAbsent(term, key -> new Postings());
+                list.add(number, tf);
+                list.liveCount++;
+            });
+        }
+
+        private void remove(Integer noteId) {
+            Integer number = numberById.remove(noteId);
+            if (number == null) {
+                return;
+            }
+            dead.set(number);
+            deadCount++;
+            Doc doc = docs.get(number);
+            totalLength -= doc.length();
+            // A term no live note contains is dropped, so prefix expansion never spends its
+            // budget on it; its dead entries are skipped anyway
+            doc.frequencies().keySet().forEach(term ->
+                    postings.computeIfPresent(term, (key, list) -> --list.liveCount == 0 ? null : list));
+        }
+
+        private void compactIfNeeded() {
+            if (deadCount > 1024 && deadCount > docs.size() / 4) {
+                List<Doc> live = new ArrayList<>(docs.size() - deadCount);
+                for (int i = 0; i < docs.size(); i++) {
+                    if (!dead.get(i)) {
+                        live.add(docs.get(i));
+                    }
+                }
+                clear();
+                live.forEach(this::put);
+            }
+        }
+
+        private void clear() {
+            docs.clear();
+            numberById.clear();
+            dead.clear();
+            deadCount = 0;
+            totalLength = 0;
+            postings.clear();
+        }
+    }
+
+    /**
+     * The notes containing a term and how often, as parallel arrays.
+     */
+    private static final class Postings {
+        private int[] numbers = new int[2];
+        private int[] frequencies = new int[2];
+        private int size;
+        private int liveCount;
+
+        private void add(int number, int frequency) {
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            numbers[size] = number;
+            frequencies[size++] = frequency;
+        }
+    }
+}
@@ -5,15 +5,35 @@ package com.drivelocker.DriveLocker.service;
 import com.drivelocker.DriveLocker.exceptions.InvalidCredentialsException;
 import com.drivelocker.DriveLocker.exceptions.MissingDetailsException;
 import com.drivelocker.DriveLocker.exceptions.NoteNotFoundException;
+import com.drivelocker.DriveLocker.exceptions.PreconditionFailedException;
 import com.drivelocker.DriveLocker.exceptions.UserNotFoundException;
+import com.drivelocker.DriveLocker.io.NoteChange;
+import com.drivelocker.DriveLocker.io.NotePage;
+import com.drivelocker.DriveLocker.io.NoteSummary;
+import com.drivelocker.DriveLocker.io.NotesBulkRequest;
+import com.drivelocker.DriveLocker.io.NotesBulkResponse;
 import com.drivelocker.DriveLocker.models.Notes;
+import com.drivelocker.DriveLocker.models.SyncTombstone;
 import com.drivelocker.DriveLocker.models.User;
 import com.drivelocker.DriveLocker.repository.NotesRepository;
 import com.drivelocker.DriveLocker.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,6 +42,22 @@ public class NotesService implements INotesService {
 
     private final NotesRepository notesRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SyncService syncService;
+    private final NoteRevisionService noteRevisionService;
+
+    // Bounds for the first keyset page; rows are always updated well inside them
+    private static final LocalDateTime KEYSET_MIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime KEYSET_MAX = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    @Value("${notes.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${notes.page.max-size:200}")
+    private int maxPageSize;
+
+    @Value("${notes.bulk.max-operations:10000}")
+    private int maxBulkOperations;
 
     /**
      * A private helper method to fetch a user by email and verify if their account is active.
@@ -45,8 +81,10 @@ public class NotesService implements INotesService {
     }
 
     @Override
+    @Transactional
     public Notes createNotes(String email, String title, String notes) {
         User user = getAndVerifyUser(email);
+        syncService.prepare(email);
 
         if (title == null || notes == null || title.isEmpty() || notes.isEmpty()) {
             throw new MissingDetailsException("Title and notes content are required.");
@@ -57,25 +95,41 @@ public class NotesService implements INotesService {
         newNote.setTitle(title);
         newNote.setUser(user);
         newNote.setIsFavourate(false);
+        newNote.setChangeSeq(syncService.next(email, 1));
 
-        return notesRepository.save(newNote);
+        Notes saved = notesRepository.save(newNote);
+        noteRevisionService.recordCreated(List.of(saved));
+        eventPublisher.publishEvent(new NotesSavedEvent(email, List.of(saved)));
+        return saved;
     }
 
+    /**
+     * Updates a note's title, content and favourite flag.
+     * @param expectedVersion The version the client last saw (its If-Match), or null to
+     *                        update whatever the current version is.
+     * @throws PreconditionFailedException if the note's version is not the expected one.
+     */
     @Override
-    public Notes updateNotes(String email, Notes updatedNote) {
+    @Transactional
+    public Notes updateNotes(String email, Notes updatedNote, Long expectedVersion) {
         getAndVerifyUser(email); // Ensures user is valid and verified
+        syncService.prepare(email);
 
         if (updatedNote.getId() == null) {
             throw new MissingDetailsException("Note ID is required for update.");
         }
 
-        Notes existingNote = notesRepository.findById(updatedNote.getId())
+        // Locked, so the revision recorded below is numbered after any edit still in flight
+        Notes existingNote = notesRepository.findByIdForUpdate(updatedNote.getId())
                 .orElseThrow(() -> new NoteNotFoundException("Note not found with ID: " + updatedNote.getId()));
 
         if (!existingNote.getUser().getEmail().equals(email)) {
             // Reusing InvalidCredentialsException to signify a lack of authorization for this resource
             throw new InvalidCredentialsException("User not authorized to update this note.");
         }
+        if (expectedVersion != null && !expectedVersion.equals(existingNote.getVersion())) {
+            throw new PreconditionFailedException("Note has been modified since version " + expectedVersion + ".");
+        }
 
         // Check if the new title is a duplicate, but only for other notes belonging to this user
         if (!existingNote.getTitle().equals(updatedNote.getTitle())) {
@@ -84,16 +138,25 @@ public class NotesService implements INotesService {
             });
         }
 
+        NoteRevisionService.Edit edit = new NoteRevisionService.Edit(existingNote, existingNote.getTitle(),
+                existingNote.getNotes(), existingNote.getLastUpdatedAt());
         existingNote.setTitle(updatedNote.getTitle());
         existingNote.setNotes(updatedNote.getNotes());
         existingNote.setIsFavourate(updatedNote.getIsFavourate());
+        existingNote.setChangeSeq(syncService.next(email, 1));
 
-        return notesRepository.save(existingNote);
+        Notes saved = notesRepository.save(existingNote);
+        noteRevisionService.recordEdits(List.of(edit));
+        eventPublisher.publishEvent(new NotesSavedEvent(email, List.of(saved)));
+        return saved;
     }
 
     @Override
+    @Transactional
     public Boolean deleteNotes(String email, List<String> ids) {
         getAndVerifyUser(email); // Ensures user is valid and verified
+        // Before any note is deleted, see SyncService#prepare
+        syncService.prepare(email);
 
         if (ids == null || ids.isEmpty()) {
             throw new MissingDetailsException("IDs for deletion are required.");
@@ -103,11 +166,167 @@ public class NotesService implements INotesService {
                 .map(Integer::valueOf)
                 .collect(Collectors.toList());
 
-        notesRepository.deleteByIdInAndUserEmail(noteIds, email);
+        // Only the user's own notes are deleted, so only those get tombstones
+        List<Integer> owned = notesRepository.findIdsByIdInAndUserEmail(noteIds, email);
+        notesRepository.deleteByIdInAndUserEmail(owned, email);
+        noteRevisionService.deleteRevisions(owned);
+        syncService.recordDeletions(email, SyncTombstone.NOTE, owned.stream().map(String::valueOf).toList());
+        eventPublisher.publishEvent(new NotesDeletedEvent(email, owned));
 
         return true;
     }
 
+    /**
+     * Applies many note changes in one transaction: all of them or none. Deletes run first,
+     * as one statement, so their titles are free for the creates and updates. New notes take
+     * their ids from the pooled generator, so their inserts, like the updates, go out in JDBC
+     * batches when the transaction commits.
+     * @param email The email of the user.
+     * @param request The notes to create, update and delete; at most notes.bulk.max-operations in all.
+     * @return The created and updated notes, and the ids that were deleted.
+     * @throws MissingDetailsException if the request is empty, too large, or a change lacks details.
+     * @throws NoteNotFoundException if a note to update does not exist or is not the user's.
+     * @throws PreconditionFailedException if a note to update is no longer at the version given.
+     * @throws InvalidCredentialsException if two notes would end up with the same title, or a
+     *                                     title would move from one note to another.
+     */
+    @Override
+    @Transactional
+    public NotesBulkResponse bulkNotes(String email, NotesBulkRequest request) {
+        User user = getAndVerifyUser(email);
+        syncService.prepare(email);
+
+        List<NoteChange> creates = request.getCreate() == null ? List.of() : request.getCreate();
+        List<NoteChange> updates = request.getUpdate() == null ? List.of() : request.getUpdate();
+        Set<Integer> deleteIds = request.getDelete() == null ? Set.of() : new LinkedHashSet<>(request.getDelete());
+        int operations = creates.size() + updates.size() + deleteIds.size();
+        if (operations == 0) {
+            throw new MissingDetailsException("At least one note to create, update or delete is required.");
+        }
+        if (operations > maxBulkOperations) {
+            throw new MissingDetailsException("At most " + maxBulkOperations + " note changes are allowed per request.");
+        }
+
+        for (NoteChange create : creates) {
+            if (create.getTitle() == null || create.getNotes() == null
+                    || create.getTitle().isEmpty() || create.getNotes().isEmpty()) {
+                throw new MissingDetailsException("Title and notes content are required.");
+            }
+        }
+        Map<Integer, NoteChange> updatesById = new LinkedHashMap<>();
+        for (NoteChange update : updates) {
+            if (update.getId() == null) {
+                throw new MissingDetailsException("Note ID is required for update.");
+            }
+            if (update.getTitle() != null && update.getTitle().isEmpty()) {
+                throw new MissingDetailsException("Title cannot be empty.");
+            }
+            if (updatesById.put(update.getId(), update) != null || deleteIds.contains(update.getId())) {
+                throw new MissingDetailsException("Note " + update.getId() + " is changed more than once.");
+            }
+        }
+
+        // Deleted before the title checks, so a note can be replaced by a new one with its title
+        List<Integer> deleted = deleteIds.isEmpty()
+                ? List.of()
+                : notesRepository.findIdsByIdInAndUserEmail(new ArrayList<>(deleteIds), email);
+        if (!deleted.isEmpty()) {
+            notesRepository.deleteAllByIdInBulk(deleted);
+            noteRevisionService.deleteRevisions(deleted);
+        }
+
+        List<Notes> updated = updatesById.isEmpty()
+                ? List.of()
+                : notesRepository.findByIdInAndUserEmailForUpdate(updatesById.keySet(), email);
+        if (updated.size() != updatesById.size()) {
+            Set<Integer> found = new HashSet<>();
+            updated.forEach(note -> found.add(note.getId()));
+            Integer missing = updatesById.keySet().stream().filter(id -> !found.contains(id)).findFirst().orElseThrow();
+            throw new NoteNotFoundException("Note not found with ID: " + missing);
+        }
+
+        // Every title the request leaves in place or claims must be unique among the user's notes
+        Set<String> titles = new HashSet<>();
+        Set<String> claimed = new HashSet<>();
+        for (Notes note : updated) {
+            NoteChange change = updatesById.get(note.getId());
+            Long expected = change.getVersion();
+            if (expected != null && !expected.equals(note.getVersion())) {
+                throw new PreconditionFailedException("Note " + note.getId() + " has been modified since version " + expected + ".");
+            }
+            String title = change.getTitle() != null ? change.getTitle() : note.getTitle();
+            if (!titles.add(title)) {
+                throw new InvalidCredentialsException("A note with this title already exists.");
+            }
+            if (!title.equals(note.getTitle())) {
+                claimed.add(title);
+            }
+        }
+        for (NoteChange create : creates) {
+            if (!titles.add(create.getTitle())) {
+                throw new InvalidCredentialsException("A note with this title already exists.");
+            }
+            claimed.add(create.getTitle());
+        }
+        if (!claimed.isEmpty()) {
+            // Titles are unique columns and rows are written in id order, not request order, so a
+            // title cannot pass from one note to another in the same request, even in a swap
+            for (Notes holder : notesRepository.findByUserEmailAndTitleIn(email, claimed)) {
+                if (updatesById.containsKey(holder.getId())) {
+                    throw new InvalidCredentialsException("Title '" + holder.getTitle()
+                            + "' is being moved from note " + holder.getId() + "; rename it in a separate request.");
+                }
+                throw new InvalidCredentialsException("A note with this title already exists.");
+            }
+        }
+
+        int saves = updated.size() + creates.size();
+        long seq = saves == 0 ? 0 : syncService.next(email, saves);
+        List<NoteRevisionService.Edit> edits = new ArrayList<>(updated.size());
+        for (Notes note : updated) {
+            NoteChange change = updatesById.get(note.getId());
+            edits.add(new NoteRevisionService.Edit(note, note.getTitle(), note.getNotes(), note.getLastUpdatedAt()));
+            if (change.getTitle() != null) {
+                note.setTitle(change.getTitle());
+            }
+            if (change.getNotes() != null) {
+                note.setNotes(change.getNotes());
+            }
+            if (change.getIsFavourate() != null) {
+                note.setIsFavourate(change.getIsFavourate());
+            }
+            note.setChangeSeq(seq++);
+        }
+        List<Notes> newNotes = new ArrayList<>(creates.size());
+        for (NoteChange create : creates) {
+            Notes note = new Notes();
+            note.setNotes(create.getNotes());
+            note.setTitle(create.getTitle());
+            note.setUser(user);
+            note.setIsFavourate(Boolean.TRUE.equals(create.getIsFavourate()));
+            note.setChangeSeq(seq++);
+            newNotes.add(note);
+        }
+        List<Notes> created = notesRepository.saveAll(newNotes);
+        noteRevisionService.recordEdits(edits);
+        noteRevisionService.recordCreated(created);
+        syncService.recordDeletions(email, SyncTombstone.NOTE, deleted.stream().map(String::valueOf).toList());
+
+        if (saves > 0) {
+            List<Notes> saved = new ArrayList<>(updated);
+            saved.addAll(created);
+            eventPublisher.publishEvent(new NotesSavedEvent(email, saved));
+        }
+        if (!deleted.isEmpty()) {
+            eventPublisher.publishEvent(new NotesDeletedEvent(email, deleted));
+        }
+        return NotesBulkResponse.builder()
+                .created(created)
+                .updated(updated)
+                .deleted(deleted)
+                .build();
+    }
+
     @Override
     public List<Notes> getNotes(String email) {
         getAndVerifyUser(email); // Ensures user is valid and verified
@@ -118,4 +337,78 @@ public class NotesService implements INotesService {
         }
         return userNotes;
     }
+
+    /**
+     * Returns one page of summaries of the user's notes, ordered by (lastUpdatedAt, id).
+     * An empty first page is a valid answer, unlike in {@link #getNotes}.
+     * @param email The email of the user.
+     * @param cursor The nextCursor of the previous page, or null for the first page.
+     * @param limit The page size; capped at notes.page.max-size.
+     * @param sort "desc" (most recently updated first, the default) or "asc".
+     * @param favourite Only return favourite (true) or other (false) notes, if given.
+     * @return The page and the cursor for the next one.
+     * @throws MissingDetailsException if the cursor or sort is not valid.
+     */
+    @Override
+    public NotePage getNotesPage(String email, String cursor, Integer limit, String sort, Boolean favourite) {
+        getAndVerifyUser(email);
+
+        boolean ascending;
+        if (sort == null || sort.equalsIgnoreCase("desc")) {
+            ascending = false;
+        } else if (sort.equalsIgnoreCase("asc")) {
+            ascending = true;
+        } else {
+            throw new MissingDetailsException("Sort must be 'asc' or 'desc'.");
+        }
+        int size = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, maxPageSize);
+
+        LocalDateTime updatedAt;
+        int id;
+        if (cursor == null || cursor.isBlank()) {
+            updatedAt = ascending ? KEYSET_MIN : KEYSET_MAX;
+            id = ascending ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        } else {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = decoded.lastIndexOf('|');
+                updatedAt = LocalDateTime.parse(decoded.substring(0, separator));
+                id = Integer.parseInt(decoded.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new MissingDetailsException("Invalid page cursor.");
+            }
+        }
+
+        List<NoteSummary> items = ascending
+                ? notesRepository.findPageAsc(email, favourite, updatedAt, id, Limit.of(size))
+                : notesRepository.findPageDesc(email, favourite, updatedAt, id, Limit.of(size));
+
+        String nextCursor = null;
+        if (items.size() == size) {
+            NoteSummary last = items.get(items.size() - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((last.getLastUpdatedAt() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+        return NotePage.builder().items(items).nextCursor(nextCursor).build();
+    }
+
+    /**
+     * A version of the user's note listings that changes whenever any of their notes does,
+     * read from the change sequence without touching the notes.
+     */
+    @Override
+    public long getNotesVersion(String email) {
+        return syncService.currentSeq(email);
+    }
+
+    /**
+     * Returns one of the user's notes with its full content.
+     * @throws NoteNotFoundException if the user has no note with this id.
+     */
+    @Override
+    public Notes getNote(String email, Integer id) {
+        getAndVerifyUser(email);
+        return notesRepository.findByIdAndUserEmail(id, email)
+                .orElseThrow(() -> new NoteNotFoundException("Note not found with ID: " + id));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,179 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.io.UnlockResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived unlock tokens, so a client that has proven its passkey once can upload and
+ * download for a while without the passkey being hashed again on every request. Each token
+ * also holds the key derived from the passkey, which skips the key derivation as well.
+ *
+ * Requests that send the passkey itself are remembered the same way for a token's lifetime,
+ * keyed by a MAC of the passkey, so clients that never unlock pay for the passkey hash and
+ * the key derivation once rather than on every request.
+ *
+ * Tokens live only in this instance's memory: they are lost on restart, and behind a load
+ * balancer a client has to unlock on each instance it reaches.
+ */
+@Service
+public class PasskeyUnlockService {
+
+    private static final int TOKEN_BYTES = 32;
+
+    // Per user, tokens in the order they were issued, which with a fixed lifetime is also expiry order
+    private final Map<String, LinkedHashMap<String, Unlock>> unlocks = new ConcurrentHashMap<>();
+    // Per user, recently verified passkeys by their MAC, oldest first
+    private final Map<String, LinkedHashMap<String, Unlock>> verified = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    // Random per instance, so the MACs held in memory cannot be checked against guesses offline
+    private final SecretKeySpec macKey;
+
+    public PasskeyUnlockService() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        macKey = new SecretKeySpec(bytes, "HmacSHA256");
+    }
+
+    @Value("${passkey.unlock.ttl-seconds:900}")
+    private long ttlSeconds;
+
+    @Value("${passkey.unlock.max-per-user:5}")
+    private int maxPerUser;
+
+    /**
+     * A live token's key, which is null when encryption is disabled.
+     */
+    public record Unlock(SecretKey key, Instant expiresAt) {
+    }
+
+    /**
+     * Issues a token for a user whose passkey has just been verified. When the user already
+     * holds passkey.unlock.max-per-user tokens, the oldest one is revoked.
+     * @param key The user's key from the passkey; null when encryption is disabled.
+     */
+    public UnlockResponse issue(String email, SecretKey key) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        Instant expiresAt = Instant.now().plusSeconds(ttlSeconds);
+
+        put(unlocks, email, token, new Unlock(key, expiresAt));
+        return UnlockResponse.builder()
+                .token(token)
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    /**
+     * Looks up a token issued to this user that has not expired or been revoked.
+     */
+    public Optional<Unlock> resolve(String email, String token) {
+        return get(unlocks, email, token);
+    }
+
+    /**
+     * Remembers a passkey that has just been verified, with the key derived from it.
+     * @param key The user's key from the passkey; null when encryption is disabled.
+     */
+    public void remember(String email, String passkey, SecretKey key) {
+        put(verified, email, mac(email, passkey), new Unlock(key, Instant.now().plusSeconds(ttlSeconds)));
+    }
+
+    /**
+     * Looks up a passkey of this user verified within the last passkey.unlock.ttl-seconds.
+     */
+    public Optional<Unlock> recall(String email, String passkey) {
+        return get(verified, email, mac(email, passkey));
+    }
+
+    private void put(Map<String, LinkedHashMap<String, Unlock>> entries, String email, String id, Unlock unlock) {
+        entries.compute(email, (user, tokens) -> {
+            if (tokens == null) {
+                tokens = new LinkedHashMap<>();
+            }
+            tokens.put(id, unlock);
+            Iterator<String> oldest = tokens.keySet().iterator();
+            while (tokens.size() > maxPerUser) {
+                oldest.next();
+                oldest.remove();
+            }
+            return tokens;
+        });
+    }
+
+    private static Optional<Unlock> get(Map<String, LinkedHashMap<String, Unlock>> entries, String email, String token) {
+        Unlock[] found = new Unlock[1];
+        entries.computeIfPresent(email, (user, tokens) -> {
+            Unlock unlock = tokens.get(token);
+            if (unlock != null && unlock.expiresAt().isBefore(Instant.now())) {
+                tokens.remove(token);
+            } else {
+                found[0] = unlock;
+            }
+            return tokens.isEmpty() ? null : tokens;
+        });
+        return Optional.ofNullable(found[0]);
+    }
+
+    /**
+     * Revokes one of the user's tokens. Unknown tokens are ignored.
+     */
+    public void revoke(String email, String token) {
+        unlocks.computeIfPresent(email, (user, tokens) -> {
+            tokens.remove(token);
+            return tokens.isEmpty() ? null : tokens;
+        });
+    }
+
+    /**
+     * Revokes every token of the user, and forgets their verified passkeys.
+     */
+    public void revokeAll(String email) {
+        unlocks.remove(email);
+        verified.remove(email);
+    }
+
+    @Scheduled(fixedDelayString = "${passkey.unlock.cleanup-interval-ms:60000}")
+    public void purgeExpired() {
+        purgeExpired(unlocks);
+        purgeExpired(verified);
+    }
+
+    private static void purgeExpired(Map<String, LinkedHashMap<String, Unlock>> entries) {
+        Instant now = Instant.now();
+        for (String email : entries.keySet()) {
+            entries.computeIfPresent(email, (user, tokens) -> {
+                tokens.values().removeIf(unlock -> unlock.expiresAt().isBefore(now));
+                return tokens.isEmpty() ? null : tokens;
+            });
+        }
+    }
+
+    private String mac(String email, String passkey) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(macKey);
+            mac.update(email.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(passkey.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.FileNotFoundException;
+import com.drivelocker.DriveLocker.exceptions.FileStorageException;
+import com.drivelocker.DriveLocker.exceptions.InvalidUploadException;
+import com.drivelocker.DriveLocker.exceptions.UserNotFoundException;
+import com.drivelocker.DriveLocker.io.ByteRange;
+import com.drivelocker.DriveLocker.io.UploadSessionRequest;
+import com.drivelocker.DriveLocker.io.UploadSessionResponse;
+import com.drivelocker.DriveLocker.models.UploadChunk;
+import com.drivelocker.DriveLocker.models.UploadSession;
+import com.drivelocker.DriveLocker.models.User;
+import com.drivelocker.DriveLocker.repository.UploadChunkRepository;
+import com.drivelocker.DriveLocker.repository.UploadSessionRepository;
+import com.drivelocker.DriveLocker.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Resumable uploads: the client opens a session, PUTs chunks at arbitrary offsets in any
+ * order (retrying whatever failed), and completes the session once every byte has arrived.
+ * Chunks are written straight into a sparse part file at their offset, so no assembly step
+ * is needed before the content is handed to the storage backend.
+ */
+@Service
+@RequiredArgsConstructor
+public class ResumableUploadService {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadChunkRepository uploadChunkRepository;
+    private final UserRepository userRepository;
+    private final FileService fileService;
+    private final UsageService usageService;
+    private final EncryptionService encryptionService;
+    private final UploadValidationService uploadValidationService;
+
+    @Value("${uploads.resumable.dir:./data/uploads}")
+    private String uploadDirPath;
+
+    @Value("${uploads.resumable.max-chunk-size:67108864}")
+    private long maxChunkBytes;
+
+    @Value("${uploads.resumable.max-file-size:5368709120}")
+    private long maxFileBytes;
+
+    @Value("${uploads.resumable.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    private Path uploadDir;
+
+    // Chunk writes hold the read lock; storing or deleting the part file holds the write lock
+    private final Map<String, ReentrantReadWriteLock> locks = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        uploadDir = Paths.get(uploadDirPath).toAbsolutePath().normalize();
+        Files.createDirectories(uploadDir);
+    }
+
+    public UploadSessionResponse createSession(String email, UploadSessionRequest request, String unlockToken) {
+        User user = fileService.authorize(email, request.getPasskey(), unlockToken).user();
+
+        if (request.getTotalBytes() > maxFileBytes) {
+            throw new InvalidUploadException("File exceeds the maximum upload size of " + maxFileBytes + " bytes.");
+        }
+        // The content itself is sniffed on complete, before it is stored
+        uploadValidationService.checkDeclared(request.getFileName(), request.getTotalBytes());
+        // Fail before the client sends any chunks; the quota is reserved for real on complete
+        usageService.checkAvailable(email, request.getTotalBytes());
+
+        LocalDateTime now = LocalDateTime.now();
+        UploadSession session = UploadSession.builder()
+                .id(UUID.randomUUID().toString())
+                .user(user)
+                .fileName(request.getFileName())
+                .totalBytes(request.getTotalBytes())
+                .createdAt(now)
+                .expiresAt(now.plusHours(sessionTtlHours))
+                .completing(false)
+                .build();
+
+        try {
+            Files.createFile(partFile(session.getId()));
+        } catch (IOException e) {
+            throw new FileStorageException("Could not start upload: " + e.getMessage(), e);
+        }
+        uploadSessionRepository.save(session);
+        return toResponse(session, List.of());
+    }
+
+    /**
+     * Writes one chunk at the given offset. The chunk is only recorded as received once all
+     * of its bytes are on disk, so an interrupted chunk is simply sent again. Chunks are
+     * refused once the session has been claimed for completing or aborting it.
+     */
+    public UploadSessionResponse writeChunk(String email, String sessionId, long offset,
+                                            long length, InputStream body) {
+        getOpenSession(email, sessionId);
+        ReentrantReadWriteLock lock = lockFor(sessionId);
+        if (!lock.readLock().tryLock()) {
+            throw new InvalidUploadException("Upload is being completed; no more chunks are accepted.");
+        }
+        try {
+            // Read again under the lock, without getOpenSession: discarding needs the write lock
+            return writeChunk(getSession(email, sessionId), offset, length, body);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private UploadSessionResponse writeChunk(UploadSession session, long offset, long length, InputStream body) {
+        String sessionId = session.getId();
+        // A claim made before the lock was taken is seen here; a complete or abort claiming
+        // later waits for this chunk before touching the part file
+        if (Boolean.TRUE.equals(session.getCompleting())) {
+            throw new InvalidUploadException("Upload is being completed; no more chunks are accepted.");
+        }
+
+        if (length <= 0) {
+            throw new InvalidUploadException("Chunk must have a Content-Length.");
+        }
+        if (length > maxChunkBytes) {
+            throw new InvalidUploadException("Chunk exceeds the maximum chunk size of " + maxChunkBytes + " bytes.");
+        }
+        if (offset < 0 || offset + length > session.getTotalBytes()) {
+            throw new InvalidUploadException("Chunk at offset " + offset + " falls outside the file.");
+        }
+
+        try (FileChannel channel = FileChannel.open(partFile(sessionId), StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+            long position = offset;
+            long remaining = length;
+            while (remaining > 0) {
+                int n = body.read(buffer.array(), 0, (int) Math.min(buffer.capacity(), remaining));
+                if (n == -1) {
+                    throw new InvalidUploadException("Chunk ended after " + (length - remaining) + " of " + length + " bytes.");
+                }
+                buffer.limit(n);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                buffer.clear();
+                remaining -= n;
+            }
+        } catch (IOException e) {
+            throw new FileStorageException("Could not store chunk: " + e.getMessage(), e);
+        }
+
+        uploadChunkRepository.save(UploadChunk.builder()
+                .sessionId(sessionId)
+                .chunkOffset(offset)
+                .chunkLength(length)
+                .build());
+        return toResponse(session, receivedRanges(sessionId));
+    }
+
+    public UploadSessionResponse getStatus(String email, String sessionId) {
+        UploadSession session = getOpenSession(email, sessionId);
+        return toResponse(session, receivedRanges(sessionId));
+    }
+
+    /**
+     * Hands the assembled file to the normal upload path and discards the session. Only one
+     * complete request per session gets past the claim; others are turned away instead of
+     * storing the file a second time.
+     * @param passkey Needed to encrypt the file unless an unlock token is given; may be null
+     *                when encryption is disabled.
+     */
+    public String complete(String email, String sessionId, String passkey, String unlockToken) {
+        UploadSession session = getOpenSession(email, sessionId);
+
+        List<ByteRange> ranges = receivedRanges(sessionId);
+        boolean complete = ranges.size() == 1
+                && ranges.get(0).getStart() == 0
+                && ranges.get(0).getEnd() == session.getTotalBytes();
+        if (!complete) {
+            throw new InvalidUploadException("Upload is incomplete; " + receivedBytes(ranges)
+                    + " of " + session.getTotalBytes() + " bytes received.");
+        }
+
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new UserNotFoundException("Account does not exist."));
+        SecretKey key = encryptionService.isEnabled() ? fileService.authorize(email, passkey, unlockToken).key() : null;
+
+        // A conditional update rather than a row lock, so no transaction is held open while
+        // the file is stored
+        if (uploadSessionRepository.claim(sessionId, LocalDateTime.now().plusHours(sessionTtlHours)) == 0) {
+            throw new InvalidUploadException("Upload is already being completed.");
+        }
+        ReentrantReadWriteLock lock = lockFor(sessionId);
+        // Waits for chunks still being written; later ones see the claim
+        lock.writeLock().lock();
+        try {
+            String result;
+            try {
+                result = fileService.saveUpload(user, key, session.getFileName(),
+                        new FileSystemResource(partFile(sessionId)), session.getTotalBytes());
+            } catch (RuntimeException e) {
+                // Let the client retry the complete
+                uploadSessionRepository.releaseCompletion(sessionId);
+                throw e;
+            }
+            discard(session);
+            return result;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void abort(String email, String sessionId) {
+        UploadSession session = getSession(email, sessionId);
+        if (uploadSessionRepository.claim(sessionId, session.getExpiresAt()) == 0) {
+            throw new InvalidUploadException("Upload is being completed and can no longer be aborted.");
+        }
+        discard(session);
+    }
+
+    /**
+     * Discards expired sessions, except those a complete is still storing.
+     */
+    @Scheduled(fixedDelayString = "${uploads.resumable.cleanup-interval-ms:600000}")
+    public void purgeExpiredSessions() {
+        LocalDateTime now = LocalDateTime.now();
+        for (UploadSession session : uploadSessionRepository.findByExpiresAtBefore(now)) {
+            expire(session, now);
+        }
+    }
+
+    private UploadSession getSession(String email, String sessionId) {
+        return uploadSessionRepository.findByIdAndUserEmail(sessionId, email)
+                .orElseThrow(() -> new FileNotFoundException("Upload session not found: " + sessionId));
+    }
+
+    private UploadSession getOpenSession(String email, String sessionId) {
+        UploadSession session = getSession(email, sessionId);
+        LocalDateTime now = LocalDateTime.now();
+        if (session.getExpiresAt().isBefore(now)) {
+            expire(session, now);
+            throw new InvalidUploadException("Upload session has expired.");
+        }
+        return session;
+    }
+
+    private void expire(UploadSession session, LocalDateTime now) {
+        if (uploadSessionRepository.claimExpired(session.getId(), now) == 1) {
+            discard(session);
+        }
+    }
+
+    /**
+     * Deletes a session the caller has claimed, once chunks still being written have finished.
+     */
+    private void discard(UploadSession session) {
+        ReentrantReadWriteLock lock = lockFor(session.getId());
+        lock.writeLock().lock();
+        try {
+            uploadChunkRepository.deleteBySessionId(session.getId());
+            uploadSessionRepository.deleteById(session.getId());
+            try {
+                Files.deleteIfExists(partFile(session.getId()));
+            } catch (IOException e) {
+                System.err.println("Failed to delete part file for upload " + session.getId() + ": " + e.getMessage());
+            }
+        } finally {
+            locks.remove(session.getId());
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Merges the recorded chunks (which may overlap or arrive out of order) into sorted,
+     * disjoint ranges.
+     */
+    private List<ByteRange> receivedRanges(String sessionId) {
+        List<ByteRange> ranges = new ArrayList<>();
+        for (UploadChunk chunk : uploadChunkRepository.findBySessionIdOrderByChunkOffset(sessionId)) {
+            long start = chunk.getChunkOffset();
+            long end = start + chunk.getChunkLength();
+            ByteRange last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && start <= last.getEnd()) {
+                last.setEnd(Math.max(last.getEnd(), end));
+            } else {
+                ranges.add(new ByteRange(start, end));
+            }
+        }
+        return ranges;
+    }
+
+    private static long receivedBytes(List<ByteRange> ranges) {
+        return ranges.stream().mapToLong(range -> range.getEnd() - range.getStart()).sum();
+    }
+
+    /**
+     * Part files live on this node's disk, so an in-process lock is enough to keep chunk
+     * writes apart from reading or deleting the file.
+     */
+    private ReentrantReadWriteLock lockFor(String sessionId) {
+        return locks.computeIfAbsent(sessionId, id -> new ReentrantReadWriteLock());
+    }
+
+    private Path partFile(String sessionId) {
+        // Session ids are server-generated UUIDs and are only ever looked up from the database
+        return uploadDir.resolve(sessionId + ".part");
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session, List<ByteRange> ranges) {
+        return UploadSessionResponse.builder()
+                .sessionId(session.getId())
+                .fileName(session.getFileName())
+                .totalBytes(session.getTotalBytes())
+                .receivedBytes(receivedBytes(ranges))
+                .receivedRanges(ranges)
+                .maxChunkBytes(maxChunkBytes)
+                .expiresAt(session.getExpiresAt())
+                .build();
+    }
+}
@@ -0,0 +1,176 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.models.StorageDeletion;
+import com.drivelocker.DriveLocker.repository.StorageDeletionRepository;
+import com.drivelocker.DriveLocker.storage.ContentCache;
+import com.drivelocker.DriveLocker.storage.StorageBackend;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Deletes objects from the storage backend through an outbox, so callers never wait on the
+ * backend. Callers record the object ids in the same transaction that removes their rows;
+ * a scheduled worker then claims due entries, deletes them in chunks in parallel and retries
+ * failures with exponential backoff until they are dead-lettered.
+ */
+@Service
+@RequiredArgsConstructor
+public class StorageDeletionService {
+
+    // Cloudinary's delete API accepts at most 100 ids per call
+    private static final int MAX_CHUNK_SIZE = 100;
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final StorageDeletionRepository storageDeletionRepository;
+    private final StorageBackend storageBackend;
+    private final ContentCache contentCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor storageDeletionExecutor;
+
+    @Value("${storage.deletions.batch-size:500}")
+    private int batchSize;
+
+    @Value("${storage.deletions.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${storage.deletions.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${storage.deletions.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${storage.deletions.backoff-base-ms:5000}")
+    private long backoffBaseMs;
+
+    @Value("${storage.deletions.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    /**
+     * Records objects for deletion. Joins the caller's transaction, so the entries only
+     * become visible to the worker once the rows that referenced them are gone.
+     */
+    @Transactional
+    public void enqueue(List<String> objectIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<StorageDeletion> deletions = objectIds.stream()
+                .distinct()
+                .map(objectId -> StorageDeletion.builder()
+                        .objectId(objectId)
+                        .status(StorageDeletion.PENDING)
+                        .attempts(0)
+                        .nextAttemptAt(now)
+                        .createdAt(now)
+                        .build())
+                .toList();
+        storageDeletionRepository.saveAll(deletions);
+    }
+
+    @Scheduled(fixedDelayString = "${storage.deletions.poll-interval-ms:5000}")
+    public void drain() {
+        List<StorageDeletion> claimed = transactionTemplate.execute(status -> claim());
+        if (claimed == null || claimed.isEmpty()) {
+            return;
+        }
+
+        int size = Math.max(1, Math.min(chunkSize, MAX_CHUNK_SIZE));
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int i = 0; i < claimed.size(); i += size) {
+            List<StorageDeletion> chunk = claimed.subList(i, Math.min(i + size, claimed.size()));
+            chunks.add(CompletableFuture.runAsync(() -> process(chunk), storageDeletionExecutor));
+        }
+        CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    /**
+     * Takes due entries and pushes their next attempt out by the lease, so other workers
+     * leave them alone while this one works on them. If this worker dies, they become due
+     * again once the lease runs out.
+     */
+    private List<StorageDeletion> claim() {
+        LocalDateTime now = LocalDateTime.now();
+        List<StorageDeletion> due = storageDeletionRepository.lockDue(now, Limit.of(batchSize));
+        LocalDateTime leaseUntil = now.plusNanos(leaseMs * 1_000_000);
+        due.forEach(deletion -> deletion.setNextAttemptAt(leaseUntil));
+        return due;
+    }
+
+    private void process(List<StorageDeletion> chunk) {
+        List<String> objectIds = chunk.stream().map(StorageDeletion::getObjectId).distinct().toList();
+        Set<String> gone;
+        String error;
+        try {
+            gone = storageBackend.batchDelete(objectIds);
+            error = "Not confirmed deleted by the storage backend.";
+        } catch (Exception e) {
+            gone = Set.of();
+            error = e.getMessage();
+        }
+
+        List<Long> done = new ArrayList<>();
+        List<StorageDeletion> retries = new ArrayList<>();
+        for (StorageDeletion deletion : chunk) {
+            if (gone.contains(deletion.getObjectId())) {
+                done.add(deletion.getId());
+                continue;
+            }
+            int attempts = deletion.getAttempts() + 1;
+            deletion.setAttempts(attempts);
+            deletion.setLastError(truncate(error));
+            if (attempts >= maxAttempts) {
+                deletion.setStatus(StorageDeletion.DEAD);
+                System.err.println("Giving up deleting storage object " + deletion.getObjectId() + ": " + error);
+            } else {
+                deletion.setNextAttemptAt(LocalDateTime.now().plusNanos(backoffMs(attempts) * 1_000_000));
+            }
+            retries.add(deletion);
+        }
+
+        try {
+            if (!done.isEmpty()) {
+                storageDeletionRepository.deleteAllByIdInBatch(done);
+                contentCache.evict(List.copyOf(gone));
+            }
+            if (!retries.isEmpty()) {
+                storageDeletionRepository.saveAll(retries);
+            }
+        } catch (Exception e) {
+            // The entries stay leased and are picked up again when the lease runs out
+            System.err.println("Failed to record storage deletion results: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Exponential backoff with jitter: somewhere between half and all of base * 2^(attempts - 1),
+     * capped at storage.deletions.backoff-max-ms.
+     */
+    private long backoffMs(int attempts) {
+        long delay = backoffBaseMs;
+        for (int i = 1; i < attempts && delay < backoffMaxMs; i++) {
+            delay *= 2;
+        }
+        delay = Math.min(delay, backoffMaxMs);
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+}
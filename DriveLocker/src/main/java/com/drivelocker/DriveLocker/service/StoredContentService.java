@@ -0,0 +1,141 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.models.StoredContent;
+import com.drivelocker.DriveLocker.models.User;
+import com.drivelocker.DriveLocker.repository.StoredContentRepository;
+import com.drivelocker.DriveLocker.storage.StoredObject;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps the content-hash to stored-object index used to deduplicate uploads.
+ * Each user's identical uploads share one stored object, tracked by a reference count.
+ */
+@Service
+@RequiredArgsConstructor
+public class StoredContentService {
+
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private final StoredContentRepository storedContentRepository;
+
+    /**
+     * Computes the hex-encoded SHA-256 of some content by streaming through it once.
+     *
+     * @param source The content to hash.
+     * @return The hex-encoded digest.
+     * @throws IOException if the content cannot be read.
+     */
+    public String hash(InputStreamSource source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try (InputStream in = source.getInputStream()) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Adds a reference to an already stored object with the same content, if there is one.
+     *
+     * @param email The owner of the content.
+     * @param contentHash The hex-encoded SHA-256 of the content.
+     * @return The existing stored object, or empty if the content is new.
+     */
+    @Transactional
+    public Optional<StoredContent> reuse(String email, String contentHash) {
+        return storedContentRepository.findByUserEmailAndContentHash(email, contentHash)
+                .map(content -> {
+                    content.setRefCount(content.getRefCount() + 1);
+                    return content;
+                });
+    }
+
+    /**
+     * Records a freshly stored object with a single reference.
+     *
+     * @param codec The compression the object was stored with, or null.
+     * @param envelope The encryption the object was stored with, or null.
+     * @param size The length of the original content, used when the stored object is compressed or encrypted.
+     * @throws org.springframework.dao.DataIntegrityViolationException if a concurrent upload
+     *         registered the same content first.
+     */
+    @Transactional
+    public StoredContent register(User user, String contentHash, StoredObject stored, String fileType,
+                                  String codec, Envelope envelope, long size) {
+        boolean transformed = codec != null || envelope != null;
+        StoredContent content = StoredContent.builder()
+                .user(user)
+                .contentHash(contentHash)
+                .objectId(stored.getObjectId())
+                .fileUrl(stored.getUrl())
+                .fileType(fileType)
+                .bytes(!transformed ? stored.getSize() : size >= 0 ? Long.valueOf(size) : null)
+                .codec(codec)
+                .wrappedKey(envelope == null ? null : envelope.wrappedKey())
+                .noncePrefix(envelope == null ? null : Base64.getEncoder().encodeToString(envelope.noncePrefix()))
+                .segmentSize(envelope == null ? null : envelope.segmentSize())
+                .refCount(1L)
+                .createdAt(stored.getCreatedAt())
+                .build();
+        return storedContentRepository.saveAndFlush(content);
+    }
+
+    /**
+     * Drops one reference per entry (ids may repeat). Stored objects left without
+     * references are removed from the index.
+     *
+     * @param contentIds The ids of the stored contents losing a reference.
+     * @return The backend object ids, derivatives included, that are no longer referenced and can be deleted.
+     */
+    @Transactional
+    public List<String> release(List<Long> contentIds) {
+        List<String> orphaned = new ArrayList<>();
+        if (contentIds.isEmpty()) {
+            return orphaned;
+        }
+
+        Map<Long, Long> released = new LinkedHashMap<>();
+        contentIds.forEach(id -> released.merge(id, 1L, Long::sum));
+
+        for (StoredContent content : storedContentRepository.lockAllByIdIn(new ArrayList<>(released.keySet()))) {
+            long remaining = content.getRefCount() - released.get(content.getId());
+            if (remaining > 0) {
+                content.setRefCount(remaining);
+            } else {
+                orphaned.add(content.getObjectId());
+                // Derivatives go with the original
+                if (content.getThumbnailObjectId() != null) {
+                    orphaned.add(content.getThumbnailObjectId());
+                }
+                if (content.getPreviewObjectId() != null) {
+                    orphaned.add(content.getPreviewObjectId());
+                }
+                storedContentRepository.delete(content);
+            }
+        }
+        return orphaned;
+    }
+}
@@ -0,0 +1,258 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.MissingDetailsException;
+import com.drivelocker.DriveLocker.exceptions.SyncTokenExpiredException;
+import com.drivelocker.DriveLocker.io.SyncResponse;
+import com.drivelocker.DriveLocker.io.SyncedFile;
+import com.drivelocker.DriveLocker.models.Notes;
+import com.drivelocker.DriveLocker.models.SyncCounter;
+import com.drivelocker.DriveLocker.models.SyncTombstone;
+import com.drivelocker.DriveLocker.repository.FileRepository;
+import com.drivelocker.DriveLocker.repository.NotesRepository;
+import com.drivelocker.DriveLocker.repository.SyncCounterRepository;
+import com.drivelocker.DriveLocker.repository.SyncTombstoneRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Incremental sync of a user's notes and files. Every write takes numbers from the user's
+ * change sequence ({@link SyncCounter}) and stamps them on the rows it saves, or on
+ * tombstones for the rows it deletes. A sync returns everything stamped after the client's
+ * token, oldest change first, so its cost follows the amount of change rather than the
+ * number of notes and files.
+ *
+ * Rows written before the sequence existed are numbered when the user's counter is created,
+ * with their own ids as offsets so the numbers stay unique.
+ */
+@Service
+@RequiredArgsConstructor
+public class SyncService {
+
+    private final SyncCounterRepository syncCounterRepository;
+    private final SyncTombstoneRepository syncTombstoneRepository;
+    private final NotesRepository notesRepository;
+    private final FileRepository fileRepository;
+    private final FileLinkService fileLinkService;
+    private final TransactionTemplate transactionTemplate;
+
+    private TransactionTemplate newTransaction;
+    private TransactionTemplate snapshot;
+
+    @Value("${sync.default-limit:500}")
+    private int defaultLimit;
+
+    @Value("${sync.max-limit:2000}")
+    private int maxLimit;
+
+    @Value("${sync.tombstones.retention-days:30}")
+    private long tombstoneRetentionDays;
+
+    @PostConstruct
+    public void init() {
+        newTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // One read view for the counter and all three change lists, so none of them runs ahead
+        snapshot = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshot.setReadOnly(true);
+    }
+
+    /**
+     * Takes the next count numbers of the user's change sequence. The counter row stays
+     * locked until the calling transaction ends, so writers of the same user commit in
+     * sequence order.
+     * @return The first of the numbers taken.
+     * @throws IllegalStateException if the write path did not {@link #prepare} the counter.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long next(String email, int count) {
+        if (syncCounterRepository.advance(email, count) == 0) {
+            throw new IllegalStateException("Sync counter of " + email + " was not prepared before the write.");
+        }
+        return syncCounterRepository.findLastSeq(email).orElseThrow() - count + 1;
+    }
+
+    /**
+     * The last number taken from the user's change sequence. It changes with every write to
+     * the user's notes or files, so it serves as a cheap version of their listings.
+     */
+    public long currentSeq(String email) {
+        prepare(email);
+        return syncCounterRepository.findLastSeq(email).orElseThrow();
+    }
+
+    /**
+     * Records deleted notes or files, in the transaction that deletes them.
+     * @param kind {@link SyncTombstone#NOTE} or {@link SyncTombstone#FILE}.
+     * @param itemIds Note ids, or file public ids.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeletions(String email, String kind, List<String> itemIds) {
+        if (itemIds.isEmpty()) {
+            return;
+        }
+        long seq = next(email, itemIds.size());
+        LocalDateTime now = LocalDateTime.now();
+        List<SyncTombstone> tombstones = new ArrayList<>(itemIds.size());
+        for (String itemId : itemIds) {
+            tombstones.add(SyncTombstone.builder()
+                    .userEmail(email)
+                    .kind(kind)
+                    .itemId(itemId)
+                    .changeSeq(seq++)
+                    .deletedAt(now)
+                    .build());
+        }
+        syncTombstoneRepository.saveAll(tombstones);
+    }
+
+    /**
+     * Returns the user's notes and files changed since the token, and those deleted since.
+     * Without a token, every note and file is returned and no deletions.
+     * @param token The nextToken of the previous sync, or null for a full sync.
+     * @param limit The most changes to return; capped at sync.max-limit.
+     * @throws MissingDetailsException if the token is not valid.
+     * @throws SyncTokenExpiredException if deletions since the token have been purged, so the
+     *                                   client must sync again without a token.
+     */
+    public SyncResponse changesSince(String email, String token, Integer limit) {
+        long since = token == null || token.isBlank() ? 0 : decode(token);
+        int size = limit == null || limit <= 0 ? defaultLimit : Math.min(limit, maxLimit);
+        prepare(email);
+        return snapshot.execute(status -> read(email, since, token != null && !token.isBlank(), size));
+    }
+
+    @Scheduled(fixedDelayString = "${sync.tombstones.cleanup-interval-ms:3600000}")
+    @Transactional
+    public void purgeTombstones() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(tombstoneRetentionDays);
+        for (Object[] mark : syncTombstoneRepository.findPurgeMarks(cutoff)) {
+            syncCounterRepository.markPurged((String) mark[0], ((Number) mark[1]).longValue());
+        }
+        syncTombstoneRepository.deleteOlderThan(cutoff);
+    }
+
+    private SyncResponse read(String email, long since, boolean incremental, int size) {
+        SyncCounter counter = syncCounterRepository.findById(email).orElseThrow();
+        if (since > counter.getLastSeq()) {
+            throw new MissingDetailsException("Invalid sync token.");
+        }
+        if (incremental && since < counter.getPurgedSeq()) {
+            throw new SyncTokenExpiredException("Sync token has expired; sync again without a token.");
+        }
+
+        // One more than the page of each, to tell whether anything is left after the page
+        List<Notes> notes = notesRepository.findByUserEmailAndChangeSeqGreaterThanOrderByChangeSeqAsc(
+                email, since, Limit.of(size + 1));
+        List<SyncedFile> files = fileRepository.findChangedSince(email, since,
+                fileLinkService.contentUrlPrefix(), Limit.of(size + 1));
+        List<SyncTombstone> tombstones = incremental
+                ? syncTombstoneRepository.findByUserEmailAndChangeSeqGreaterThanOrderByChangeSeqAsc(
+                        email, since, Limit.of(size + 1))
+                : List.of();
+
+        // Merge the three lists by sequence number and keep the oldest size changes
+        List<Notes> pageNotes = new ArrayList<>();
+        List<SyncedFile> pageFiles = new ArrayList<>();
+        List<Integer> deletedNoteIds = new ArrayList<>();
+        List<String> deletedFileIds = new ArrayList<>();
+        int n = 0;
+        int f = 0;
+        int t = 0;
+        long last = since;
+        for (int taken = 0; taken < size; taken++) {
+            long noteSeq = n < notes.size() ? notes.get(n).getChangeSeq() : Long.MAX_VALUE;
+            long fileSeq = f < files.size() ? files.get(f).getChangeSeq() : Long.MAX_VALUE;
+            long tombstoneSeq = t < tombstones.size() ? tombstones.get(t).getChangeSeq() : Long.MAX_VALUE;
+            long seq = Math.min(noteSeq, Math.min(fileSeq, tombstoneSeq));
+            if (seq == Long.MAX_VALUE) {
+                break;
+            }
+            if (seq == noteSeq) {
+                pageNotes.add(notes.get(n++));
+            } else if (seq == fileSeq) {
+                pageFiles.add(files.get(f++));
+            } else {
+                SyncTombstone tombstone = tombstones.get(t++);
+                if (SyncTombstone.NOTE.equals(tombstone.getKind())) {
+                    deletedNoteIds.add(Integer.valueOf(tombstone.getItemId()));
+                } else {
+                    deletedFileIds.add(tombstone.getItemId());
+                }
+            }
+            last = seq;
+        }
+        boolean hasMore = n < notes.size() || f < files.size() || t < tombstones.size();
+
+        return SyncResponse.builder()
+                .notes(pageNotes)
+                .files(pageFiles)
+                .deletedNoteIds(deletedNoteIds)
+                .deletedFileIds(deletedFileIds)
+                // Everything up to the counter is committed and was seen, unless the page is full
+                .nextToken(encode(hasMore ? last : counter.getLastSeq()))
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Creates the user's counter on first use, numbering their existing notes and then their
+     * existing files. Runs in its own transaction, so a concurrent creation only costs a retry.
+     *
+     * Write paths must call this before they touch any of the user's notes or files: the
+     * numbering updates those rows, and would wait forever on locks held by the caller's own
+     * transaction.
+     */
+    public void prepare(String email) {
+        if (syncCounterRepository.existsById(email)) {
+            return;
+        }
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                long noteOffset = 0;
+                long fileOffset = notesRepository.findMaxUnsequencedId(email);
+                long lastSeq = fileOffset + fileRepository.findMaxUnsequencedId(email);
+                syncCounterRepository.saveAndFlush(SyncCounter.builder()
+                        .userEmail(email)
+                        .lastSeq(lastSeq)
+                        .purgedSeq(0L)
+                        .build());
+                notesRepository.assignSequence(email, noteOffset);
+                fileRepository.assignSequence(email, fileOffset);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Created concurrently by another request
+        }
+    }
+
+    private static String encode(long seq) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(seq).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long decode(String token) {
+        try {
+            long seq = Long.parseLong(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+            if (seq < 0) {
+                throw new NumberFormatException();
+            }
+            return seq;
+        } catch (RuntimeException e) {
+            throw new MissingDetailsException("Invalid sync token.");
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.models.User;
+
+import javax.crypto.SecretKey;
+
+/**
+ * A user whose passkey, or unlock token, has been checked for this request.
+ *
+ * @param user The verified user.
+ * @param key The key that wraps the user's file keys; null when encryption is disabled.
+ */
+public record Unlocked(User user, SecretKey key) {
+}
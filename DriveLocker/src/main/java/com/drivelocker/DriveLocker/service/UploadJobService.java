@@ -0,0 +1,244 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.FileNotFoundException;
+import com.drivelocker.DriveLocker.exceptions.FileStorageException;
+import com.drivelocker.DriveLocker.exceptions.InvalidUploadException;
+import com.drivelocker.DriveLocker.exceptions.UploadQueueFullException;
+import com.drivelocker.DriveLocker.io.UploadJobResponse;
+import com.drivelocker.DriveLocker.models.User;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Asynchronous uploads: the request thread only checks the passkey and stages the bytes
+ * locally, then a bounded worker pool pushes them to storage and saves the File row.
+ * Job status is kept in memory on the node that accepted the upload.
+ */
+@Service
+@RequiredArgsConstructor
+public class UploadJobService {
+
+    public static final String QUEUED = "QUEUED";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+
+    private final FileService fileService;
+    private final UsageService usageService;
+    private final UploadValidationService uploadValidationService;
+    private final ThreadPoolTaskExecutor uploadExecutor;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    @Value("${uploads.async.dir:./data/async}")
+    private String stagingDirPath;
+
+    @Value("${uploads.async.job-ttl-minutes:60}")
+    private long jobTtlMinutes;
+
+    @Value("${uploads.async.sse-timeout-ms:300000}")
+    private long sseTimeoutMs;
+
+    private Path stagingDir;
+
+    @PostConstruct
+    public void init() throws IOException {
+        stagingDir = Paths.get(stagingDirPath).toAbsolutePath().normalize();
+        Files.createDirectories(stagingDir);
+        sweepStaged();
+    }
+
+    /**
+     * Deletes uploads staged by an earlier run. Jobs only live in memory, so after a restart
+     * nothing will ever pick them up. The staging directory must therefore not be shared
+     * between nodes.
+     */
+    private void sweepStaged() throws IOException {
+        int swept = 0;
+        try (DirectoryStream<Path> staged = Files.newDirectoryStream(stagingDir, "*.upload")) {
+            for (Path path : staged) {
+                deleteQuietly(path);
+                swept++;
+            }
+        }
+        if (swept > 0) {
+            System.err.println("Deleted " + swept + " staged uploads left over from a previous run.");
+        }
+    }
+
+    /**
+     * Checks the passkey or unlock token, stages the upload and queues it.
+     * @return The queued job.
+     * @throws InvalidUploadException if the file fails upload validation.
+     * @throws UploadQueueFullException if the worker pool cannot take more jobs.
+     * @throws com.drivelocker.DriveLocker.exceptions.QuotaExceededException if the file does not fit in the user's quota.
+     */
+    public UploadJobResponse submit(String email, String passkey, String unlockToken, MultipartFile file) {
+        // Unlocked here, while the credentials are at hand; the job only keeps the key
+        Unlocked unlocked = fileService.authorize(email, passkey, unlockToken);
+        User user = unlocked.user();
+        SecretKey key = unlocked.key();
+        // Fail before staging, so the client gets the error instead of a failed job
+        try {
+            uploadValidationService.validate(file, file.getOriginalFilename(), file.getSize());
+        } catch (IOException e) {
+            throw new FileStorageException("File upload failed: " + e.getMessage(), e);
+        }
+        // The quota is reserved for real when the job runs
+        usageService.checkAvailable(email, file.getSize());
+
+        Job job = new Job(UUID.randomUUID().toString(), email, file.getOriginalFilename());
+        Path staged = stagingDir.resolve(job.id + ".upload");
+        try {
+            // Usually a rename of the part Tomcat already spooled, not a copy
+            file.transferTo(staged);
+        } catch (IOException e) {
+            throw new FileStorageException("File upload failed: " + e.getMessage(), e);
+        }
+
+        jobs.put(job.id, job);
+        try {
+            uploadExecutor.execute(() -> run(job, user, key, staged));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.id);
+            deleteQuietly(staged);
+            throw new UploadQueueFullException("Upload queue is full, please retry shortly.");
+        }
+        return job.toResponse();
+    }
+
+    public UploadJobResponse getJob(String email, String jobId) {
+        return findJob(email, jobId).toResponse();
+    }
+
+    /**
+     * Streams status changes of a job as server-sent events until it finishes.
+     */
+    public SseEmitter subscribe(String email, String jobId) {
+        Job job = findJob(email, jobId);
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        job.emitters.add(emitter);
+        emitter.onCompletion(() -> job.emitters.remove(emitter));
+        emitter.onTimeout(() -> job.emitters.remove(emitter));
+        emitter.onError(e -> job.emitters.remove(emitter));
+
+        // Send the current state right away; if the job already finished this also completes the stream
+        publish(job, List.of(emitter));
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${uploads.async.cleanup-interval-ms:60000}")
+    public void purgeFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(jobTtlMinutes);
+        jobs.values().removeIf(job -> job.isFinished() && job.updatedAt.isBefore(cutoff));
+    }
+
+    private void run(Job job, User user, SecretKey key, Path staged) {
+        job.update(RUNNING, null, null);
+        publish(job, job.emitters);
+        try {
+            String result = fileService.saveUpload(user, key, job.fileName,
+                    new FileSystemResource(staged), Files.size(staged));
+            job.update(SUCCEEDED, result, null);
+        } catch (Exception e) {
+            job.update(FAILED, null, e.getMessage());
+        } finally {
+            deleteQuietly(staged);
+        }
+        publish(job, job.emitters);
+    }
+
+    private void publish(Job job, List<SseEmitter> emitters) {
+        UploadJobResponse snapshot = job.toResponse();
+        boolean finished = job.isFinished();
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name("status").data(snapshot));
+                if (finished) {
+                    emitter.complete();
+                }
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private Job findJob(String email, String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null || !job.email.equals(email)) {
+            throw new FileNotFoundException("Upload job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Failed to delete staged upload " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static final class Job {
+        private final String id;
+        private final String email;
+        private final String fileName;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+        private volatile String status = QUEUED;
+        private volatile String result;
+        private volatile String error;
+        private volatile LocalDateTime updatedAt = createdAt;
+
+        private Job(String id, String email, String fileName) {
+            this.id = id;
+            this.email = email;
+            this.fileName = fileName;
+        }
+
+        private synchronized void update(String status, String result, String error) {
+            this.status = status;
+            this.result = result;
+            this.error = error;
+            this.updatedAt = LocalDateTime.now();
+        }
+
+        private boolean isFinished() {
+            return SUCCEEDED.equals(status) || FAILED.equals(status);
+        }
+
+        private synchronized UploadJobResponse toResponse() {
+            return UploadJobResponse.builder()
+                    .jobId(id)
+                    .fileName(fileName)
+                    .status(status)
+                    .result(result)
+                    .error(error)
+                    .createdAt(createdAt)
+                    .updatedAt(updatedAt)
+                    .build();
+        }
+    }
+}
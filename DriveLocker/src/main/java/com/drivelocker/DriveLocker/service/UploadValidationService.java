@@ -0,0 +1,228 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.InvalidUploadException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Checks uploads before any of their bytes are sent to storage: the size limit, the allow and
+ * deny lists, and whether the first few kilobytes match what the filename claims. A rejected
+ * upload costs one small read of content the server already holds, instead of a full push to
+ * storage that is thrown away afterwards.
+ *
+ * Types are detected from magic bytes only. Container formats (ZIP, OLE2) are reported as the
+ * container, since telling e.g. a .docx from a .jar needs more than the first few kilobytes;
+ * for those the extension decides.
+ */
+@Service
+@RequiredArgsConstructor
+public class UploadValidationService {
+
+    private static final int SNIFF_BYTES = 8 * 1024;
+
+    private static final String ZIP = "zip";
+
+    private static final String OLE = "ole";
+
+    // Extensions stored inside the ZIP and OLE2 containers
+    private static final Set<String> ZIP_TYPES = Set.of(
+            ZIP, "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub", "jar", "apk", "war", "xpi");
+    private static final Set<String> OLE_TYPES = Set.of(OLE, "doc", "xls", "ppt", "msg", "msi");
+
+    private static final List<Signature> SIGNATURES = List.of(
+            new Signature("png", Set.of("png"), at(0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)),
+            new Signature("jpg", Set.of("jpg", "jpeg", "jpe", "jfif"), at(0, 0xFF, 0xD8, 0xFF)),
+            new Signature("gif", Set.of("gif"), at(0, "GIF87a").or(at(0, "GIF89a"))),
+            new Signature("webp", Set.of("webp"), at(0, "RIFF").and(at(8, "WEBP"))),
+            new Signature("tiff", Set.of("tif", "tiff"), at(0, 'I', 'I', 0x2A, 0x00).or(at(0, 'M', 'M', 0x00, 0x2A))),
+            new Signature("pdf", Set.of("pdf"), at(0, "%PDF-")),
+            new Signature("mp3", Set.of("mp3"), at(0, "ID3").or(UploadValidationService::isMpegFrame)),
+            new Signature("mp4", Set.of("mp4", "m4v", "m4a", "3gp", "heic", "heif", "avif"), at(4, "ftyp")),
+            new Signature("wav", Set.of("wav"), at(0, "RIFF").and(at(8, "WAVE"))),
+            new Signature("ogg", Set.of("ogg", "oga", "ogv", "opus"), at(0, "OggS")),
+            new Signature("flac", Set.of("flac"), at(0, "fLaC")),
+            new Signature("gz", Set.of("gz", "tgz"), at(0, 0x1F, 0x8B)),
+            new Signature("7z", Set.of("7z"), at(0, '7', 'z', 0xBC, 0xAF, 0x27, 0x1C)),
+            new Signature("rar", Set.of("rar"), at(0, "Rar!")),
+            new Signature("sqlite", Set.of("sqlite", "sqlite3"), at(0, "SQLite format 3")),
+            new Signature(ZIP, ZIP_TYPES, at(0, 'P', 'K', 0x03, 0x04).or(at(0, 'P', 'K', 0x05, 0x06))),
+            new Signature(OLE, OLE_TYPES, at(0, 0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1)),
+            new Signature("exe", Set.of("exe", "dll", "scr", "sys"), UploadValidationService::isPortableExecutable),
+            new Signature("elf", Set.of("so"), at(0, 0x7F, 'E', 'L', 'F')),
+            new Signature("macho", Set.of("dylib"), at(0, 0xFE, 0xED, 0xFA, 0xCE).or(at(0, 0xFE, 0xED, 0xFA, 0xCF))
+                    .or(at(0, 0xCE, 0xFA, 0xED, 0xFE)).or(at(0, 0xCF, 0xFA, 0xED, 0xFE))));
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${uploads.validation.enabled:true}")
+    private boolean enabled;
+
+    @Value("${uploads.validation.max-file-size:5368709120}")
+    private long maxFileBytes;
+
+    // Comma-separated; empty allows every type that is not denied
+    @Value("${uploads.validation.allowed-types:}")
+    private String allowedTypesList;
+
+    @Value("${uploads.validation.denied-types:exe,dll,scr,com,msi,bat,cmd,vbs,ps1,elf,macho}")
+    private String deniedTypesList;
+
+    // Rejects e.g. an executable renamed to .jpg
+    @Value("${uploads.validation.reject-mismatch:true}")
+    private boolean rejectMismatch;
+
+    private Set<String> allowedTypes;
+    private Set<String> deniedTypes;
+
+    @PostConstruct
+    public void init() {
+        allowedTypes = parseTypes(allowedTypesList);
+        deniedTypes = parseTypes(deniedTypesList);
+    }
+
+    /**
+     * Checks what the client declared about an upload before it sends the content, so
+     * resumable uploads can be turned away before the first chunk.
+     * @throws InvalidUploadException if the file is too large or its extension is not allowed.
+     */
+    public void checkDeclared(String originalName, long size) {
+        if (!enabled) {
+            return;
+        }
+        if (size > maxFileBytes) {
+            reject("size", "File exceeds the maximum upload size of " + maxFileBytes + " bytes.");
+        }
+        String extension = extensionOf(originalName);
+        if (deniedTypes.contains(extension)) {
+            reject("denied", "Files of type ." + extension + " are not allowed.");
+        }
+    }
+
+    /**
+     * Checks an upload whose content has been received but not yet stored, reading only its
+     * first few kilobytes.
+     * @param size The content length in bytes, or -1 if unknown.
+     * @return The type detected from the content, or null if it was not recognised or is a
+     *         container whose real type only the extension tells.
+     * @throws InvalidUploadException if the file is too large, its type is denied or not
+     *                                allowed, or its content does not match its extension.
+     */
+    public String validate(InputStreamSource source, String originalName, long size) throws IOException {
+        if (!enabled) {
+            return null;
+        }
+        checkDeclared(originalName, size);
+
+        byte[] head;
+        try (InputStream in = source.getInputStream()) {
+            head = in.readNBytes(SNIFF_BYTES);
+        }
+        Signature detected = SIGNATURES.stream()
+                .filter(signature -> signature.matches().test(head))
+                .findFirst()
+                .orElse(null);
+        String extension = extensionOf(originalName);
+
+        if (detected != null && deniedTypes.contains(detected.type())) {
+            reject("denied", "Files of type " + detected.type() + " are not allowed.");
+        }
+        if (rejectMismatch && !extension.isEmpty() && claimedByAnySignature(extension)
+                && (detected == null || !detected.extensions().contains(extension))) {
+            reject("mismatch", "File content does not match its ." + extension + " extension.");
+        }
+
+        String type = detected == null || isContainer(detected) ? null : detected.type();
+        if (!allowedTypes.isEmpty()) {
+            String effective = type != null ? type : extension;
+            if (!allowedTypes.contains(effective)) {
+                reject("not_allowed", "Files of type " + (effective.isEmpty() ? "unknown" : effective) + " are not allowed.");
+            }
+        }
+        return type;
+    }
+
+    private void reject(String reason, String message) {
+        meterRegistry.counter("drivelocker.uploads.rejected", "reason", reason).increment();
+        throw new InvalidUploadException(message);
+    }
+
+    private static boolean claimedByAnySignature(String extension) {
+        return SIGNATURES.stream().anyMatch(signature -> signature.extensions().contains(extension));
+    }
+
+    private static boolean isContainer(Signature signature) {
+        return ZIP.equals(signature.type()) || OLE.equals(signature.type());
+    }
+
+    /**
+     * "MZ" alone is too short to trust, so the PE header it points to must be in the head too.
+     */
+    private static boolean isPortableExecutable(byte[] head) {
+        if (!at(0, 'M', 'Z').test(head) || head.length < 0x40) {
+            return false;
+        }
+        int peOffset = (head[0x3C] & 0xff) | (head[0x3D] & 0xff) << 8
+                | (head[0x3E] & 0xff) << 16 | (head[0x3F] & 0xff) << 24;
+        return peOffset > 0 && at(peOffset, 'P', 'E', 0, 0).test(head);
+    }
+
+    /**
+     * MP3 files without an ID3 tag start straight with an MPEG audio frame sync.
+     */
+    private static boolean isMpegFrame(byte[] head) {
+        return head.length >= 2 && (head[0] & 0xff) == 0xFF && (head[1] & 0xE0) == 0xE0;
+    }
+
+    private static Predicate<byte[]> at(int offset, String magic) {
+        return at(offset, magic.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Predicate<byte[]> at(int offset, int... magic) {
+        byte[] bytes = new byte[magic.length];
+        for (int i = 0; i < magic.length; i++) {
+            bytes[i] = (byte) magic[i];
+        }
+        return at(offset, bytes);
+    }
+
+    private static Predicate<byte[]> at(int offset, byte[] magic) {
+        return head -> offset >= 0 && head.length >= offset + magic.length
+                && Arrays.equals(head, offset, offset + magic.length, magic, 0, magic.length);
+    }
+
+    private static Set<String> parseTypes(String list) {
+        return Arrays.stream(list.split(","))
+                .map(type -> type.trim().toLowerCase(Locale.ROOT))
+                .map(type -> type.startsWith(".") ? type.substring(1) : type)
+                .filter(type -> !type.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    private static String extensionOf(String name) {
+        if (name == null) {
+            return "";
+        }
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A detectable type and the extensions whose content looks like it.
+     */
+    private record Signature(String type, Set<String> extensions, Predicate<byte[]> matches) {
+    }
+}
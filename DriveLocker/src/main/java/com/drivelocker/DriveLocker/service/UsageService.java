@@ -0,0 +1,90 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.QuotaExceededException;
+import com.drivelocker.DriveLocker.io.UsageResponse;
+import com.drivelocker.DriveLocker.models.StorageUsage;
+import com.drivelocker.DriveLocker.repository.FileRepository;
+import com.drivelocker.DriveLocker.repository.StorageUsageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Tracks how many bytes each user stores and enforces their quota. Uploads reserve their
+ * size before any bytes reach storage and give it back if they fail; deletes give it back
+ * in the same transaction that removes the rows.
+ */
+@Service
+@RequiredArgsConstructor
+public class UsageService {
+
+    private final StorageUsageRepository storageUsageRepository;
+    private final FileRepository fileRepository;
+
+    @Value("${storage.quota.default-bytes:10737418240}")
+    private long defaultQuotaBytes;
+
+    /**
+     * Counts a new file of the given size against the user's quota.
+     * @throws QuotaExceededException if the file does not fit in the remaining quota.
+     */
+    public void reserve(String email, long bytes) {
+        ensureUsage(email);
+        if (storageUsageRepository.reserve(email, bytes, 1, defaultQuotaBytes) == 0) {
+            throw new QuotaExceededException("Upload of " + bytes + " bytes exceeds your storage quota.");
+        }
+    }
+
+    /**
+     * Gives back usage for files that failed to upload or were deleted.
+     */
+    public void release(String email, long bytes, long files) {
+        if (bytes == 0 && files == 0) {
+            return;
+        }
+        storageUsageRepository.release(email, bytes, files);
+    }
+
+    /**
+     * Fails early if a file of the given size would not fit, without reserving anything.
+     * @throws QuotaExceededException if the file does not fit in the remaining quota.
+     */
+    public void checkAvailable(String email, long bytes) {
+        if (getUsage(email).getRemainingBytes() < bytes) {
+            throw new QuotaExceededException("Upload of " + bytes + " bytes exceeds your storage quota.");
+        }
+    }
+
+    public UsageResponse getUsage(String email) {
+        StorageUsage usage = ensureUsage(email);
+        long quota = usage.getQuotaBytes() == null ? defaultQuotaBytes : usage.getQuotaBytes();
+        return UsageResponse.builder()
+                .usedBytes(usage.getUsedBytes())
+                .quotaBytes(quota)
+                .remainingBytes(Math.max(0, quota - usage.getUsedBytes()))
+                .fileCount(usage.getFileCount())
+                .build();
+    }
+
+    /**
+     * Returns the user's counter row, creating it on first use from the files they already
+     * have. Files uploaded before sizes were recorded count towards the file count only.
+     */
+    private StorageUsage ensureUsage(String email) {
+        return storageUsageRepository.findById(email).orElseGet(() -> {
+            Object[] totals = fileRepository.sumUsageByUserEmail(email).get(0);
+            StorageUsage usage = StorageUsage.builder()
+                    .userEmail(email)
+                    .usedBytes(((Number) totals[0]).longValue())
+                    .fileCount(((Number) totals[1]).longValue())
+                    .build();
+            try {
+                return storageUsageRepository.saveAndFlush(usage);
+            } catch (DataIntegrityViolationException e) {
+                // Created concurrently by another request
+                return storageUsageRepository.findById(email).orElseThrow(() -> e);
+            }
+        });
+    }
+}
@@ -0,0 +1,203 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.MissingDetailsException;
+import com.drivelocker.DriveLocker.exceptions.UserNotFoundException;
+import com.drivelocker.DriveLocker.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams a ZIP of several files. Entries are written strictly in request order, while the
+ * next few files are opened ahead of time on a shared pool and the first part of each is read
+ * into a small buffer. Memory per download is bounded by the prefetch window times that
+ * buffer, whatever the size of the archive.
+ */
+@Service
+@RequiredArgsConstructor
+public class ZipDownloadService {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final String ERRORS_ENTRY = "ERRORS.txt";
+
+    private final FileContentService fileContentService;
+    private final UserRepository userRepository;
+    private final ThreadPoolTaskExecutor zipPrefetchExecutor;
+
+    @Value("${downloads.zip.max-files:1000}")
+    private int maxFiles;
+
+    @Value("${downloads.zip.prefetch-window:4}")
+    private int prefetchWindow;
+
+    @Value("${downloads.zip.prefetch-bytes:1048576}")
+    private int prefetchBytes;
+
+    /**
+     * Resolves the files up front, so unknown ids fail the request before any bytes are sent,
+     * and returns a body that writes the archive.
+     * @throws MissingDetailsException if no ids, or more than downloads.zip.max-files, are given.
+     * @param passkey The owner's passkey; only needed when some of the files are encrypted
+     *                and no unlock token is given.
+     * @throws com.drivelocker.DriveLocker.exceptions.FileNotFoundException if an id is not one of the user's files.
+     */
+    public StreamingResponseBody archive(String email, List<String> publicIds, String passkey, String unlockToken) {
+        userRepository.findByEmail(email)
+                .orElseThrow(() -> new UserNotFoundException("Account does not exist."));
+        if (publicIds == null || publicIds.isEmpty()) {
+            throw new MissingDetailsException("File public IDs must be provided for download.");
+        }
+        List<String> distinctIds = publicIds.stream().distinct().toList();
+        if (distinctIds.size() > maxFiles) {
+            throw new MissingDetailsException("At most " + maxFiles + " files can be downloaded at once.");
+        }
+
+        List<FileContent> contents = fileContentService.resolveAll(email, distinctIds, passkey, unlockToken);
+        return out -> write(contents, out);
+    }
+
+    private void write(List<FileContent> contents, OutputStream out) throws IOException {
+        Deque<CompletableFuture<Prefetched>> window = new ArrayDeque<>();
+        int next = 0;
+        Set<String> usedNames = new HashSet<>();
+        List<String> errors = new ArrayList<>();
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+
+        try (ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < contents.size(); i++) {
+                while (next < contents.size() && window.size() < Math.max(1, prefetchWindow)) {
+                    window.addLast(prefetch(contents.get(next++)));
+                }
+
+                FileContent content = contents.get(i);
+                Prefetched prefetched;
+                try {
+                    prefetched = window.removeFirst().join();
+                } catch (CompletionException e) {
+                    // Nothing of this entry has been written yet, so it can be skipped and reported
+                    Throwable cause = e.getCause() == null ? e : e.getCause();
+                    errors.add(content.getFileName() + ": " + cause.getMessage());
+                    continue;
+                }
+
+                try (InputStream rest = prefetched.rest) {
+                    zip.putNextEntry(new ZipEntry(uniqueName(content.getFileName(), usedNames)));
+                    zip.write(prefetched.head, 0, prefetched.headLength);
+                    if (rest != null) {
+                        int n;
+                        while ((n = rest.read(buffer)) != -1) {
+                            zip.write(buffer, 0, n);
+                        }
+                    }
+                    zip.closeEntry();
+                }
+            }
+
+            if (!errors.isEmpty()) {
+                zip.putNextEntry(new ZipEntry(uniqueName(ERRORS_ENTRY, usedNames)));
+                zip.write(String.join("\n", errors).getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        } finally {
+            // Client went away or a fetch broke mid-entry: drop whatever is still open
+            for (CompletableFuture<Prefetched> pending : window) {
+                pending.thenAccept(Prefetched::closeQuietly);
+            }
+        }
+    }
+
+    /**
+     * Opens a file and reads up to downloads.zip.prefetch-bytes of it, so the remote round
+     * trip overlaps with writing the entries before it.
+     */
+    private CompletableFuture<Prefetched> prefetch(FileContent content) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                InputStream in = fileContentService.open(content);
+                try {
+                    byte[] head = new byte[prefetchBytes];
+                    int length = in.readNBytes(head, 0, head.length);
+                    if (length < head.length) {
+                        in.close();
+                        return new Prefetched(head, length, null);
+                    }
+                    return new Prefetched(head, length, in);
+                } catch (IOException | RuntimeException e) {
+                    in.close();
+                    throw e;
+                }
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, zipPrefetchExecutor);
+    }
+
+    /**
+     * Returns the base name of the file if it is still free in the archive, otherwise
+     * "name (n).ext".
+     */
+    private static String uniqueName(String fileName, Set<String> usedNames) {
+        String name = baseName(fileName);
+        if (usedNames.add(name)) {
+            return name;
+        }
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int n = 1; ; n++) {
+            String candidate = base + " (" + n + ")" + extension;
+            if (usedNames.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    /**
+     * The last segment of a client-supplied name, so that no entry can point outside the
+     * folder it is extracted into (zip slip): directories, drive letters and "." or ".."
+     * segments are dropped.
+     */
+    private static String baseName(String fileName) {
+        if (fileName == null) {
+            return "file";
+        }
+        int separator = Math.max(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')), fileName.lastIndexOf(':'));
+        String name = fileName.substring(separator + 1).strip();
+        if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+            return "file";
+        }
+        return name;
+    }
+
+    private record Prefetched(byte[] head, int headLength, InputStream rest) {
+
+        private void closeQuietly() {
+            if (rest == null) {
+                return;
+            }
+            try {
+                rest.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close prefetched download stream: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.drivelocker.DriveLocker.storage;
+
+import com.cloudinary.api.exceptions.NotFound;
+import com.drivelocker.DriveLocker.exceptions.FileNotFoundException;
+import com.drivelocker.DriveLocker.exceptions.FileStorageException;
+import com.drivelocker.DriveLocker.service.CloudinaryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Stores content in Cloudinary. This is the default backend.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "cloudinary", matchIfMissing = true)
+@RequiredArgsConstructor
+public class CloudinaryStorageBackend implements StorageBackend {
+
+    // Uploads may land under any of these depending on the detected format
+    private static final List<String> RESOURCE_TYPES = List.of("image", "raw", "video");
+
+    private final CloudinaryService cloudinaryService;
+
+    @Override
+    public StoredObject put(InputStreamSource source, String originalFilename, long size) throws IOException {
+        Map<String, Object> result;
+        if (source instanceof MultipartFile file) {
+            // Lets cloudinary.upload.mode decide between temp-file and streaming
+            result = cloudinaryService.uploadFile(file);
+        } else {
+            try (InputStream in = source.getInputStream()) {
+                result = cloudinaryService.uploadStream(in, originalFilename);
+            }
+        }
+
+        if (result == null || !result.containsKey("secure_url")) {
+            throw new FileStorageException("File upload successful, but URL not found from cloud service.");
+        }
+        return toStoredObject(result);
+    }
+
+    @Override
+    public InputStream get(String objectId) throws IOException {
+        StoredObject object = stat(objectId)
+                .orElseThrow(() -> new FileNotFoundException("File not found in cloud storage: " + objectId));
+        return get(object);
+    }
+
+    @Override
+    public InputStream get(StoredObject object) throws IOException {
+        if (object.getUrl() == null) {
+            return get(object.getObjectId());
+        }
+        return URI.create(object.getUrl()).toURL().openStream();
+    }
+
+    @Override
+    public InputStream get(StoredObject object, long offset, long length) throws IOException {
+        if (object.getUrl() == null) {
+            return StorageBackend.super.get(object, offset, length);
+        }
+        HttpURLConnection connection = (HttpURLConnection) URI.create(object.getUrl()).toURL().openConnection();
+        connection.setRequestProperty("Range", "bytes=" + offset + "-" + (offset + length - 1));
+        InputStream in = connection.getInputStream();
+        if (connection.getResponseCode() == HttpURLConnection.HTTP_PARTIAL) {
+            return in;
+        }
+
+        // The CDN ignored the range and sent the whole object
+        try {
+            in.skipNBytes(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new BoundedInputStream(in, length);
+    }
+
+    @Override
+    public boolean delete(String objectId) {
+        return batchDelete(List.of(objectId)).contains(objectId);
+    }
+
+    @Override
+    public Set<String> batchDelete(List<String> objectIds) {
+        Set<String> gone = new HashSet<>();
+        List<String> notFound = new ArrayList<>(objectIds);
+
+        // The delete API is per resource type, so retry what was not found under the next type
+        for (String resourceType : RESOURCE_TYPES) {
+            if (notFound.isEmpty()) {
+                break;
+            }
+            Map<String, Object> result;
+            try {
+                result = cloudinaryService.deleteFiles(notFound, resourceType);
+            } catch (Exception e) {
+                throw new FileStorageException("File deletion failed: " + e.getMessage(), e);
+            }
+
+            @SuppressWarnings("unchecked")
+            Map<String, String> deleted = (Map<String, String>) result.get("deleted");
+            List<String> stillNotFound = new ArrayList<>();
+            for (String id : notFound) {
+                String status = deleted == null ? null : deleted.get(id);
+                if ("deleted".equalsIgnoreCase(status)) {
+                    gone.add(id);
+                } else if ("not_found".equalsIgnoreCase(status)) {
+                    stillNotFound.add(id);
+                }
+            }
+            notFound = stillNotFound;
+        }
+
+        // Missing under every resource type means there is nothing left to delete
+        gone.addAll(notFound);
+        return gone;
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String objectId) {
+        for (String resourceType : RESOURCE_TYPES) {
+            try {
+                return Optional.of(toStoredObject(cloudinaryService.getResource(objectId, resourceType)));
+            } catch (NotFound e) {
+                // Try the next resource type
+            } catch (Exception e) {
+                throw new FileStorageException("Failed to read file details: " + e.getMessage(), e);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private StoredObject toStoredObject(Map<String, Object> data) {
+        Object bytes = data.get("bytes");
+        String createdAtString = (String) data.get("created_at");
+        LocalDateTime createdAt = createdAtString == null
+                ? LocalDateTime.now()
+                : Instant.parse(createdAtString).atZone(ZoneId.systemDefault()).toLocalDateTime();
+
+        return StoredObject.builder()
+                .objectId((String) data.get("public_id"))
+                .url((String) data.get("secure_url"))
+                .format((String) data.get("format"))
+                .size(bytes instanceof Number number ? number.longValue() : null)
+                .createdAt(createdAt)
+                .build();
+    }
+}
@@ -0,0 +1,380 @@
+package com.drivelocker.DriveLocker.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-through disk cache for remote object content, bounded by a byte budget.
+ *
+ * Entries are evicted in least-recently-used order, weighted by size, until the cache fits
+ * the budget again. The LRU order and sizes are written to an index file so a restart keeps
+ * the warm set. Concurrent misses on the same object share a single remote fetch.
+ * Objects are immutable once stored, so entries never need revalidation.
+ *
+ * Callers get an open channel rather than a path: it is opened under the cache lock while the
+ * entry is still indexed, so a concurrent eviction can only unlink the file, never pull it out
+ * from under a download that is about to start.
+ */
+@Component
+public class ContentCache {
+
+    private static final String INDEX_FILE = "index";
+
+    private final boolean enabled;
+    private final Path dir;
+    private final Path tmpDir;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Void>> inflight = new ConcurrentHashMap<>();
+    private long totalBytes;
+    private boolean dirty;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public ContentCache(@Value("${storage.cache.enabled:true}") boolean enabled,
+                        @Value("${storage.cache.dir:./data/cache}") String dir,
+                        @Value("${storage.cache.max-bytes:1073741824}") long maxBytes,
+                        @Value("${storage.cache.max-entry-bytes:268435456}") long maxEntryBytes,
+                        MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        this.tmpDir = this.dir.resolve(".tmp");
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+
+        this.hits = Counter.builder("drivelocker.cache.hits").description("Content cache hits").register(meterRegistry);
+        this.misses = Counter.builder("drivelocker.cache.misses").description("Content cache misses").register(meterRegistry);
+        this.evictions = Counter.builder("drivelocker.cache.evictions").description("Content cache evictions").register(meterRegistry);
+        Gauge.builder("drivelocker.cache.bytes", this, ContentCache::size).baseUnit("bytes")
+                .description("Bytes held in the content cache").register(meterRegistry);
+        Gauge.builder("drivelocker.cache.entries", this, ContentCache::entryCount)
+                .description("Objects held in the content cache").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(tmpDir);
+        loadIndex();
+    }
+
+    /**
+     * Whether an object of the given size would be kept in the cache.
+     */
+    public boolean accepts(Long size) {
+        return enabled && size != null && size <= maxEntryBytes;
+    }
+
+    /**
+     * Opens the cached copy of an object, fetching it on a miss. Concurrent callers missing
+     * on the same key wait for one shared fetch. Each call counts as one hit or one miss;
+     * callers that waited on another's fetch count as misses.
+     *
+     * @param key The storage object id.
+     * @param fetcher Opens the remote content on a miss.
+     * @return The cached content, open for reading; the caller closes it.
+     * @throws IOException if the remote fetch fails.
+     */
+    public FileChannel getOrFetch(String key, StreamSupplier fetcher) throws IOException {
+        Optional<FileChannel> cached = open(key);
+        if (cached.isPresent()) {
+            hits.increment();
+            return cached.get();
+        }
+        misses.increment();
+
+        while (true) {
+            CompletableFuture<Void> fill = new CompletableFuture<>();
+            CompletableFuture<Void> existing = inflight.putIfAbsent(key, fill);
+            if (existing != null) {
+                // Someone else is already fetching this object
+                await(existing);
+            } else {
+                try {
+                    // A fill may have finished between the lookup and claiming the key
+                    Optional<FileChannel> filled = open(key);
+                    if (filled.isPresent()) {
+                        fill.complete(null);
+                        return filled.get();
+                    }
+                    FileChannel channel = fill(key, fetcher);
+                    fill.complete(null);
+                    return channel;
+                } catch (IOException | RuntimeException e) {
+                    fill.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inflight.remove(key);
+                }
+            }
+            Optional<FileChannel> shared = open(key);
+            if (shared.isPresent()) {
+                return shared.get();
+            }
+            // Evicted again before this caller got to it; fetch once more
+        }
+    }
+
+    /**
+     * Drops objects from the cache, e.g. after they were deleted from storage.
+     */
+    public void evict(List<String> keys) {
+        if (!enabled) {
+            return;
+        }
+        for (String key : keys) {
+            boolean removed;
+            synchronized (this) {
+                Long size = entries.remove(key);
+                removed = size != null;
+                if (removed) {
+                    totalBytes -= size;
+                    dirty = true;
+                }
+            }
+            if (removed) {
+                deleteQuietly(pathFor(key));
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${storage.cache.index-flush-interval-ms:60000}")
+    public void flushIndex() {
+        if (enabled) {
+            writeIndex();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushIndex();
+    }
+
+    public synchronized long size() {
+        return totalBytes;
+    }
+
+    public synchronized int entryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Opens an indexed entry. An entry whose file has gone missing is dropped, so the caller
+     * refetches it instead of failing.
+     */
+    private synchronized Optional<FileChannel> open(String key) throws IOException {
+        // get() also moves the entry to the most recently used end
+        Long size = entries.get(key);
+        if (size == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(FileChannel.open(pathFor(key), StandardOpenOption.READ));
+        } catch (NoSuchFileException e) {
+            entries.remove(key);
+            totalBytes -= size;
+            dirty = true;
+            return Optional.empty();
+        }
+    }
+
+    private FileChannel fill(String key, StreamSupplier fetcher) throws IOException {
+        Path tmp = Files.createTempFile(tmpDir, "fill-", ".part");
+        try {
+            try (InputStream in = fetcher.open()) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            long actual = Files.size(tmp);
+            Path target = pathFor(key);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            List<String> evicted;
+            FileChannel channel;
+            synchronized (this) {
+                // Opened before the entry is visible, so no eviction can come in between
+                channel = FileChannel.open(target, StandardOpenOption.READ);
+                Long previous = entries.put(key, actual);
+                totalBytes += actual - (previous == null ? 0 : previous);
+                dirty = true;
+                evicted = evictOverBudget(key);
+            }
+            for (String victim : evicted) {
+                deleteQuietly(pathFor(victim));
+            }
+            return channel;
+        } finally {
+            deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * Removes least recently used entries until the cache fits its budget again. The entry
+     * just filled is kept so it is not refetched straight away.
+     */
+    private List<String> evictOverBudget(String keep) {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            totalBytes -= eldest.getValue();
+            evicted.add(eldest.getKey());
+            it.remove();
+            evictions.increment();
+        }
+        return evicted;
+    }
+
+    private void await(CompletableFuture<Void> future) throws IOException {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Restores entries from the index in their saved LRU order, skipping anything whose file
+     * is missing or has the wrong size, then removes files the index does not know about.
+     */
+    private void loadIndex() throws IOException {
+        Path index = dir.resolve(INDEX_FILE);
+        Set<String> known = new HashSet<>();
+        if (Files.exists(index)) {
+            try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int tab = line.lastIndexOf('\t');
+                    if (tab <= 0) {
+                        continue;
+                    }
+                    String key = line.substring(0, tab);
+                    long size = Long.parseLong(line.substring(tab + 1));
+                    Path path = pathFor(key);
+                    if (Files.isRegularFile(path) && Files.size(path) == size) {
+                        entries.put(key, size);
+                        totalBytes += size;
+                        known.add(path.getFileName().toString());
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Ignoring unreadable cache index: " + e.getMessage());
+            }
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, Files::isRegularFile)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (!name.equals(INDEX_FILE) && !known.contains(name)) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+
+        List<String> evicted = evictOverBudget(null);
+        evicted.forEach(key -> deleteQuietly(pathFor(key)));
+    }
+
+    private void writeIndex() {
+        List<Map.Entry<String, Long>> snapshot;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            snapshot = entries.entrySet().stream()
+                    .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+                    .toList();
+            dirty = false;
+        }
+        try {
+            Path tmp = Files.createTempFile(tmpDir, "index-", ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, Long> entry : snapshot) {
+                    writer.write(entry.getKey() + "\t" + entry.getValue());
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp, dir.resolve(INDEX_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            System.err.println("Failed to write cache index: " + e.getMessage());
+        }
+    }
+
+    private Path pathFor(String key) {
+        // Object ids may contain '/' (Cloudinary folders), so name files by a hash of the key
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return dir.resolve(HexFormat.of().formatHex(digest));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Failed to delete cache file " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens the remote content of an object on a cache miss.
+     */
+    @FunctionalInterface
+    public interface StreamSupplier {
+        InputStream open() throws IOException;
+    }
+}
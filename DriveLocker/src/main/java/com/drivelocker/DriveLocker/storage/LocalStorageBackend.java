@@ -0,0 +1,210 @@
+package com.drivelocker.DriveLocker.storage;
+
+import com.drivelocker.DriveLocker.exceptions.FileNotFoundException;
+import com.drivelocker.DriveLocker.exceptions.FileStorageException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Stores content on the local filesystem under {@code storage.local.root}.
+ *
+ * Objects are spread over a two-level directory tree taken from the first four characters
+ * of their id (e.g. {@code ab/cd/abcd...}) so no single directory grows unbounded. Writes go
+ * to a temp file in the same filesystem first and are atomically renamed into place, so
+ * readers never see a partially written object.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+
+    // Object ids are generated here, so anything else is rejected before touching the filesystem
+    private static final Pattern OBJECT_ID = Pattern.compile("[0-9a-f]{32}(\\.[a-z0-9]{1,10})?");
+
+    private static final Pattern EXTENSION = Pattern.compile("[a-z0-9]{1,10}");
+
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    private final Path root;
+
+    private final Path tmpDir;
+
+    private final String baseUrl;
+
+    private final boolean fsync;
+
+    public LocalStorageBackend(@Value("${storage.local.root:./data/storage}") String root,
+                               @Value("${storage.local.base-url:local://}") String baseUrl,
+                               @Value("${storage.local.fsync:true}") boolean fsync) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+        this.tmpDir = this.root.resolve(".tmp");
+        this.baseUrl = baseUrl;
+        this.fsync = fsync;
+        Files.createDirectories(tmpDir);
+    }
+
+    @Override
+    public StoredObject put(InputStreamSource source, String originalFilename, long size) throws IOException {
+        String extension = extensionOf(originalFilename);
+        String objectId = UUID.randomUUID().toString().replace("-", "")
+                + (extension == null ? "" : "." + extension);
+        Path target = resolve(objectId);
+
+        Path tmp = Files.createTempFile(tmpDir, "put-", ".part");
+        try {
+            long written = 0;
+            try (InputStream in = source.getInputStream();
+                 ReadableByteChannel src = Channels.newChannel(in);
+                 FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                long n;
+                while ((n = out.transferFrom(src, written, TRANSFER_CHUNK)) > 0) {
+                    written += n;
+                }
+                if (fsync) {
+                    out.force(true);
+                }
+            }
+
+            Files.createDirectories(target.getParent());
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+
+            return StoredObject.builder()
+                    .objectId(objectId)
+                    .url(baseUrl + objectId)
+                    .format(extension)
+                    .size(written)
+                    .createdAt(LocalDateTime.now())
+                    .build();
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public InputStream get(String objectId) throws IOException {
+        try {
+            return Files.newInputStream(existing(objectId));
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("File not found in local storage: " + objectId);
+        }
+    }
+
+    @Override
+    public InputStream get(StoredObject object, long offset, long length) throws IOException {
+        try {
+            FileChannel channel = FileChannel.open(existing(object.getObjectId()), StandardOpenOption.READ);
+            channel.position(offset);
+            return new BoundedInputStream(Channels.newInputStream(channel), length);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException("File not found in local storage: " + object.getObjectId());
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String objectId) {
+        if (!OBJECT_ID.matcher(objectId).matches()) {
+            return Optional.empty();
+        }
+        Path path = resolve(objectId);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    @Override
+    public boolean delete(String objectId) {
+        if (!OBJECT_ID.matcher(objectId).matches()) {
+            return true;
+        }
+        try {
+            Files.deleteIfExists(resolve(objectId));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Failed to delete local object " + objectId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public Set<String> batchDelete(List<String> objectIds) {
+        Set<String> gone = new HashSet<>();
+        for (String objectId : objectIds) {
+            if (delete(objectId)) {
+                gone.add(objectId);
+            }
+        }
+        return gone;
+    }
+
+    @Override
+    public Optional<StoredObject> stat(String objectId) {
+        if (!OBJECT_ID.matcher(objectId).matches()) {
+            return Optional.empty();
+        }
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(resolve(objectId), BasicFileAttributes.class);
+            return Optional.of(StoredObject.builder()
+                    .objectId(objectId)
+                    .url(baseUrl + objectId)
+                    .format(extensionOf(objectId))
+                    .size(attrs.size())
+                    .createdAt(LocalDateTime.ofInstant(attrs.creationTime().toInstant(), ZoneId.systemDefault()))
+                    .build());
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new FileStorageException("Failed to read file details: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the on-disk path of an existing object, for callers that can serve it directly.
+     *
+     * @param objectId The id of the object.
+     * @return The path of the object's content.
+     * @throws FileNotFoundException if the id is not a valid local object id.
+     */
+    public Path existing(String objectId) {
+        if (!OBJECT_ID.matcher(objectId).matches()) {
+            throw new FileNotFoundException("File not found in local storage: " + objectId);
+        }
+        return resolve(objectId);
+    }
+
+    private Path resolve(String objectId) {
+        return root.resolve(objectId.substring(0, 2)).resolve(objectId.substring(2, 4)).resolve(objectId);
+    }
+
+    private static String extensionOf(String filename) {
+        if (filename == null) {
+            return null;
+        }
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0 || dot == filename.length() - 1) {
+            return null;
+        }
+        String extension = filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return EXTENSION.matcher(extension).matches() ? extension : null;
+    }
+}
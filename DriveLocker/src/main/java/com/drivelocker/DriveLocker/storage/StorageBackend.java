@@ -0,0 +1,105 @@
+package com.drivelocker.DriveLocker.storage;
+
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * SPI for where file content actually lives. FileService only talks to this interface;
+ * the implementation is picked with the {@code storage.backend} property.
+ */
+public interface StorageBackend {
+
+    /**
+     * Stores new content and returns its metadata.
+     *
+     * @param source The content to store. It may be opened more than once.
+     * @param originalFilename The client-side filename, used for naming and format detection.
+     * @param size The content length in bytes, or -1 if unknown.
+     * @return The stored object's metadata, including the id to use for later calls.
+     * @throws IOException if the content cannot be read or written.
+     */
+    StoredObject put(InputStreamSource source, String originalFilename, long size) throws IOException;
+
+    /**
+     * Opens the content of a stored object. The caller must close the stream.
+     *
+     * @param objectId The id returned by {@link #put}.
+     * @return A stream over the object's content.
+     * @throws IOException if the object cannot be read.
+     */
+    InputStream get(String objectId) throws IOException;
+
+    /**
+     * Opens the content of a stored object when the caller already holds its metadata,
+     * letting backends skip the lookup that {@link #get(String)} would need.
+     *
+     * @param object Metadata previously returned by {@link #put} or {@link #stat}.
+     * @return A stream over the object's content.
+     * @throws IOException if the object cannot be read.
+     */
+    default InputStream get(StoredObject object) throws IOException {
+        return get(object.getObjectId());
+    }
+
+    /**
+     * Opens part of a stored object's content. The default implementation skips through the
+     * full stream; backends that can seek or issue ranged reads should override it.
+     *
+     * @param object Metadata previously returned by {@link #put} or {@link #stat}.
+     * @param offset The first byte to return.
+     * @param length The number of bytes to return.
+     * @return A stream over the requested range.
+     * @throws IOException if the object cannot be read.
+     */
+    default InputStream get(StoredObject object, long offset, long length) throws IOException {
+        InputStream in = get(object);
+        try {
+            in.skipNBytes(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new BoundedInputStream(in, length);
+    }
+
+    /**
+     * Returns the local file holding an object's content, if the backend keeps one, so it
+     * can be served with zero-copy transfers.
+     *
+     * @param objectId The id of the object.
+     * @return The path of the content, or empty if the object is not on local disk.
+     */
+    default Optional<Path> localPath(String objectId) {
+        return Optional.empty();
+    }
+
+    /**
+     * Deletes a single object.
+     *
+     * @param objectId The id of the object to delete.
+     * @return true if the object is gone (deleted now or already missing).
+     */
+    boolean delete(String objectId);
+
+    /**
+     * Deletes several objects.
+     *
+     * @param objectIds The ids of the objects to delete.
+     * @return The subset of ids that are gone (deleted now or already missing).
+     */
+    Set<String> batchDelete(List<String> objectIds);
+
+    /**
+     * Looks up an object's metadata without reading its content.
+     *
+     * @param objectId The id of the object.
+     * @return The metadata, or empty if no such object exists.
+     */
+    Optional<StoredObject> stat(String objectId);
+}
@@ -0,0 +1,25 @@
+package com.drivelocker.DriveLocker.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class StoredObject {
+
+    private String objectId; // Backend-specific id (Cloudinary public_id, local object name)
+
+    private String url; // Where clients can fetch the content directly
+
+    private String format; // File format (e.g., pdf, png), may be null if unknown
+
+    private Long size; // Content length in bytes, may be null if unknown
+
+    private LocalDateTime createdAt;
+}
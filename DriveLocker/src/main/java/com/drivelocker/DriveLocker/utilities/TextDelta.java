@@ -0,0 +1,229 @@
+package com.drivelocker.DriveLocker.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Forward deltas between two versions of a text, sized by the edit rather than the text.
+ *
+ * A delta is a list of operations applied to the old text from its start: {@code =n;} copies
+ * the next n characters, {@code -n;} skips them, and {@code +n;} followed by n characters
+ * inserts those. The common start and end are matched character by character, and what lies
+ * between them is diffed line by line (Myers), so a single edit anywhere costs about its own
+ * length and scattered edits cost about the lines they touch.
+ */
+public final class TextDelta {
+
+    // Beyond this many differing lines the middle is replaced whole; the delta is then no
+    // smaller than the text, and callers store a full copy instead
+    private static final int MAX_EDIT_DISTANCE = 2000;
+
+    private TextDelta() {
+    }
+
+    /**
+     * The delta that turns source into target. Null texts are treated as empty.
+     */
+    public static String diff(String source, String target) {
+        source = source == null ? "" : source;
+        target = target == null ? "" : target;
+
+        int prefix = 0;
+        int max = Math.min(source.length(), target.length());
+        while (prefix < max && source.charAt(prefix) == target.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        max -= prefix;
+        while (suffix < max
+                && source.charAt(source.length() - 1 - suffix) == target.charAt(target.length() - 1 - suffix)) {
+            suffix++;
+        }
+
+        Encoder encoder = new Encoder();
+        encoder.copy(prefix);
+        diffLines(source.substring(prefix, source.length() - suffix),
+                target.substring(prefix, target.length() - suffix), encoder);
+        encoder.copy(suffix);
+        return encoder.finish();
+    }
+
+    /**
+     * Applies a delta made by {@link #diff} to the text it was made from.
+     * @throws IllegalArgumentException if the delta is malformed or does not fit the source.
+     */
+    public static String apply(String source, String delta) {
+        source = source == null ? "" : source;
+        StringBuilder out = new StringBuilder(source.length());
+        int at = 0;
+        int i = 0;
+        try {
+            while (i < delta.length()) {
+                char op = delta.charAt(i);
+                int end = delta.indexOf(';', i);
+                int length = Integer.parseInt(delta, i + 1, end, 10);
+                i = end + 1;
+                switch (op) {
+                    case '=' -> {
+                        out.append(source, at, at + length);
+                        at += length;
+                    }
+                    case '-' -> at += length;
+                    case '+' -> {
+                        out.append(delta, i, i + length);
+                        i += length;
+                    }
+                    default -> throw new IllegalArgumentException("Unknown delta operation '" + op + "'");
+                }
+            }
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed delta", e);
+        }
+        if (at != source.length()) {
+            throw new IllegalArgumentException("Delta does not match its source");
+        }
+        return out.toString();
+    }
+
+    private static void diffLines(String source, String target, Encoder encoder) {
+        if (source.isEmpty() || target.isEmpty()) {
+            encoder.skip(source.length());
+            encoder.insert(target);
+            return;
+        }
+        List<String> a = lines(source);
+        List<String> b = lines(target);
+        int n = a.size();
+        int m = b.size();
+        int offset = n + m;
+        int[] v = new int[2 * offset + 2];
+        // trace.get(d) holds v[-d..d] as it was before step d, for walking the path back
+        List<int[]> trace = new ArrayList<>();
+
+        for (int d = 0; d <= Math.min(offset, MAX_EDIT_DISTANCE); d++) {
+            trace.add(Arrays.copyOfRange(v, offset - d, offset + d + 1));
+            for (int k = -d; k <= d; k += 2) {
+                int x = k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])
+                        ? v[offset + k + 1]
+                        : v[offset + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a.get(x).equals(b.get(y))) {
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    backtrack(a, b, trace, d, encoder);
+                    return;
+                }
+            }
+        }
+        encoder.skip(source.length());
+        encoder.insert(target);
+    }
+
+    private static void backtrack(List<String> a, List<String> b, List<int[]> trace, int distance, Encoder encoder) {
+        // Collected end to start, then replayed forwards
+        List<Object> ops = new ArrayList<>();
+        int x = a.size();
+        int y = b.size();
+        for (int d = distance; d > 0; d--) {
+            int[] v = trace.get(d);
+            int k = x - y;
+            int prevK = k == -d || (k != d && v[k - 1 + d] < v[k + 1 + d]) ? k + 1 : k - 1;
+            int prevX = v[prevK + d];
+            int prevY = prevX - prevK;
+            while (x > prevX && y > prevY) {
+                ops.add(a.get(--x).length());
+                y--;
+            }
+            if (x == prevX) {
+                ops.add(b.get(--y));
+            } else {
+                ops.add(-a.get(--x).length());
+            }
+        }
+        while (x > 0) {
+            ops.add(a.get(--x).length());
+        }
+        for (int i = ops.size() - 1; i >= 0; i--) {
+            Object op = ops.get(i);
+            if (op instanceof String inserted) {
+                encoder.insert(inserted);
+            } else if ((Integer) op < 0) {
+                encoder.skip(-(Integer) op);
+            } else {
+                encoder.copy((Integer) op);
+            }
+        }
+    }
+
+    /**
+     * Splits text into lines that keep their line terminators, so they join back exactly.
+     */
+    private static List<String> lines(String text) {
+        List<String> lines = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                lines.add(text.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < text.length()) {
+            lines.add(text.substring(start));
+        }
+        return lines;
+    }
+
+    /**
+     * Writes operations, merging runs of the same kind.
+     */
+    private static final class Encoder {
+
+        private final StringBuilder out = new StringBuilder();
+        private char pending;
+        private int pendingLength;
+        private final StringBuilder pendingText = new StringBuilder();
+
+        void copy(int length) {
+            add('=', length, null);
+        }
+
+        void skip(int length) {
+            add('-', length, null);
+        }
+
+        void insert(String text) {
+            add('+', text.length(), text);
+        }
+
+        private void add(char op, int length, String text) {
+            if (length == 0) {
+                return;
+            }
+            if (op != pending) {
+                flush();
+                pending = op;
+            }
+            pendingLength += length;
+            if (text != null) {
+                pendingText.append(text);
+            }
+        }
+
+        private void flush() {
+            if (pendingLength > 0) {
+                out.append(pending).append(pendingLength).append(';').append(pendingText);
+            }
+            pendingLength = 0;
+            pendingText.setLength(0);
+        }
+
+        String finish() {
+            flush();
+            return out.toString();
+        }
+    }
+}
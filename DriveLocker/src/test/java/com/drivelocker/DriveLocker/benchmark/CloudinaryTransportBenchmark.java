@@ -0,0 +1,78 @@
+package com.drivelocker.DriveLocker.benchmark;
+
+import com.cloudinary.Api;
+import com.cloudinary.Cloudinary;
+import com.cloudinary.Uploader;
+import com.cloudinary.utils.ObjectUtils;
+import com.drivelocker.DriveLocker.cloudinary.CloudinaryTransport;
+import com.drivelocker.DriveLocker.cloudinary.PooledApiStrategy;
+import com.drivelocker.DriveLocker.cloudinary.PooledUploaderStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Compares the latency of small uploads through the SDK's default transport, which builds a
+ * new HTTP client for every call, against the pooled {@link CloudinaryTransport}, against a
+ * real Cloudinary account.
+ *
+ * Not a unit test: run it manually with CLOUDINARY_URL set, e.g.
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.drivelocker.DriveLocker.benchmark.CloudinaryTransportBenchmark}.
+ * Pass the upload size in KB and the number of uploads as arguments to override the defaults.
+ */
+public class CloudinaryTransportBenchmark {
+
+    private static final int DEFAULT_SIZE_KB = 16;
+
+    private static final int DEFAULT_UPLOADS = 20;
+
+    public static void main(String[] args) throws Exception {
+        String cloudinaryUrl = System.getenv("CLOUDINARY_URL");
+        if (cloudinaryUrl == null || cloudinaryUrl.isBlank()) {
+            System.err.println("CLOUDINARY_URL must be set to run the transport benchmark.");
+            System.exit(1);
+        }
+        int sizeKb = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE_KB;
+        int uploads = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_UPLOADS;
+
+        byte[] content = new byte[sizeKb * 1024];
+        ThreadLocalRandom.current().nextBytes(content);
+
+        Cloudinary cloudinary = new Cloudinary(cloudinaryUrl);
+        try (CloudinaryTransport transport = new CloudinaryTransport(CloudinaryTransport.Settings.builder().build())) {
+            Uploader pooled = new Uploader(cloudinary, new PooledUploaderStrategy(transport));
+            Api api = new Api(cloudinary, new PooledApiStrategy(transport));
+
+            System.out.printf("%-10s %10s %10s %10s%n", "transport", "p50 ms", "p95 ms", "max ms");
+            List<String> uploaded = new ArrayList<>();
+            run("default", cloudinary::uploader, content, uploads, uploaded);
+            run("pooled", () -> pooled, content, uploads, uploaded);
+
+            for (int i = 0; i < uploaded.size(); i += 100) {
+                api.deleteResources(uploaded.subList(i, Math.min(i + 100, uploaded.size())),
+                        ObjectUtils.asMap("resource_type", "raw"));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void run(String label, Supplier<Uploader> uploaders, byte[] content, int uploads,
+                            List<String> uploaded) throws Exception {
+        long[] millis = new long[uploads];
+        for (int i = 0; i < uploads; i++) {
+            long start = System.nanoTime();
+            Map<String, Object> result = uploaders.get().upload(content,
+                    ObjectUtils.asMap("resource_type", "raw", "filename", "bench-" + i + ".bin"));
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+            uploaded.add((String) result.get("public_id"));
+        }
+        Arrays.sort(millis);
+        System.out.printf("%-10s %10d %10d %10d%n", label,
+                millis[uploads / 2], millis[Math.min(uploads - 1, uploads * 95 / 100)], millis[uploads - 1]);
+    }
+}
@@ -0,0 +1,111 @@
+package com.drivelocker.DriveLocker.benchmark;
+
+import com.drivelocker.DriveLocker.crypto.BufferPool;
+import com.drivelocker.DriveLocker.crypto.DecryptingInputStream;
+import com.drivelocker.DriveLocker.crypto.EncryptingInputStream;
+import com.drivelocker.DriveLocker.crypto.SegmentedGcm;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Measures the throughput of sealing and opening content in the segmented AES-GCM layout
+ * for several segment sizes, against a plain copy of the same bytes, and checks that every
+ * round trip gives back the original content.
+ *
+ * Not a unit test: run it manually, e.g.
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.drivelocker.DriveLocker.benchmark.EncryptionBenchmark}.
+ * Pass the content size in MB as the first argument to override the default.
+ */
+public class EncryptionBenchmark {
+
+    private static final int DEFAULT_SIZE_MB = 256;
+
+    private static final int[] SEGMENT_SIZES = {16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024};
+
+    private static final int ROUNDS = 5;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int sizeMb = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE_MB;
+        byte[] content = new byte[sizeMb * 1024 * 1024];
+        ThreadLocalRandom.current().nextBytes(content);
+
+        byte[] keyBytes = new byte[32];
+        ThreadLocalRandom.current().nextBytes(keyBytes);
+        SecretKey key = new SecretKeySpec(keyBytes, "AES");
+        byte[] noncePrefix = new byte[SegmentedGcm.NONCE_PREFIX_BYTES];
+        ThreadLocalRandom.current().nextBytes(noncePrefix);
+
+        System.out.printf("%-12s %-10s %12s %12s%n", "segment", "op", "avg ms", "MB/s");
+        report("-", "copy", sizeMb, time(() -> drain(new ByteArrayInputStream(content))));
+
+        for (int segmentSize : SEGMENT_SIZES) {
+            BufferPool pool = new BufferPool(segmentSize + SegmentedGcm.TAG_BYTES, 4);
+            byte[] sealed = seal(content, key, noncePrefix, segmentSize, pool);
+            if (sealed.length != SegmentedGcm.cipherLength(content.length, segmentSize)) {
+                throw new IllegalStateException("Unexpected sealed length " + sealed.length);
+            }
+            byte[] opened = readAll(DecryptingInputStream.whole(new ByteArrayInputStream(sealed), key, noncePrefix,
+                    segmentSize, pool));
+            if (!Arrays.equals(content, opened)) {
+                throw new IllegalStateException("Round trip changed the content at segment size " + segmentSize);
+            }
+
+            String label = segmentSize / 1024 + " KB";
+            report(label, "encrypt", sizeMb, time(() -> drain(new EncryptingInputStream(
+                    new ByteArrayInputStream(content), key, noncePrefix, segmentSize, pool))));
+            report(label, "decrypt", sizeMb, time(() -> drain(DecryptingInputStream.whole(
+                    new ByteArrayInputStream(sealed), key, noncePrefix, segmentSize, pool))));
+        }
+    }
+
+    private static byte[] seal(byte[] content, SecretKey key, byte[] noncePrefix, int segmentSize, BufferPool pool)
+            throws IOException {
+        return readAll(new EncryptingInputStream(new ByteArrayInputStream(content), key, noncePrefix, segmentSize, pool));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        try (in) {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            while (in.read(buffer) != -1) {
+                // Discard, only the reading is measured
+            }
+        }
+    }
+
+    private static double time(Task task) throws IOException {
+        task.run(); // Warm-up
+        long totalNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            task.run();
+            totalNanos += System.nanoTime() - start;
+        }
+        return totalNanos / (double) ROUNDS / 1_000_000;
+    }
+
+    private static void report(String segment, String op, int sizeMb, double avgMs) {
+        System.out.printf("%-12s %-10s %12.1f %12.1f%n", segment, op, avgMs, sizeMb / (avgMs / 1000));
+    }
+
+    private interface Task {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,148 @@
+package com.drivelocker.DriveLocker.benchmark;
+
+import com.drivelocker.DriveLocker.DriveLockerApplication;
+import com.drivelocker.DriveLocker.io.NoteChange;
+import com.drivelocker.DriveLocker.io.NotesBulkRequest;
+import com.drivelocker.DriveLocker.io.NotesBulkResponse;
+import com.drivelocker.DriveLocker.models.Notes;
+import com.drivelocker.DriveLocker.models.User;
+import com.drivelocker.DriveLocker.repository.SyncCounterRepository;
+import com.drivelocker.DriveLocker.repository.UserRepository;
+import com.drivelocker.DriveLocker.service.INotesService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Measures rows/s for importing notes through the application's own persistence path: the
+ * real entities, id generators and Hibernate settings, driven through
+ * {@link INotesService#bulkNotes} and, for comparison, one {@link INotesService#createNotes}
+ * call (one transaction) per note. Runs once with the configured JDBC batch size and once
+ * with batching turned off, to show what the batching settings are worth.
+ *
+ * Not a unit test: run it manually against a scratch MySQL database, e.g.
+ * {@code BENCH_JDBC_URL=jdbc:mysql://localhost:3306/bench BENCH_JDBC_USER=root BENCH_JDBC_PASSWORD=...
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.drivelocker.DriveLocker.benchmark.NotesImportBenchmark}.
+ * Pass the number of notes as the first argument to override the default. The schema is
+ * created or updated with ddl-auto=update, and the benchmark user's notes are deleted again.
+ */
+public class NotesImportBenchmark {
+
+    private static final int DEFAULT_NOTES = 10_000;
+
+    // createNotes commits once per note, so it gets a smaller sample
+    private static final int SINGLE_NOTES = 1_000;
+
+    private static final int NOTE_LENGTH = 500;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_NOTES;
+        if (System.getenv("BENCH_JDBC_URL") == null) {
+            System.err.println("Set BENCH_JDBC_URL (and BENCH_JDBC_USER, BENCH_JDBC_PASSWORD) to a scratch MySQL database.");
+            return;
+        }
+
+        System.out.printf("%-12s %-28s %10s %12s%n", "batch size", "operation", "ms", "rows/s");
+        run("50", count);
+        run("0", count);
+    }
+
+    private static void run(String batchSize, int count) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DriveLockerApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(settings(batchSize))
+                .run()) {
+            INotesService notesService = context.getBean(INotesService.class);
+            UserRepository userRepository = context.getBean(UserRepository.class);
+            String email = "bench-" + UUID.randomUUID() + "@example.com";
+            userRepository.save(User.builder()
+                    .userId(UUID.randomUUID().toString())
+                    .email(email)
+                    .name("Benchmark")
+                    .password("-")
+                    .isAccountVerified(true)
+                    .hasPasskey(false)
+                    .build());
+            String body = "x".repeat(NOTE_LENGTH);
+
+            try {
+                List<NoteChange> creates = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    creates.add(NoteChange.builder().title(email + " " + i).notes(body).build());
+                }
+                long start = System.nanoTime();
+                NotesBulkResponse created = notesService.bulkNotes(email,
+                        NotesBulkRequest.builder().create(creates).build());
+                report(batchSize, "bulk create", count, System.nanoTime() - start);
+
+                List<NoteChange> updates = new ArrayList<>(count);
+                for (Notes note : created.getCreated()) {
+                    updates.add(NoteChange.builder().id(note.getId()).notes(body + "\nedited").build());
+                }
+                start = System.nanoTime();
+                notesService.bulkNotes(email, NotesBulkRequest.builder().update(updates).build());
+                report(batchSize, "bulk update", count, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                notesService.bulkNotes(email, NotesBulkRequest.builder()
+                        .delete(created.getCreated().stream().map(Notes::getId).toList()).build());
+                report(batchSize, "bulk delete", count, System.nanoTime() - start);
+
+                int singles = Math.min(count, SINGLE_NOTES);
+                List<String> singleIds = new ArrayList<>(singles);
+                start = System.nanoTime();
+                for (int i = 0; i < singles; i++) {
+                    singleIds.add(String.valueOf(notesService.createNotes(email, email + " single " + i, body).getId()));
+                }
+                report(batchSize, "createNotes, one per call", singles, System.nanoTime() - start);
+                notesService.deleteNotes(email, singleIds);
+            } finally {
+                context.getBean(SyncCounterRepository.class).deleteById(email);
+                userRepository.findByEmail(email).ifPresent(userRepository::delete);
+            }
+        }
+    }
+
+    /**
+     * The application's own configuration, with the placeholders it expects from the
+     * environment filled in for a headless run against the benchmark database.
+     */
+    private static Map<String, Object> settings(String batchSize) {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("SPRING_DATASOURCE_URL", System.getenv("BENCH_JDBC_URL"));
+        settings.put("SPRING_DATASOURCE_USERNAME", System.getenv().getOrDefault("BENCH_JDBC_USER", "root"));
+        settings.put("DBPASSAIVEN", System.getenv().getOrDefault("BENCH_JDBC_PASSWORD", ""));
+        settings.put("SPRING_JPA_HIBERNATE_DDL_AUTO", "update");
+        settings.put("HIBERNATE_JDBC_BATCH_SIZE", batchSize);
+        settings.put("SPRING_APPLICATION_NAME", "notes-import-benchmark");
+        settings.put("SERVER_PORT", "0");
+        settings.put("SERVER_SERVLET_CONTEXT_PATH", "");
+        settings.put("JWT_SECRET_KEY", UUID.randomUUID() + "-" + UUID.randomUUID());
+        settings.put("CLOUDINARY_URL", "cloudinary://0:0@benchmark");
+        settings.put("STORAGE_BACKEND", "local");
+        settings.put("NOTES_SEARCH_REBUILD_ON_STARTUP", "false");
+        settings.put("MANAGEMENT_ENDPOINTS_WEB_EXPOSURE_INCLUDE", "health");
+        settings.put("JAVA_ENVIRONMENT", "benchmark");
+        settings.put("FRONTEND_URL", "http://localhost");
+        settings.put("SPRING_MAIL_HOST", "localhost");
+        settings.put("SPRING_MAIL_PORT", "25");
+        settings.put("SPRING_MAIL_USERNAME", "");
+        settings.put("SPRING_MAIL_PASSWORD", "");
+        settings.put("SPRING_MAIL_PROTOCOL", "smtp");
+        settings.put("SPRING_MAIL_PROPERTIES_MAIL_SMTP_AUTH", "false");
+        settings.put("SPRING_MAIL_PROPERTIES_MAIL_SMTP_STARTTLS_ENABLE", "false");
+        settings.put("SPRING_MAIL_PROPERTIES_MAIL_SMTP_FROM", "benchmark@example.com");
+        return settings;
+    }
+
+    private static void report(String batchSize, String operation, int rows, long nanos) {
+        System.out.printf("%-12s %-28s %10.1f %12.0f%n", batchSize, operation, nanos / 1e6, rows / (nanos / 1e9));
+    }
+}
@@ -0,0 +1,148 @@
+package com.drivelocker.DriveLocker.benchmark;
+
+import com.drivelocker.DriveLocker.cloudinary.CloudinaryTransport;
+import com.drivelocker.DriveLocker.service.CloudinaryService;
+import com.drivelocker.DriveLocker.service.CloudinaryService.UploadMode;
+import com.drivelocker.DriveLocker.storage.CloudinaryStorageBackend;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares {@link UploadMode#TEMP_FILE} against {@link UploadMode#STREAMING} for 1 MB, 50 MB
+ * and 500 MB uploads against a real Cloudinary account.
+ *
+ * Not a unit test: run it manually with CLOUDINARY_URL set, e.g.
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.drivelocker.DriveLocker.benchmark.UploadModeBenchmark}.
+ * Pass sizes in MB as arguments to override the defaults.
+ */
+public class UploadModeBenchmark {
+
+    private static final int[] DEFAULT_SIZES_MB = {1, 50, 500};
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        String cloudinaryUrl = System.getenv("CLOUDINARY_URL");
+        if (cloudinaryUrl == null || cloudinaryUrl.isBlank()) {
+            System.err.println("CLOUDINARY_URL must be set to run the upload benchmark.");
+            System.exit(1);
+        }
+
+        int[] sizes = DEFAULT_SIZES_MB;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        CloudinaryTransport transport = new CloudinaryTransport(CloudinaryTransport.Settings.builder().build());
+        CloudinaryService service = new CloudinaryService(cloudinaryUrl, UploadMode.STREAMING, 6 * 1024 * 1024, transport);
+        // Deletes under whichever resource type the upload landed in
+        CloudinaryStorageBackend backend = new CloudinaryStorageBackend(service);
+
+        System.out.printf("%-10s %-10s %12s %12s%n", "size", "mode", "avg ms", "MB/s");
+        for (int sizeMb : sizes) {
+            // Stands in for the part Tomcat has already spooled to disk
+            Path spooled = createSpooledPart(sizeMb);
+            try {
+                for (UploadMode mode : UploadMode.values()) {
+                    long totalNanos = 0;
+                    for (int round = 0; round < ROUNDS; round++) {
+                        MultipartFile part = new SpooledMultipartFile(spooled, "bench-" + sizeMb + "mb.bin");
+                        long start = System.nanoTime();
+                        Map<String, Object> result = service.uploadFile(part, mode);
+                        totalNanos += System.nanoTime() - start;
+                        cleanup(backend, result);
+                    }
+                    double avgMs = totalNanos / (double) ROUNDS / 1_000_000;
+                    double mbPerSec = sizeMb / (avgMs / 1000);
+                    System.out.printf("%-10s %-10s %12.1f %12.1f%n", sizeMb + " MB", mode, avgMs, mbPerSec);
+                }
+            } finally {
+                Files.deleteIfExists(spooled);
+            }
+        }
+        transport.close();
+    }
+
+    private static Path createSpooledPart(int sizeMb) throws IOException {
+        Path path = Files.createTempFile("upload-bench", ".bin");
+        byte[] block = new byte[1024 * 1024];
+        try (OutputStream out = Files.newOutputStream(path)) {
+            for (int i = 0; i < sizeMb; i++) {
+                ThreadLocalRandom.current().nextBytes(block);
+                out.write(block);
+            }
+        }
+        return path;
+    }
+
+    private static void cleanup(CloudinaryStorageBackend backend, Map<String, Object> result) {
+        try {
+            backend.batchDelete(List.of((String) result.get("public_id")));
+        } catch (Exception e) {
+            System.err.println("Could not delete benchmark upload " + result.get("public_id") + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Minimal disk-backed MultipartFile, mirroring how Tomcat hands over large parts.
+     */
+    private record SpooledMultipartFile(Path path, String name) implements MultipartFile {
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return name;
+        }
+
+        @Override
+        public String getContentType() {
+            return "application/octet-stream";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return getSize() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            try {
+                return Files.size(path);
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return Files.readAllBytes(path);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(path);
+        }
+
+        @Override
+        public void transferTo(java.io.File dest) throws IOException {
+            Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.drivelocker.DriveLocker.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SegmentedGcmTest {
+
+	private static final int SEGMENT = 64;
+	private static final int SEALED = SEGMENT + SegmentedGcm.TAG_BYTES;
+
+	private final Random random = new Random(7);
+	private final BufferPool pool = new BufferPool(SEALED, 4);
+	private final SecretKey key = new SecretKeySpec(bytes(32), "AES");
+	private final byte[] prefix = bytes(SegmentedGcm.NONCE_PREFIX_BYTES);
+
+	@Test
+	void roundTripsAcrossSegmentBoundaries() throws IOException {
+		for (int length : new int[]{0, 1, SEGMENT - 1, SEGMENT, SEGMENT + 1, 3 * SEGMENT, 3 * SEGMENT + 5}) {
+			byte[] plain = bytes(length);
+			byte[] sealed = encrypt(plain);
+			assertEquals(SegmentedGcm.cipherLength(length, SEGMENT), sealed.length, "sealed length of " + length);
+			assertArrayEquals(plain, decryptWhole(sealed, key), "plaintext of " + length);
+		}
+	}
+
+	@Test
+	void rejectsContentTruncatedAtASegmentBoundary() throws IOException {
+		byte[] sealed = encrypt(bytes(3 * SEGMENT + 5));
+		// Every segment left is intact, but the new last one was not sealed as the last
+		assertThrows(IOException.class, () -> decryptWhole(Arrays.copyOf(sealed, 2 * SEALED), key));
+		assertThrows(IOException.class, () -> decryptWhole(Arrays.copyOf(sealed, 3 * SEALED), key));
+	}
+
+	@Test
+	void rejectsContentTruncatedWithinASegment() throws IOException {
+		byte[] sealed = encrypt(bytes(3 * SEGMENT + 5));
+		assertThrows(IOException.class, () -> decryptWhole(Arrays.copyOf(sealed, sealed.length - 1), key));
+		assertThrows(IOException.class, () -> decryptWhole(Arrays.copyOf(sealed, SEALED + 10), key));
+		assertThrows(IOException.class, () -> decryptWhole(new byte[0], key));
+	}
+
+	@Test
+	void rejectsReorderedSegments() throws IOException {
+		byte[] sealed = encrypt(bytes(3 * SEGMENT));
+		byte[] swapped = sealed.clone();
+		System.arraycopy(sealed, 0, swapped, SEALED, SEALED);
+		System.arraycopy(sealed, SEALED, swapped, 0, SEALED);
+		assertThrows(IOException.class, () -> decryptWhole(swapped, key));
+	}
+
+	@Test
+	void rejectsTamperingAndTheWrongKey() throws IOException {
+		byte[] sealed = encrypt(bytes(2 * SEGMENT));
+		byte[] tampered = sealed.clone();
+		tampered[SEALED + 3] ^= 1;
+		assertThrows(IOException.class, () -> decryptWhole(tampered, key));
+		assertThrows(IOException.class, () -> decryptWhole(sealed, new SecretKeySpec(bytes(32), "AES")));
+	}
+
+	@Test
+	void decryptsAnyRunOfSegments() throws IOException {
+		byte[] plain = bytes(4 * SEGMENT + 9);
+		byte[] sealed = encrypt(plain);
+		long count = SegmentedGcm.segmentCount(plain.length, SEGMENT);
+		assertEquals(5, count);
+		for (int first = 0; first < count; first++) {
+			for (int end = first + 1; end <= count; end++) {
+				byte[] slice = Arrays.copyOfRange(sealed, first * SEALED, (int) Math.min(sealed.length, (long) end * SEALED));
+				byte[] expected = Arrays.copyOfRange(plain, first * SEGMENT, Math.min(plain.length, end * SEGMENT));
+				assertArrayEquals(expected, decryptSegments(slice, first, end, count), "segments " + first + ".." + end);
+			}
+		}
+	}
+
+	@Test
+	void rejectsARangeServedFromTheWrongOffset() throws IOException {
+		byte[] sealed = encrypt(bytes(4 * SEGMENT));
+		// Segment 1's bytes presented as segment 2
+		byte[] slice = Arrays.copyOfRange(sealed, SEALED, 2 * SEALED);
+		assertThrows(IOException.class, () -> decryptSegments(slice, 2, 3, 4));
+		// A short read where a full middle segment is expected
+		byte[] shortSlice = Arrays.copyOfRange(sealed, SEALED, 2 * SEALED - 1);
+		assertThrows(IOException.class, () -> decryptSegments(shortSlice, 1, 2, 4));
+	}
+
+	private byte[] encrypt(byte[] plain) throws IOException {
+		try (InputStream in = new EncryptingInputStream(new ByteArrayInputStream(plain), key, prefix, SEGMENT, pool)) {
+			return in.readAllBytes();
+		}
+	}
+
+	private byte[] decryptWhole(byte[] sealed, SecretKey key) throws IOException {
+		try (InputStream in = DecryptingInputStream.whole(new ByteArrayInputStream(sealed), key, prefix, SEGMENT, pool)) {
+			return in.readAllBytes();
+		}
+	}
+
+	private byte[] decryptSegments(byte[] sealed, long first, long end, long count) throws IOException {
+		try (InputStream in = DecryptingInputStream.segments(new ByteArrayInputStream(sealed), key, prefix, SEGMENT,
+				pool, first, end, count)) {
+			return in.readAllBytes();
+		}
+	}
+
+	private byte[] bytes(int length) {
+		byte[] bytes = new byte[length];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+}
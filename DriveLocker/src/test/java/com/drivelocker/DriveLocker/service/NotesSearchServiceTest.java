@@ -0,0 +1,189 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.MissingDetailsException;
+import com.drivelocker.DriveLocker.io.NoteSearchHit;
+import com.drivelocker.DriveLocker.io.TextSpan;
+import com.drivelocker.DriveLocker.models.Notes;
+import com.drivelocker.DriveLocker.repository.NotesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NotesSearchServiceTest {
+
+	private static final String EMAIL = "user@example.com";
+
+	private final Map<Integer, Notes> stored = new LinkedHashMap<>();
+	private NotesSearchService service;
+
+	@BeforeEach
+	void setUp() {
+		NotesRepository notesRepository = mock(NotesRepository.class);
+		when(notesRepository.findByUserEmail(EMAIL)).thenAnswer(invocation -> new ArrayList<>(stored.values()));
+		when(notesRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+			List<Notes> found = new ArrayList<>();
+			for (Object id : invocation.<Iterable<?>>getArgument(0)) {
+				if (stored.containsKey(id)) {
+					found.add(stored.get(id));
+				}
+			}
+			return found;
+		});
+		service = new NotesSearchService(notesRepository);
+		ReflectionTestUtils.setField(service, "titleBoost", 3);
+		ReflectionTestUtils.setField(service, "defaultLimit", 20);
+		ReflectionTestUtils.setField(service, "maxLimit", 100);
+	}
+
+	@Test
+	void scoresWithBm25() {
+		// Lengths 5, 6 and 4 (title terms count three times), so the average length is 5
+		note(1, "one", "apple banana");
+		note(2, "two", "banana cherry cherry");
+		note(3, "three", "cherry");
+
+		List<NoteSearchHit> hits = service.search(EMAIL, "apple ", null);
+		assertEquals(List.of(1), ids(hits));
+		// At the average length the length normalisation cancels out, leaving the idf
+		double idf = Math.log(1 + (3 - 1 + 0.5) / (1 + 0.5));
+		assertEquals(idf, hits.get(0).getScore(), 1e-9);
+	}
+
+	@Test
+	void ranksByFrequencyLengthRarityAndTitle() {
+		note(1, "a", "garden");
+		note(2, "b", "garden garden");
+		note(3, "c", "garden and a long list of many other words");
+		note(4, "Garden", "nothing");
+		note(5, "d", "common rare");
+		note(6, "e", "common");
+		note(7, "f", "common");
+
+		assertEquals(List.of(4, 2, 1, 3), ids(service.search(EMAIL, "garden ", null)));
+		// The rarer term outweighs the common one
+		assertEquals(5, ids(service.search(EMAIL, "common rare ", null)).get(0));
+	}
+
+	@Test
+	void expandsTheLastTermAsAPrefix() {
+		note(1, "one", "apple");
+		note(2, "two", "application");
+		note(3, "three", "app");
+		note(4, "four", "banana");
+
+		assertEquals(List.of(1, 2, 3), ids(service.search(EMAIL, "app", null)).stream().sorted().toList());
+		// A trailing space completes the term
+		assertEquals(List.of(3), ids(service.search(EMAIL, "app ", null)));
+		// Only the last term is a prefix
+		assertEquals(List.of(3), ids(service.search(EMAIL, "app nothing ", null)));
+	}
+
+	@Test
+	void aNoteScoresItsBestExpansionNotTheirSum() {
+		note(1, "one", "apple application");
+		note(2, "two", "apple");
+		note(3, "three", "other");
+
+		double apple = scoreOf(1, service.search(EMAIL, "apple ", null));
+		double application = scoreOf(1, service.search(EMAIL, "application ", null));
+		assertEquals(Math.max(apple, application), scoreOf(1, service.search(EMAIL, "appl", null)), 1e-9);
+	}
+
+	@Test
+	void highlightsMatchesInTitleAndSnippet() {
+		note(1, "Apple pie", "Take the apples, then bake.");
+
+		NoteSearchHit hit = service.search(EMAIL, "pie appl", null).get(0);
+		assertEquals(List.of(new TextSpan(0, 5), new TextSpan(6, 9)), hit.getTitleHighlights());
+		assertEquals("Take the apples, then bake.", hit.getSnippet());
+		assertEquals(List.of(new TextSpan(9, 15)), hit.getSnippetHighlights());
+	}
+
+	@Test
+	void cutsLongBodiesAroundTheMatches() {
+		String body = "filler ".repeat(100) + "needle " + "filler ".repeat(100);
+		note(1, "one", body);
+
+		NoteSearchHit hit = service.search(EMAIL, "needle ", null).get(0);
+		assertTrue(hit.getSnippet().length() <= 170, hit.getSnippet());
+		assertTrue(hit.getSnippet().contains("needle"), hit.getSnippet());
+		assertEquals(1, hit.getSnippetHighlights().size());
+	}
+
+	@Test
+	void followsSavesAndDeletes() {
+		note(1, "one", "apple");
+		note(2, "two", "banana");
+		assertEquals(List.of(1), ids(service.search(EMAIL, "apple ", null)));
+
+		Notes edited = note(1, "one", "banana");
+		Notes added = note(3, "three", "apple");
+		service.onNotesSaved(new NotesSavedEvent(EMAIL, List.of(edited, added)));
+		assertEquals(List.of(3), ids(service.search(EMAIL, "apple ", null)));
+		assertEquals(List.of(1, 2), ids(service.search(EMAIL, "banana ", null)).stream().sorted().toList());
+
+		stored.remove(2);
+		service.onNotesDeleted(new NotesDeletedEvent(EMAIL, List.of(2)));
+		assertEquals(List.of(1), ids(service.search(EMAIL, "banana ", null)));
+	}
+
+	@Test
+	void deletedTermsDoNotUseUpPrefixExpansions() {
+		for (int i = 1; i <= 40; i++) {
+			note(i, "note " + i, "pre" + (char) ('a' + i / 26) + (char) ('a' + i % 26));
+		}
+		note(41, "kept", "prezzz");
+		assertEquals(List.of(1), ids(service.search(EMAIL, "preab ", null)));
+
+		List<Integer> deleted = new ArrayList<>();
+		for (int i = 1; i <= 40; i++) {
+			stored.remove(i);
+			deleted.add(i);
+		}
+		service.onNotesDeleted(new NotesDeletedEvent(EMAIL, deleted));
+		// Forty dead terms sort before the live one, more than the expansion limit
+		assertEquals(List.of(41), ids(service.search(EMAIL, "pre", null)));
+	}
+
+	@Test
+	void limitsResults() {
+		for (int i = 1; i <= 30; i++) {
+			note(i, "note " + i, "shared");
+		}
+		assertEquals(20, service.search(EMAIL, "shared ", null).size());
+		assertEquals(5, service.search(EMAIL, "shared ", 5).size());
+		assertEquals(30, service.search(EMAIL, "shared ", 1000).size());
+	}
+
+	@Test
+	void rejectsQueriesWithoutTerms() {
+		assertThrows(MissingDetailsException.class, () -> service.search(EMAIL, " !? ", null));
+		assertThrows(MissingDetailsException.class, () -> service.search(EMAIL, null, null));
+	}
+
+	private Notes note(int id, String title, String body) {
+		Notes note = Notes.builder().id(id).title(title).notes(body).isFavourate(false).build();
+		stored.put(id, note);
+		return note;
+	}
+
+	private static List<Integer> ids(List<NoteSearchHit> hits) {
+		return hits.stream().map(NoteSearchHit::getId).toList();
+	}
+
+	private static double scoreOf(int id, List<NoteSearchHit> hits) {
+		return hits.stream().filter(hit -> hit.getId() == id).findFirst().orElseThrow().getScore();
+	}
+}
@@ -0,0 +1,238 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.InvalidCredentialsException;
+import com.drivelocker.DriveLocker.exceptions.MissingDetailsException;
+import com.drivelocker.DriveLocker.exceptions.NoteNotFoundException;
+import com.drivelocker.DriveLocker.exceptions.PreconditionFailedException;
+import com.drivelocker.DriveLocker.io.NoteChange;
+import com.drivelocker.DriveLocker.io.NotesBulkRequest;
+import com.drivelocker.DriveLocker.io.NotesBulkResponse;
+import com.drivelocker.DriveLocker.models.Notes;
+import com.drivelocker.DriveLocker.models.SyncTombstone;
+import com.drivelocker.DriveLocker.models.User;
+import com.drivelocker.DriveLocker.repository.NotesRepository;
+import com.drivelocker.DriveLocker.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotesServiceTest {
+
+	private static final String EMAIL = "user@example.com";
+
+	// Ordered by id, as the locking query returns them
+	private final Map<Integer, Notes> stored = new TreeMap<>();
+	private NotesRepository notesRepository;
+	private SyncService syncService;
+	private NotesService service;
+
+	@BeforeEach
+	void setUp() {
+		notesRepository = mock(NotesRepository.class);
+		when(notesRepository.findIdsByIdInAndUserEmail(anyList(), eq(EMAIL))).thenAnswer(invocation ->
+				invocation.<List<Integer>>getArgument(0).stream().filter(stored::containsKey).toList());
+		when(notesRepository.deleteAllByIdInBulk(anyList())).thenAnswer(invocation -> {
+			invocation.<List<Integer>>getArgument(0).forEach(stored::remove);
+			return invocation.<List<Integer>>getArgument(0).size();
+		});
+		when(notesRepository.findByIdInAndUserEmailForUpdate(anyCollection(), eq(EMAIL))).thenAnswer(invocation -> {
+			Collection<Integer> ids = invocation.getArgument(0);
+			return stored.values().stream().filter(note -> ids.contains(note.getId())).toList();
+		});
+		when(notesRepository.findByUserEmailAndTitleIn(eq(EMAIL), anyCollection())).thenAnswer(invocation -> {
+			Collection<String> titles = invocation.getArgument(1);
+			return stored.values().stream().filter(note -> titles.contains(note.getTitle())).toList();
+		});
+		when(notesRepository.saveAll(anyIterable())).thenAnswer(invocation -> {
+			List<Notes> saved = new ArrayList<>();
+			for (Notes note : invocation.<Iterable<Notes>>getArgument(0)) {
+				note.setId(1000 + saved.size());
+				saved.add(note);
+			}
+			return saved;
+		});
+
+		UserRepository userRepository = mock(UserRepository.class);
+		when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(
+				User.builder().email(EMAIL).isAccountVerified(true).build()));
+		syncService = mock(SyncService.class);
+		when(syncService.next(eq(EMAIL), anyInt())).thenReturn(100L);
+
+		service = new NotesService(notesRepository, userRepository, mock(ApplicationEventPublisher.class),
+				syncService, mock(NoteRevisionService.class));
+		ReflectionTestUtils.setField(service, "maxBulkOperations", 100);
+	}
+
+	@Test
+	void deletesBeforeCheckingTitles() {
+		note(1, "Plan", 0);
+
+		NotesBulkResponse response = service.bulkNotes(EMAIL, NotesBulkRequest.builder()
+				.create(List.of(create("Plan")))
+				.delete(List.of(1))
+				.build());
+		assertEquals(List.of(1), response.getDeleted());
+		assertEquals("Plan", response.getCreated().get(0).getTitle());
+
+		InOrder order = inOrder(notesRepository);
+		order.verify(notesRepository).deleteAllByIdInBulk(List.of(1));
+		order.verify(notesRepository).findByUserEmailAndTitleIn(eq(EMAIL), anyCollection());
+	}
+
+	@Test
+	void rejectsANoteChangedMoreThanOnce() {
+		note(1, "one", 0);
+
+		assertThrows(MissingDetailsException.class, () -> service.bulkNotes(EMAIL, NotesBulkRequest.builder()
+				.update(List.of(update(1, "first", null), update(1, "second", null)))
+				.build()));
+		assertThrows(MissingDetailsException.class, () -> service.bulkNotes(EMAIL, NotesBulkRequest.builder()
+				.update(List.of(update(1, "renamed", null)))
+				.delete(List.of(1))
+				.build()));
+		// Nothing is deleted when the request is rejected
+		verify(notesRepository, never()).deleteAllByIdInBulk(anyList());
+
+		// Repeated deletes of the same note are one delete
+		NotesBulkResponse response = service.bulkNotes(EMAIL, NotesBulkRequest.builder()
+				.delete(List.of(1, 1, 7))
+				.build());
+		assertEquals(List.of(1), response.getDeleted());
+	}
+
+	@Test
+	void rejectsDuplicateTitlesAmongCreates() {
+		note(1, "taken", 0);
+
+		assertThrows(InvalidCredentialsException.class, () -> service.bulkNotes(EMAIL, NotesBulkRequest.builder()
+				.create(List.of(create("same"), create("same")))
+				.build()));
+		assertThrows(InvalidCredentialsException.class, () -> service.bulkNotes(EMAIL, NotesBulkRequest.builder()
+				.create(List.of(create("taken")))
+				.build()));
+	}
+
+	@Test
+	void rejectsTitleMovesAndSwaps() {
+		note(1, "A", 0);
+		note(2, "B", 0);
+
+		InvalidCredentialsException move = assertThrows(InvalidCredentialsException.class, () ->
+				service.bulkNotes(EMAIL, NotesBulkRequest.builder()
+						.update(List.of(update(1, "B", null), update(2, "C", null)))
+						.build()));
+		assertTrue(move.getMessage().contains("moved from note 2"), move.getMessage());
+
+		InvalidCredentialsException swap = assertThrows(InvalidCredentialsException.class, () ->
+				service.bulkNotes(EMAIL, NotesBulkRequest.builder()
+						.update(List.of(update(1, "B", null), update(2, "A", null)))
+						.build()));
+		assertTrue(swap.getMessage().contains("is being moved"), swap.getMessage());
+
+		// Taking the title of a note the request leaves alone is a plain conflict
+		InvalidCredentialsException taken = assertThrows(InvalidCredentialsException.class, () ->
+				service.bulkNotes(EMAIL, NotesBulkRequest.builder()
+						.update(List.of(update(1, "B", null)))
+						.build()));
+		assertEquals("A note with this title already exists.", taken.getMessage());
+		assertEquals("A", stored.get(1).getTitle());
+		assertEquals("B", stored.get(2).getTitle());
+	}
+
+	@Test
+	void checksEachNotesVersion() {
+		note(1, "one", 3);
+		note(2, "two", 5);
+
+		assertThrows(PreconditionFailedException.class, () -> service.bulkNotes(EMAIL, NotesBulkRequest.builder()
+				.update(List.of(update(1, "one edited", 3L), update(2, "two edited", 4L)))
+				.build()));
+		verify(syncService, never()).next(anyString(), anyInt());
+		verify(notesRepository, never()).saveAll(anyIterable());
+		assertEquals("one", stored.get(1).getTitle());
+
+		// A matching version, or none at all, lets the update through
+		service.bulkNotes(EMAIL, NotesBulkRequest.builder()
+				.update(List.of(update(1, "one edited", 3L), update(2, "two edited", null)))
+				.build());
+		assertEquals("one edited", stored.get(1).getTitle());
+		assertEquals("two edited", stored.get(2).getTitle());
+	}
+
+	@Test
+	void rejectsUpdatesOfMissingNotes() {
+		note(1, "one", 0);
+
+		NoteNotFoundException e = assertThrows(NoteNotFoundException.class, () ->
+				service.bulkNotes(EMAIL, NotesBulkRequest.builder()
+						.update(List.of(update(1, "renamed", null), update(9, "other", null)))
+						.build()));
+		assertEquals("Note not found with ID: 9", e.getMessage());
+	}
+
+	@Test
+	void numbersUpdatesThenCreatesFromOneReservation() {
+		note(1, "one", 0);
+		note(2, "two", 0);
+		note(3, "three", 0);
+
+		NotesBulkResponse response = service.bulkNotes(EMAIL, NotesBulkRequest.builder()
+				.update(List.of(update(2, null, null), update(1, null, null)))
+				.create(List.of(create("four")))
+				.delete(List.of(3))
+				.build());
+		// Deletes take tombstones rather than numbers, so three numbers cover the request
+		verify(syncService).next(EMAIL, 3);
+		assertEquals(100L, stored.get(1).getChangeSeq());
+		assertEquals(101L, stored.get(2).getChangeSeq());
+		assertEquals(102L, response.getCreated().get(0).getChangeSeq());
+		verify(syncService).recordDeletions(EMAIL, SyncTombstone.NOTE, List.of("3"));
+	}
+
+	@Test
+	void deletesAloneReserveNoNumbers() {
+		note(1, "one", 0);
+
+		service.bulkNotes(EMAIL, NotesBulkRequest.builder().delete(List.of(1)).build());
+		verify(syncService, never()).next(anyString(), anyInt());
+	}
+
+	private Notes note(int id, String title, long version) {
+		Notes note = Notes.builder().id(id).title(title).notes("body of " + title).isFavourate(false)
+				.version(version).build();
+		stored.put(id, note);
+		return note;
+	}
+
+	private static NoteChange create(String title) {
+		return NoteChange.builder().title(title).notes("body of " + title).build();
+	}
+
+	private static NoteChange update(int id, String title, Long version) {
+		return NoteChange.builder().id(id).title(title).version(version).build();
+	}
+}
@@ -0,0 +1,189 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.MissingDetailsException;
+import com.drivelocker.DriveLocker.exceptions.SyncTokenExpiredException;
+import com.drivelocker.DriveLocker.io.SyncResponse;
+import com.drivelocker.DriveLocker.io.SyncedFile;
+import com.drivelocker.DriveLocker.models.Notes;
+import com.drivelocker.DriveLocker.models.SyncCounter;
+import com.drivelocker.DriveLocker.models.SyncTombstone;
+import com.drivelocker.DriveLocker.repository.FileRepository;
+import com.drivelocker.DriveLocker.repository.NotesRepository;
+import com.drivelocker.DriveLocker.repository.SyncCounterRepository;
+import com.drivelocker.DriveLocker.repository.SyncTombstoneRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SyncServiceTest {
+
+	private static final String EMAIL = "user@example.com";
+
+	private final List<Notes> notes = new ArrayList<>();
+	private final List<SyncedFile> files = new ArrayList<>();
+	private final List<SyncTombstone> tombstones = new ArrayList<>();
+	private final SyncCounter counter = SyncCounter.builder().userEmail(EMAIL).lastSeq(0L).purgedSeq(0L).build();
+	private SyncService service;
+
+	@BeforeEach
+	void setUp() {
+		SyncCounterRepository syncCounterRepository = mock(SyncCounterRepository.class);
+		when(syncCounterRepository.existsById(EMAIL)).thenReturn(true);
+		when(syncCounterRepository.findById(EMAIL)).thenAnswer(invocation -> Optional.of(counter));
+
+		NotesRepository notesRepository = mock(NotesRepository.class);
+		when(notesRepository.findByUserEmailAndChangeSeqGreaterThanOrderByChangeSeqAsc(eq(EMAIL), anyLong(), any()))
+				.thenAnswer(invocation -> after(notes, Notes::getChangeSeq, invocation.getArgument(1), invocation.getArgument(2)));
+		FileRepository fileRepository = mock(FileRepository.class);
+		when(fileRepository.findChangedSince(eq(EMAIL), anyLong(), anyString(), any()))
+				.thenAnswer(invocation -> after(files, SyncedFile::getChangeSeq, invocation.getArgument(1), invocation.getArgument(3)));
+		SyncTombstoneRepository syncTombstoneRepository = mock(SyncTombstoneRepository.class);
+		when(syncTombstoneRepository.findByUserEmailAndChangeSeqGreaterThanOrderByChangeSeqAsc(eq(EMAIL), anyLong(), any()))
+				.thenAnswer(invocation -> after(tombstones, SyncTombstone::getChangeSeq, invocation.getArgument(1), invocation.getArgument(2)));
+
+		FileLinkService fileLinkService = mock(FileLinkService.class);
+		when(fileLinkService.contentUrlPrefix()).thenReturn("/files/");
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+
+		service = new SyncService(syncCounterRepository, syncTombstoneRepository, notesRepository, fileRepository,
+				fileLinkService, new TransactionTemplate(transactionManager));
+		ReflectionTestUtils.setField(service, "defaultLimit", 500);
+		ReflectionTestUtils.setField(service, "maxLimit", 2000);
+		service.init();
+	}
+
+	@Test
+	void cutsAFullPageInTheMiddleOfMixedChanges() {
+		note(1, 1);
+		file("a", 2);
+		tombstone(SyncTombstone.NOTE, "5", 3);
+		note(2, 4);
+		tombstone(SyncTombstone.FILE, "b", 5);
+		file("c", 6);
+		note(3, 7);
+		counter.setLastSeq(7L);
+
+		SyncResponse first = service.changesSince(EMAIL, token(0), 4);
+		assertEquals(List.of(1, 2), noteIds(first));
+		assertEquals(List.of("a"), fileIds(first));
+		assertEquals(List.of(5), first.getDeletedNoteIds());
+		assertEquals(List.of(), first.getDeletedFileIds());
+		assertTrue(first.isHasMore());
+		// A full page resumes after its last change, not at the counter
+		assertEquals(token(4), first.getNextToken());
+
+		SyncResponse second = service.changesSince(EMAIL, first.getNextToken(), 4);
+		assertEquals(List.of(3), noteIds(second));
+		assertEquals(List.of("c"), fileIds(second));
+		assertEquals(List.of(), second.getDeletedNoteIds());
+		assertEquals(List.of("b"), second.getDeletedFileIds());
+		assertFalse(second.isHasMore());
+		assertEquals(token(7), second.getNextToken());
+	}
+
+	@Test
+	void aPageThatEndsExactlyAtTheLastChangeHasNoMore() {
+		note(1, 1);
+		file("a", 2);
+		counter.setLastSeq(2L);
+
+		SyncResponse response = service.changesSince(EMAIL, token(0), 2);
+		assertEquals(List.of(1), noteIds(response));
+		assertEquals(List.of("a"), fileIds(response));
+		assertFalse(response.isHasMore());
+		assertEquals(token(2), response.getNextToken());
+	}
+
+	@Test
+	void anEmptyDeltaMovesTheTokenToTheCounter() {
+		note(1, 1);
+		tombstone(SyncTombstone.NOTE, "2", 2);
+		// Numbers taken by writes that saved nothing visible, e.g. rolled back
+		counter.setLastSeq(9L);
+
+		SyncResponse response = service.changesSince(EMAIL, token(2), null);
+		assertEquals(List.of(), response.getNotes());
+		assertEquals(List.of(), response.getFiles());
+		assertEquals(List.of(), response.getDeletedNoteIds());
+		assertEquals(List.of(), response.getDeletedFileIds());
+		assertFalse(response.isHasMore());
+		assertEquals(token(9), response.getNextToken());
+	}
+
+	@Test
+	void rejectsATokenOlderThanThePurgedTombstones() {
+		note(1, 6);
+		counter.setLastSeq(6L);
+		counter.setPurgedSeq(5L);
+
+		assertThrows(SyncTokenExpiredException.class, () -> service.changesSince(EMAIL, token(4), null));
+		assertEquals(List.of(1), noteIds(service.changesSince(EMAIL, token(5), null)));
+		// A full sync does not need the tombstones, so it still works
+		SyncResponse full = service.changesSince(EMAIL, null, null);
+		assertEquals(List.of(1), noteIds(full));
+		assertEquals(token(6), full.getNextToken());
+	}
+
+	@Test
+	void rejectsTokensTheServerNeverIssued() {
+		counter.setLastSeq(3L);
+
+		assertThrows(MissingDetailsException.class, () -> service.changesSince(EMAIL, token(4), null));
+		assertThrows(MissingDetailsException.class, () -> service.changesSince(EMAIL, "not a token", null));
+		assertThrows(MissingDetailsException.class, () -> service.changesSince(EMAIL, token(-1), null));
+	}
+
+	private void note(int id, long changeSeq) {
+		notes.add(Notes.builder().id(id).title("note " + id).changeSeq(changeSeq).build());
+	}
+
+	private void file(String publicId, long changeSeq) {
+		SyncedFile file = mock(SyncedFile.class);
+		when(file.getPublicId()).thenReturn(publicId);
+		when(file.getChangeSeq()).thenReturn(changeSeq);
+		files.add(file);
+	}
+
+	private void tombstone(String kind, String itemId, long changeSeq) {
+		tombstones.add(SyncTombstone.builder().userEmail(EMAIL).kind(kind).itemId(itemId).changeSeq(changeSeq).build());
+	}
+
+	private static <T> List<T> after(List<T> rows, ToLongFunction<T> seq, long since, Limit limit) {
+		return rows.stream().filter(row -> seq.applyAsLong(row) > since).limit(limit.max()).toList();
+	}
+
+	private static List<Integer> noteIds(SyncResponse response) {
+		return response.getNotes().stream().map(Notes::getId).toList();
+	}
+
+	private static List<String> fileIds(SyncResponse response) {
+		return response.getFiles().stream().map(SyncedFile::getPublicId).toList();
+	}
+
+	private static String token(long seq) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(Long.toString(seq).getBytes(StandardCharsets.UTF_8));
+	}
+}
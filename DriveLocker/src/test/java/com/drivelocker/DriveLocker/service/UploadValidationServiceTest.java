@@ -0,0 +1,137 @@
+package com.drivelocker.DriveLocker.service;
+
+import com.drivelocker.DriveLocker.exceptions.InvalidUploadException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UploadValidationServiceTest {
+
+	private static final byte[] PNG = bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0x0D);
+	private static final byte[] JPEG = bytes(0xFF, 0xD8, 0xFF, 0xE0, 0, 0x10);
+	private static final byte[] PDF = "%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] ZIP = bytes('P', 'K', 0x03, 0x04, 0x14, 0);
+	private static final byte[] TEXT = "just some notes\n".getBytes(StandardCharsets.US_ASCII);
+
+	private SimpleMeterRegistry meterRegistry;
+	private UploadValidationService service;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		service = new UploadValidationService(meterRegistry);
+		ReflectionTestUtils.setField(service, "enabled", true);
+		ReflectionTestUtils.setField(service, "maxFileBytes", 1024L);
+		ReflectionTestUtils.setField(service, "allowedTypesList", "");
+		ReflectionTestUtils.setField(service, "deniedTypesList", "exe,dll,elf");
+		ReflectionTestUtils.setField(service, "rejectMismatch", true);
+		service.init();
+	}
+
+	@Test
+	void acceptsContentMatchingItsExtension() throws IOException {
+		assertEquals("png", validate(PNG, "photo.PNG"));
+		assertEquals("jpg", validate(JPEG, "photo.jpeg"));
+		assertEquals("pdf", validate(PDF, "report.pdf"));
+	}
+
+	@Test
+	void rejectsContentThatDoesNotMatchItsExtension() {
+		assertMismatch(PDF, "photo.jpg");
+		assertMismatch(JPEG, "photo.png");
+		assertMismatch(TEXT, "report.pdf");
+		assertMismatch(new byte[0], "photo.png");
+		assertEquals(4, rejected("mismatch"));
+	}
+
+	@Test
+	void containersAreJudgedByTheirExtension() throws IOException {
+		assertNull(validate(ZIP, "letter.docx"));
+		assertNull(validate(ZIP, "archive.zip"));
+		assertMismatch(ZIP, "photo.png");
+		assertMismatch(PNG, "letter.docx");
+	}
+
+	@Test
+	void unknownExtensionsAndContentPass() throws IOException {
+		assertNull(validate(TEXT, "notes.txt"));
+		assertNull(validate(TEXT, "README"));
+		assertEquals("png", validate(PNG, "image.bin"));
+	}
+
+	@Test
+	void rejectsDeniedTypesWhateverTheName() {
+		byte[] pe = new byte[0x80];
+		pe[0] = 'M';
+		pe[1] = 'Z';
+		pe[0x3C] = 0x40;
+		System.arraycopy(bytes('P', 'E', 0, 0), 0, pe, 0x40, 4);
+		assertThrows(InvalidUploadException.class, () -> validate(pe, "setup.exe"));
+		assertThrows(InvalidUploadException.class, () -> validate(pe, "holiday.jpg"));
+		assertThrows(InvalidUploadException.class, () -> validate(bytes(0x7F, 'E', 'L', 'F', 2, 1), "tool"));
+		assertEquals(3, rejected("denied"));
+	}
+
+	@Test
+	void mzWithoutAPeHeaderIsNotAnExecutable() throws IOException {
+		byte[] mz = Arrays.copyOf(bytes('M', 'Z'), 0x80);
+		assertNull(validate(mz, "data.bin"));
+	}
+
+	@Test
+	void mismatchesPassWhenRejectionIsOff() throws IOException {
+		ReflectionTestUtils.setField(service, "rejectMismatch", false);
+		assertEquals("pdf", validate(PDF, "photo.jpg"));
+	}
+
+	@Test
+	void onlyAllowedTypesPassWhenAnAllowListIsSet() throws IOException {
+		ReflectionTestUtils.setField(service, "allowedTypesList", ".png, JPG");
+		service.init();
+		assertEquals("png", validate(PNG, "photo.png"));
+		assertEquals("jpg", validate(JPEG, "photo.jpg"));
+		assertThrows(InvalidUploadException.class, () -> validate(PDF, "report.pdf"));
+		assertThrows(InvalidUploadException.class, () -> validate(TEXT, "notes.txt"));
+		assertEquals(2, rejected("not_allowed"));
+	}
+
+	@Test
+	void rejectsOversizedUploadsBeforeReadingThem() {
+		assertThrows(InvalidUploadException.class, () -> service.checkDeclared("big.png", 1025));
+		assertDoesNotThrow(() -> service.checkDeclared("small.png", 1024));
+		assertThrows(InvalidUploadException.class, () -> service.checkDeclared("setup.EXE", 10));
+	}
+
+	private String validate(byte[] content, String name) throws IOException {
+		return service.validate(new ByteArrayResource(content), name, content.length);
+	}
+
+	private void assertMismatch(byte[] content, String name) {
+		InvalidUploadException e = assertThrows(InvalidUploadException.class, () -> validate(content, name));
+		assertEquals("File content does not match its ." + name.substring(name.lastIndexOf('.') + 1) + " extension.",
+				e.getMessage());
+	}
+
+	private double rejected(String reason) {
+		return meterRegistry.counter("drivelocker.uploads.rejected", "reason", reason).count();
+	}
+
+	private static byte[] bytes(int... values) {
+		byte[] bytes = new byte[values.length];
+		for (int i = 0; i < values.length; i++) {
+			bytes[i] = (byte) values[i];
+		}
+		return bytes;
+	}
+}
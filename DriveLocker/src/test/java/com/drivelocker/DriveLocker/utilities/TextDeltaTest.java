@@ -0,0 +1,103 @@
+package com.drivelocker.DriveLocker.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextDeltaTest {
+
+	private static void assertRoundTrip(String source, String target) {
+		String delta = TextDelta.diff(source, target);
+		assertEquals(target == null ? "" : target, TextDelta.apply(source, delta));
+	}
+
+	@Test
+	void emptyAndNullTexts() {
+		assertRoundTrip("", "");
+		assertRoundTrip(null, null);
+		assertRoundTrip("", "new note");
+		assertRoundTrip("old note", "");
+		assertRoundTrip(null, "new note");
+		assertRoundTrip("old note", null);
+		assertEquals("=4;", TextDelta.diff("same", "same"));
+	}
+
+	@Test
+	void textsWithoutTrailingNewline() {
+		assertRoundTrip("one\ntwo\nthree", "one\ntwo\nthree and more");
+		assertRoundTrip("one\ntwo\nthree", "one\ntwo\nthree\n");
+		assertRoundTrip("one\ntwo\nthree\n", "one\ntwo\nthree");
+		assertRoundTrip("one\ntwo", "zero\none\ntwo");
+		assertRoundTrip("a\r\nb\r\nc", "a\r\nB\r\nc");
+	}
+
+	@Test
+	void deltaIsSizedByTheEdit() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			text.append("line ").append(i).append('\n');
+		}
+		String source = text.toString();
+		String target = source.replace("line 500\n", "line five hundred\n");
+		String delta = TextDelta.diff(source, target);
+		assertEquals(target, TextDelta.apply(source, delta));
+		assertTrue(delta.length() < 50, delta);
+	}
+
+	@Test
+	void editsBeyondTheMaximumDistanceReplaceTheMiddle() {
+		StringBuilder source = new StringBuilder("start\n");
+		StringBuilder target = new StringBuilder("start\n");
+		for (int i = 0; i < 3000; i++) {
+			source.append("old ").append(i).append('\n');
+			target.append("new ").append(i).append('\n');
+		}
+		source.append("end");
+		target.append("end");
+		String delta = TextDelta.diff(source.toString(), target.toString());
+		assertEquals(target.toString(), TextDelta.apply(source.toString(), delta));
+		// The differing middle is replaced whole, so the delta carries all of the new text
+		assertTrue(delta.length() > target.length() - "start\nend".length(), () -> "delta length " + delta.length());
+	}
+
+	@Test
+	void randomEditsRoundTrip() {
+		Random random = new Random(42);
+		String[] words = {"a", "b", "note", "\n", "\n", " ", "xyz\n"};
+		for (int round = 0; round < 500; round++) {
+			String source = randomText(random, words, random.nextInt(60));
+			StringBuilder target = new StringBuilder(source);
+			for (int edit = random.nextInt(5); edit >= 0; edit--) {
+				int at = target.isEmpty() ? 0 : random.nextInt(target.length());
+				if (random.nextBoolean() && !target.isEmpty()) {
+					target.delete(at, Math.min(target.length(), at + random.nextInt(10)));
+				} else {
+					target.insert(at, randomText(random, words, random.nextInt(6)));
+				}
+			}
+			assertRoundTrip(source, target.toString());
+		}
+	}
+
+	@Test
+	void deltasThatDoNotFitTheSourceAreRejected() {
+		String delta = TextDelta.diff("hello world", "hello there");
+		assertThrows(IllegalArgumentException.class, () -> TextDelta.apply("hello", delta));
+		assertThrows(IllegalArgumentException.class, () -> TextDelta.apply("hello world and more", delta));
+		assertThrows(IllegalArgumentException.class, () -> TextDelta.apply("hello", "=x;"));
+		assertThrows(IllegalArgumentException.class, () -> TextDelta.apply("hello", "*5;"));
+		assertThrows(IllegalArgumentException.class, () -> TextDelta.apply("hello", "=5;+10;abc"));
+	}
+
+	private static String randomText(Random random, String[] words, int count) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			text.append(words[random.nextInt(words.length)]);
+		}
+		return text.toString();
+	}
+}